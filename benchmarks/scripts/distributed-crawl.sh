@@ -0,0 +1,117 @@
+#!/bin/bash
+# Crawls the FakeGitHubApi with several crawler processes that share one lease folder (see LeaseDirectory), kills one
+# of them with kill -9 in the middle of the crawl and checks that
+#   - another node took over a search window of the killed node once its lease expired, and
+#   - the merged output holds every matching repository exactly once.
+# Every third repository of the fake API contains a CMakeLists.txt file, so repositories / 3 are expected.
+#
+# Usage, after mvn package from the root of the repository:
+#   benchmarks/scripts/distributed-crawl.sh [nodes] [repositories] [kill-after-seconds]
+# Exits with 0 if all checks passed. The folder of the run is printed and kept for inspection.
+
+NODES=${1:-3}
+REPOSITORIES=${2:-5000}
+KILL_AFTER=${3:-8}
+PORT=${PORT:-18080}
+# Requests per token and resource every RESET_SECONDS, so that the crawl takes long enough to kill a node within it.
+RATE_LIMIT=${RATE_LIMIT:-150}
+RESET_SECONDS=${RESET_SECONDS:-1}
+LEASE_MILLIS=${LEASE_MILLIS:-3000}
+
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+CRAWLER_JAR=$ROOT/crawler/target/crawler-1.0-SNAPSHOT-all.jar
+API_JAR=$ROOT/benchmarks/target/benchmarks.jar
+for jar in "$CRAWLER_JAR" "$API_JAR"; do
+    if [ ! -f "$jar" ]; then
+        echo "Can't find $jar. Run mvn package first."
+        exit 1
+    fi
+done
+if [ "$NODES" -lt 2 ]; then
+    echo "At least 2 nodes are required, one of them is killed."
+    exit 1
+fi
+
+WORK=$(mktemp -d "${TMPDIR:-/tmp}/distributed-crawl.XXXXXX")
+LEASE_DIR=$WORK/lease
+echo "Running in: $WORK"
+
+java -cp "$API_JAR" main.FakeGitHubApi --port "$PORT" --repositories "$REPOSITORIES" \
+    --rate-limit "$RATE_LIMIT" --reset-seconds "$RESET_SECONDS" > "$WORK/api.log" 2>&1 &
+API_PID=$!
+trap 'kill $API_PID 2>/dev/null' EXIT
+for i in $(seq 1 50); do
+    curl -s "http://127.0.0.1:$PORT/stats" > /dev/null && break
+    sleep 0.2
+done
+
+# Sets a property of a config.properties file.
+set_property() {
+    sed -i "s|^$2 *=.*|$2 = $3|" "$1"
+    grep -q "^$2 *=" "$1" || echo "$2 = $3" >> "$1"
+}
+
+PIDS=()
+for node in $(seq 1 "$NODES"); do
+    NODE_DIR=$WORK/node$node
+    mkdir -p "$NODE_DIR/shared"
+    CONFIG=$NODE_DIR/config.properties
+    cp "$ROOT/config.properties" "$CONFIG"
+    # Tokens of their own, the fake API limits the requests per token.
+    set_property "$CONFIG" OAuthToken "node${node}a, node${node}b"
+    set_property "$CONFIG" apiUrl "http://127.0.0.1:$PORT"
+    set_property "$CONFIG" buildSystem CMAKE
+    set_property "$CONFIG" searchPlanner true
+    set_property "$CONFIG" filePath shared
+    set_property "$CONFIG" flushEveryRecords 10
+    set_property "$CONFIG" metricsPort 0
+    set_property "$CONFIG" leaseDir "$LEASE_DIR"
+    set_property "$CONFIG" nodeId "node$node"
+    set_property "$CONFIG" leaseMillis "$LEASE_MILLIS"
+    (cd "$NODE_DIR" && exec java -jar "$CRAWLER_JAR" > out.txt 2> err.txt) &
+    PIDS+=($!)
+done
+
+sleep "$KILL_AFTER"
+if kill -9 "${PIDS[1]}" 2>/dev/null; then
+    echo "Killed node2 after $KILL_AFTER s."
+else
+    echo "node2 finished within $KILL_AFTER s, lower kill-after-seconds or the rate limit."
+fi
+for pid in "${PIDS[@]}"; do
+    wait "$pid"
+done
+echo "Requests: $(curl -s "http://127.0.0.1:$PORT/stats")"
+
+FAILED=0
+TAKEN_OVER=$(cat "$WORK"/node*/out.txt | grep -c "from node node2, its lease expired")
+if [ "$TAKEN_OVER" -gt 0 ]; then
+    echo "PASS: $TAKEN_OVER search windows of node2 were taken over."
+else
+    echo "FAIL: no search window of node2 was taken over."
+    FAILED=1
+fi
+
+MERGED=$LEASE_DIR/merged/repositories.json
+if [ ! -f "$MERGED" ]; then
+    echo "FAIL: there is no merged output at $MERGED."
+    exit 1
+fi
+# Every record starts with its id.
+IDS=$(grep -o '{"id":[0-9]*' "$MERGED" | cut -d: -f2)
+TOTAL=$(echo "$IDS" | grep -c .)
+DUPLICATES=$(echo "$IDS" | sort | uniq -d | grep -c .)
+EXPECTED=$((REPOSITORIES / 3))
+if [ "$DUPLICATES" -eq 0 ]; then
+    echo "PASS: the merged output holds no repository twice."
+else
+    echo "FAIL: the merged output holds $DUPLICATES repositories more than once."
+    FAILED=1
+fi
+if [ "$TOTAL" -eq "$EXPECTED" ]; then
+    echo "PASS: the merged output holds all $EXPECTED matching repositories."
+else
+    echo "FAIL: the merged output holds $TOTAL repositories instead of $EXPECTED."
+    FAILED=1
+fi
+exit $FAILED
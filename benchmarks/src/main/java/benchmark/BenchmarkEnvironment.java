@@ -0,0 +1,99 @@
+package benchmark;
+
+import Models.RMetaData;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Sets up the working directory of a benchmark fork: a temporary folder with its own config.properties and output
+ * folder. Config, JsonWriter and JsonReader are singletons that read the config once, so every benchmark runs in a fork
+ * of its own (the JMH default).
+ */
+public final class BenchmarkEnvironment {
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Creates the working directory and points "user.dir" at it, before the config is read for the first time.
+     * @param apiUrl The base URL of the API, i.e. of the FakeGitHubApi. Null if the benchmark sends no requests.
+     * @return The output folder, which holds the repositories.json file.
+     * @throws IOException If the folder can't be created.
+     */
+    public static Path init(String apiUrl) throws IOException {
+        Path workingDir = Files.createTempDirectory("crawler-benchmark");
+        Path outputDir = Files.createDirectories(workingDir.resolve("shared"));
+        String config = "OAuthToken = benchmark\n"
+                + "language = CPP\n"
+                + "lastPushedDate = 2018-01-01\n"
+                + "starsDecreaseAmount = 1\n"
+                + "buildSystem = CMAKE\n"
+                + "customFile = \n"
+                + "filePath = " + outputDir.toAbsolutePath() + "\n"
+                + "searchPlanner = false\n"
+                + "httpCacheMegabytes = 0\n"
+                + "metricsPort = 0\n"
+                + (apiUrl == null ? "" : "apiUrl = " + apiUrl + "\n");
+        Files.write(workingDir.resolve("config.properties"), config.getBytes(StandardCharsets.UTF_8));
+        System.setProperty("user.dir", workingDir.toAbsolutePath().toString());
+        return outputDir;
+    }
+
+    /**
+     * Writes a repositories.json file with the given number of repositories.
+     * @param file The file to write.
+     * @param repositories The number of repositories.
+     * @throws IOException If the file can't be written.
+     */
+    public static void writeRepositoriesJson(Path file, int repositories) throws IOException {
+        Gson gson = new Gson();
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write('[');
+            for (int i = 0; i < repositories; i++) {
+                if (i > 0)
+                    writer.write(',');
+                writer.write(gson.toJson(createRepository(i), RMetaData.class));
+            }
+            writer.write(']');
+        }
+    }
+
+    /**
+     * @param id The id of the repository.
+     * @return A repository with all fields set like a typical match.
+     */
+    public static RMetaData createRepository(long id) {
+        RMetaData repository = new RMetaData();
+        repository.setId(id);
+        repository.setName("repository-" + id);
+        repository.setOwner("owner-" + id);
+        repository.setOwnerType("User");
+        repository.setDescription("A C++ library with a CMake build that is used as benchmark fixture number " + id + ".");
+        repository.setLanguage("C++");
+        repository.setHasDownloads(true);
+        repository.setSize(12345);
+        repository.setPushedAt(new Date(1577836800000L));
+        repository.setCreatedAt(new Date(1420070400000L));
+        repository.setDefaultBranch("master");
+        repository.setLatestCommitId("0123456789abcdef0123456789abcdef01234567");
+        repository.setForksCount(42);
+        repository.setOpenIssuesCount(7);
+        repository.setStargazersCount(1000);
+        repository.setHtmlUrl("https://github.com/owner-" + id + "/repository-" + id);
+        repository.setCloneUrl("https://github.com/owner-" + id + "/repository-" + id + ".git");
+        repository.setBuildSystem("CMAKE");
+        repository.setBuildFilePath(Arrays.asList("CMakeLists.txt"));
+        repository.setBuildStatus("UNKNOWN");
+        repository.setErrorMessage(new ArrayList<>());
+        repository.setPackageDependencies(new ArrayList<>());
+        return repository;
+    }
+}
@@ -0,0 +1,114 @@
+package benchmark;
+
+import Models.BuildSystem;
+import Models.BuildSystemDetection;
+import main.BuildSystemDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build system detection over synthetic root listings.
+ *
+ * Compares the BuildSystemDetector, which detects all build systems at once, with the former detection, one stream
+ * over the listing per build file of every build system.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildSystemDetectorBenchmark {
+
+    private static final int LISTINGS = 1024;
+    private static final String CUSTOM_FILE = "CHANGELOG.md";
+    private static final String[] COMMON_FILES = {"README.md", "LICENSE", ".gitignore", ".travis.yml", "src", "docs",
+            "include", "test", "CHANGELOG.md", "CONTRIBUTING.md", "appveyor.yml", ".clang-format"};
+
+    @Param({"20", "100", "1000"})
+    public int listingSize;
+
+    private List<List<String>> listings;
+    private BuildSystemDetector detector;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        listings = createListings(listingSize, new Random(42));
+        detector = new BuildSystemDetector(CUSTOM_FILE);
+    }
+
+    @Benchmark
+    public BuildSystemDetection detector() {
+        return detector.detect(nextListing());
+    }
+
+    @Benchmark
+    public void streamPerBuildFile(Blackhole blackhole) {
+        List<String> listing = nextListing();
+        for (BuildSystem buildSystem : BuildSystem.values()) {
+            if (buildSystem != BuildSystem.CUSTOM && buildSystem != BuildSystem.UNKNOWN)
+                blackhole.consume(detectLegacy(buildSystem, listing));
+        }
+        blackhole.consume(listing.stream().anyMatch(name -> name.equals(CUSTOM_FILE)));
+    }
+
+    private List<String> nextListing() {
+        next = (next + 1) & (LISTINGS - 1);
+        return listings.get(next);
+    }
+
+    /**
+     * The detection as it was done before, a separate stream over the listing for each build file.
+     */
+    private static boolean detectLegacy(BuildSystem buildSystem, List<String> listing) {
+        switch (buildSystem) {
+            case AUTOTOOLS:
+                return (listing.stream().anyMatch(name -> name.equals("configure.ac"))
+                        || listing.stream().anyMatch(name -> name.equals("configure.in")))
+                        && listing.stream().anyMatch(name -> name.equals("Makefile.am"));
+            default:
+                for (String buildFile : buildSystem.getBuildFiles()) {
+                    if (listing.stream().anyMatch(name -> name.equals(buildFile)))
+                        return true;
+                }
+                return false;
+        }
+    }
+
+    private static List<List<String>> createListings(int listingSize, Random random) {
+        List<String> buildFiles = new ArrayList<>();
+        for (BuildSystem buildSystem : BuildSystem.values())
+            buildFiles.addAll(Arrays.asList(buildSystem.getBuildFiles()));
+        buildFiles.remove(""); // the file of the CUSTOM build system is configured
+
+        List<List<String>> listings = new ArrayList<>(LISTINGS);
+        for (int i = 0; i < LISTINGS; i++) {
+            List<String> listing = new ArrayList<>(listingSize);
+            for (int j = 0; j < listingSize; j++)
+                listing.add(j < COMMON_FILES.length ? COMMON_FILES[j] : "file" + j + ".cpp");
+            // Like real repositories, most listings contain none or only a few build files.
+            int buildFileCount = random.nextInt(3);
+            for (int j = 0; j < buildFileCount; j++)
+                listing.set(random.nextInt(listingSize), buildFiles.get(random.nextInt(buildFiles.size())));
+            listings.add(listing);
+        }
+        return listings;
+    }
+}
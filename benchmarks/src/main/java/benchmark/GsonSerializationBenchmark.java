@@ -0,0 +1,51 @@
+package benchmark;
+
+import Models.RMetaData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a single repository, as done by JsonWriter for every match, and its deserialization, as done by
+ * JsonReader for every index lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GsonSerializationBenchmark {
+
+    private Gson gson;
+    private RMetaData repository;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        gson = new GsonBuilder().create();
+        repository = BenchmarkEnvironment.createRepository(4711);
+        json = gson.toJson(repository, RMetaData.class);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(repository, RMetaData.class);
+    }
+
+    @Benchmark
+    public RMetaData deserialize() {
+        return gson.fromJson(json, RMetaData.class);
+    }
+}
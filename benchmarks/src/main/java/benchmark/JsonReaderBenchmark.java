@@ -0,0 +1,56 @@
+package benchmark;
+
+import Models.RMetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.JsonReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random access to single repositories of the repositories.json file through the index of JsonReader.
+ * A lookup has to cost the same for small and large files, the file is never parsed as a whole.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonReaderBenchmark {
+
+    @Param({"1000", "100000"})
+    public int repositories;
+
+    private JsonReader jsonReader;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() throws IOException {
+        Path outputDir = BenchmarkEnvironment.init(null);
+        BenchmarkEnvironment.writeRepositoriesJson(outputDir.resolve("repositories.json"), repositories);
+        jsonReader = JsonReader.getInstance();
+    }
+
+    @Benchmark
+    public String readRepositoryString() {
+        return jsonReader.getRepositoryStringFromJsonArray(random.nextInt(repositories));
+    }
+
+    @Benchmark
+    public RMetaData deserializeRepository() {
+        return jsonReader.deserializeRepositoryFromJsonArray(random.nextInt(repositories));
+    }
+}
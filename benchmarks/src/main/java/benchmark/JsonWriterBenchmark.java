@@ -0,0 +1,58 @@
+package benchmark;
+
+import Models.RMetaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.JsonWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending repositories to repositories.json files of growing size. The cost per repository has to stay flat, no
+ * matter how many repositories the file already holds. Every 50th write flushes and syncs the batch to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonWriterBenchmark {
+
+    @Param({"0", "10000", "100000"})
+    public int existingRepositories;
+
+    private JsonWriter jsonWriter;
+    private long nextId;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path outputDir = BenchmarkEnvironment.init(null);
+        BenchmarkEnvironment.writeRepositoriesJson(outputDir.resolve("repositories.json"), existingRepositories);
+        jsonWriter = JsonWriter.getInstance();
+        nextId = existingRepositories;
+    }
+
+    @TearDown
+    public void tearDown() {
+        jsonWriter.close();
+    }
+
+    @Benchmark
+    public void writeRepositoryToJson() {
+        RMetaData repository = BenchmarkEnvironment.createRepository(nextId++);
+        jsonWriter.writeRepositoryToJson(repository);
+    }
+}
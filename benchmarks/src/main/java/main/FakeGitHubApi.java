@@ -0,0 +1,401 @@
+package main;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fake of the API endpoints the crawler uses: the user of the token, the legacy repository search, the search API,
+ * the repository, its root contents, the reference of its default branch, and the GraphQL repository queries of the
+ * GraphQLEnricher (POST /graphql or /api/graphql, one point per query).
+ *
+ * By default every legacy search page holds new repositories, so that none of them is skipped as already checked, and
+ * the rate limit headers allow an unlimited number of requests, so the benchmark measures the crawler and not the
+ * RequestScheduler. Every third repository contains a CMakeLists.txt file, every seventh a Makefile and every fifth the
+ * configure.ac and Makefile.am files of Autotools, so a repository may match several build systems.
+ *
+ * Started on its own (see main), it serves a fixed set of repositories to the search API instead, so that a whole
+ * crawl with the search planner finishes, and enforces a rate limit per token and resource: X-RateLimit-Remaining
+ * counts down with every request and a token that ran out is answered with 403 until the limit is reset. With several
+ * languages, repository i is written in the (i mod n)-th of them and the language qualifier of the search is applied.
+ * GET /stats reports the requests of every token, the answered rate limit errors and the served repositories.
+ */
+public class FakeGitHubApi {
+
+    static final int PAGE_SIZE = 100;
+    private static final String PREFIX = "/api/v3";
+    private static final String CREATED_AT = "2015-01-01";
+    // An aliased repository query of the GraphQLEnricher, i.e. r0: repository(owner: "o1", name: "r1").
+    private static final Pattern GRAPHQL_REPOSITORY = Pattern.compile("(r\\d+): repository\\(owner: \"o(\\d+)\", name: \"r\\d+\"\\)");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(16, runnable -> {
+        Thread thread = new Thread(runnable, "fake-github-api");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong nextRepositoryId = new AtomicLong();
+    // 0 for the endless legacy search of the benchmark.
+    private final int repositories;
+    // Requests per token and resource within a rate limit window, 0 for no limit.
+    private final int rateLimit;
+    private final int resetSeconds;
+    // The languages of the repositories in the notation of the language qualifier, i.e. "CPP". Empty for C++ only,
+    // without applying the language qualifier.
+    private final List<String> languages;
+    private final Map<String, RateLimitWindow> rateLimitWindows = new HashMap<>();
+    private final Map<String, AtomicLong> requests = new TreeMap<>();
+    private final AtomicLong rateLimitedRequests = new AtomicLong();
+
+    /**
+     * A rate limit window of a single token and resource.
+     */
+    private static class RateLimitWindow {
+        private long resetEpochSeconds;
+        private int used;
+    }
+
+    FakeGitHubApi() throws IOException {
+        this(0, 0, 0, 0, Collections.emptyList());
+    }
+
+    /**
+     * @param port The port on the loopback interface, 0 for any free port.
+     * @param repositories The number of repositories served to the search API, 0 for the endless legacy search only.
+     * @param rateLimit The requests per token and resource within resetSeconds, 0 for no limit.
+     * @param resetSeconds The length of a rate limit window in seconds.
+     * @param languages The languages the repositories are written in, empty to ignore the language qualifier.
+     * @throws IOException If the server can't be started.
+     */
+    public FakeGitHubApi(int port, int repositories, int rateLimit, int resetSeconds, List<String> languages) throws IOException {
+        this.repositories = repositories;
+        this.languages = languages;
+        this.rateLimit = rateLimit;
+        this.resetSeconds = Math.max(1, resetSeconds);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Serves the fake API until the process is stopped. Point the apiUrl of the config at the printed URL.
+     * Usage: java -cp benchmarks/target/benchmarks.jar main.FakeGitHubApi [--port 18080] [--repositories 5000]
+     * [--rate-limit 500] [--reset-seconds 60] [--languages CPP,C]
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        FakeGitHubApi api = new FakeGitHubApi(Integer.parseInt(options.getOrDefault("port", "18080")),
+                Integer.parseInt(options.getOrDefault("repositories", "5000")),
+                Integer.parseInt(options.getOrDefault("rate-limit", "0")),
+                Integer.parseInt(options.getOrDefault("reset-seconds", "60")),
+                options.containsKey("languages") ? Arrays.asList(options.get("languages").split(",")) : Collections.emptyList());
+        System.out.println("Serving " + api.repositories + " repositories"
+                + (api.languages.isEmpty() ? "" : " written in " + String.join(", ", api.languages)) + " at: " + api.getUrl()
+                + (api.rateLimit > 0 ? " (" + api.rateLimit + " requests per token and resource every " + api.resetSeconds + " s)" : ""));
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--"))
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith(PREFIX))
+            path = path.substring(PREFIX.length());
+        boolean graphql = path.equals("/graphql") || path.equals("/api/graphql");
+        String resource = graphql ? "graphql" : path.contains("/search/") ? "search" : "core";
+        if (path.equals("/stats")) {
+            send(exchange, 200, resource, stats(), Integer.MAX_VALUE, 0);
+            return;
+        }
+        String token = exchange.getRequestHeaders().getFirst("Authorization");
+        long[] rateLimitHeaders = countRequest(token == null ? "anonymous" : token, resource);
+        int remaining = (int) rateLimitHeaders[0];
+        long reset = rateLimitHeaders[1];
+        if (remaining < 0) {
+            rateLimitedRequests.incrementAndGet();
+            send(exchange, 403, resource, "{\"message\":\"API rate limit exceeded\"}", 0, reset);
+            return;
+        }
+
+        if (graphql) {
+            send(exchange, 200, resource, graphql(readBody(exchange), remaining, reset), remaining, reset);
+        } else if (path.equals("/user")) {
+            send(exchange, 200, resource, "{\"login\":\"benchmark\"}", remaining, reset);
+        } else if (path.startsWith("/legacy/repos/search/")) {
+            send(exchange, 200, resource, searchPage(), remaining, reset);
+        } else if (path.equals("/search/repositories")) {
+            send(exchange, 200, resource, search(parseQuery(exchange.getRequestURI().getRawQuery())), remaining, reset);
+        } else if (path.startsWith("/repos/")) {
+            String[] segments = path.split("/"); // "", "repos", owner, name, endpoint...
+            long id = Long.parseLong(segments[3].substring(1));
+            if (segments.length == 4)
+                send(exchange, 200, resource, repository(id), remaining, reset);
+            else if (segments[4].equals("contents"))
+                send(exchange, 200, resource, contents(id), remaining, reset);
+            else if (segments[4].equals("git"))
+                send(exchange, 200, resource, "{\"ref\":\"refs/heads/master\",\"object\":{\"type\":\"commit\",\"sha\":\"" + sha(id) + "\"}}",
+                        remaining, reset);
+            else
+                send(exchange, 404, resource, "{\"message\":\"Not Found\"}", remaining, reset);
+        } else {
+            send(exchange, 404, resource, "{\"message\":\"Not Found\"}", remaining, reset);
+        }
+    }
+
+    /**
+     * Counts a request against the rate limit of the token.
+     * @return The remaining requests after this one, negative if the token ran out, and the reset in epoch seconds.
+     */
+    private synchronized long[] countRequest(String token, String resource) {
+        requests.computeIfAbsent(token + " " + resource, key -> new AtomicLong()).incrementAndGet();
+        long now = System.currentTimeMillis() / 1000;
+        if (rateLimit <= 0)
+            return new long[] {Integer.MAX_VALUE, now + 1};
+        RateLimitWindow window = rateLimitWindows.computeIfAbsent(token + " " + resource, key -> new RateLimitWindow());
+        if (now >= window.resetEpochSeconds) {
+            window.resetEpochSeconds = now + resetSeconds;
+            window.used = 0;
+        }
+        if (window.used >= rateLimit)
+            return new long[] {-1, window.resetEpochSeconds};
+        window.used++;
+        return new long[] {rateLimit - window.used, window.resetEpochSeconds};
+    }
+
+    private synchronized String stats() {
+        StringBuilder stats = new StringBuilder("{\"requests\":{");
+        boolean first = true;
+        for (Map.Entry<String, AtomicLong> tokenRequests : requests.entrySet()) {
+            if (!first)
+                stats.append(',');
+            first = false;
+            stats.append('"').append(tokenRequests.getKey().replace("\"", "")).append("\":").append(tokenRequests.getValue().get());
+        }
+        return stats.append("},\"rateLimited\":").append(rateLimitedRequests.get())
+                .append(",\"repositories\":").append(repositories).append('}').toString();
+    }
+
+    private String searchPage() {
+        StringBuilder page = new StringBuilder("{\"repositories\":[");
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            long id = nextRepositoryId.incrementAndGet();
+            if (i > 0)
+                page.append(',');
+            page.append("{\"owner\":\"o").append(id).append("\",\"name\":\"r").append(id)
+                    .append("\",\"watchers\":").append(stars(id)).append(",\"language\":\"").append(language(id)).append("\"}");
+        }
+        return page.append("]}").toString();
+    }
+
+    /**
+     * Answers the search API for the stars and created qualifiers of the search planner, sorted by stars.
+     * Repository i has repositories - i + 1 stars, so the repositories are sorted by their id.
+     */
+    private String search(Map<String, String> params) {
+        long minStars = 0;
+        long maxStars = Long.MAX_VALUE;
+        boolean created = true;
+        String language = null;
+        for (String qualifier : params.getOrDefault("q", "").split(" ")) {
+            int colon = qualifier.indexOf(':');
+            if (colon < 0)
+                continue;
+            String value = qualifier.substring(colon + 1);
+            switch (qualifier.substring(0, colon)) {
+                case "stars":
+                    if (value.startsWith("<=")) {
+                        maxStars = Long.parseLong(value.substring(2));
+                    } else if (value.contains("..")) {
+                        minStars = Long.parseLong(value.substring(0, value.indexOf("..")));
+                        maxStars = Long.parseLong(value.substring(value.indexOf("..") + 2));
+                    } else {
+                        minStars = maxStars = Long.parseLong(value);
+                    }
+                    break;
+                case "created":
+                    if (value.contains(".."))
+                        created = value.substring(0, value.indexOf("..")).compareTo(CREATED_AT) <= 0
+                                && value.substring(value.indexOf("..") + 2).compareTo(CREATED_AT) >= 0;
+                    break;
+                case "language":
+                    language = value;
+                    break;
+                default:
+            }
+        }
+        int page = Integer.parseInt(params.getOrDefault("page", "1"));
+        int perPage = Integer.parseInt(params.getOrDefault("per_page", "30"));
+        // The ids with stars within [minStars, maxStars].
+        long firstId = created ? Math.max(1, repositories + 1 - Math.min(maxStars, repositories)) : 1;
+        long lastId = created ? Math.min(repositories, repositories + 1 - Math.max(minStars, 1)) : 0;
+        List<Long> ids = new ArrayList<>();
+        for (long id = firstId; id <= lastId; id++) {
+            if (language == null || languages.isEmpty() || language(id).equalsIgnoreCase(language))
+                ids.add(id);
+        }
+        StringBuilder result = new StringBuilder("{\"total_count\":").append(ids.size())
+                .append(",\"incomplete_results\":false,\"items\":[");
+        int from = (page - 1) * perPage;
+        for (int i = from; i < ids.size() && i < from + perPage; i++) {
+            if (i > from)
+                result.append(',');
+            result.append(repository(ids.get(i)));
+        }
+        return result.append("]}").toString();
+    }
+
+    /**
+     * Answers a query of the GraphQLEnricher: its rate limit and the aliased repositories.
+     */
+    private String graphql(String body, int remaining, long reset) {
+        JsonElement query = new JsonParser().parse(body).getAsJsonObject().get("query");
+        StringBuilder data = new StringBuilder("{\"data\":{\"rateLimit\":{\"limit\":")
+                .append(rateLimit > 0 ? rateLimit : Integer.MAX_VALUE).append(",\"cost\":1,\"remaining\":").append(remaining)
+                .append(",\"resetAt\":\"").append(Instant.ofEpochSecond(reset)).append("\"}");
+        Matcher repository = GRAPHQL_REPOSITORY.matcher(query == null ? "" : query.getAsString());
+        while (repository.find()) {
+            long id = Long.parseLong(repository.group(2));
+            data.append(",\"").append(repository.group(1)).append("\":")
+                    .append(repositories > 0 && id > repositories ? "null" : repositoryNode(id));
+        }
+        return data.append("}}").toString();
+    }
+
+    private String repositoryNode(long id) {
+        StringBuilder entries = new StringBuilder();
+        for (String file : files(id)) {
+            if (entries.length() > 0)
+                entries.append(',');
+            entries.append("{\"name\":\"").append(file).append("\"}");
+        }
+        return "{\"databaseId\":" + id + ",\"name\":\"r" + id + "\",\"description\":\"Fake repository\",\"isPrivate\":false,"
+                + "\"diskUsage\":100,\"forkCount\":1,\"createdAt\":\"" + CREATED_AT + "T00:00:00Z\",\"pushedAt\":\"2020-01-01T00:00:00Z\","
+                + "\"url\":\"https://github.com/o" + id + "/r" + id + "\",\"owner\":{\"login\":\"o" + id + "\",\"__typename\":\"User\"},"
+                + "\"primaryLanguage\":{\"name\":\"" + language(id) + "\"},\"stargazers\":{\"totalCount\":" + stars(id) + "},"
+                + "\"issues\":{\"totalCount\":1},\"pullRequests\":{\"totalCount\":1},"
+                + "\"defaultBranchRef\":{\"name\":\"master\",\"target\":{\"oid\":\"" + sha(id) + "\"}},"
+                + "\"object\":{\"entries\":[" + entries + "]}}";
+    }
+
+    private long stars(long id) {
+        return repositories > 0 ? repositories - id + 1 : Math.max(1, 1_000_000 - id);
+    }
+
+    private String repository(long id) {
+        return "{\"id\":" + id + ",\"name\":\"r" + id + "\",\"owner\":{\"login\":\"o" + id + "\",\"type\":\"User\"},"
+                + "\"description\":\"Fake repository\",\"language\":\"" + language(id) + "\",\"size\":100,\"forks\":1,\"open_issues\":2,"
+                + "\"watchers\":" + stars(id) + ",\"default_branch\":\"master\","
+                + "\"html_url\":\"https://github.com/o" + id + "/r" + id + "\",\"clone_url\":\"https://github.com/o" + id + "/r" + id + ".git\","
+                + "\"created_at\":\"" + CREATED_AT + "T00:00:00Z\",\"pushed_at\":\"2020-01-01T00:00:00Z\"}";
+    }
+
+    private String language(long id) {
+        return languages.isEmpty() ? "C++" : languages.get((int) (id % languages.size()));
+    }
+
+    private static List<String> files(long id) {
+        List<String> files = new ArrayList<>(Arrays.asList("README.md", "LICENSE", "src", "include"));
+        files.add(id % 3 == 0 ? "CMakeLists.txt" : "Makefile.in");
+        if (id % 7 == 0)
+            files.add("Makefile");
+        if (id % 5 == 0)
+            files.addAll(Arrays.asList("configure.ac", "Makefile.am"));
+        return files;
+    }
+
+    private static String contents(long id) {
+        StringBuilder contents = new StringBuilder("[");
+        List<String> files = files(id);
+        for (int i = 0; i < files.size(); i++) {
+            if (i > 0)
+                contents.append(',');
+            contents.append("{\"name\":\"").append(files.get(i)).append("\",\"path\":\"").append(files.get(i))
+                    .append("\",\"type\":\"file\"}");
+        }
+        return contents.append(']').toString();
+    }
+
+    private static String sha(long id) {
+        return String.format("%040d", id);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                body.write(buffer, 0, read);
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null)
+            return params;
+        for (String param : rawQuery.split("&")) {
+            int equals = param.indexOf('=');
+            if (equals > 0)
+                params.put(URLDecoder.decode(param.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(param.substring(equals + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private void send(HttpExchange exchange, int code, String resource, String body, int remaining, long reset)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(rateLimit > 0 ? rateLimit : Integer.MAX_VALUE));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(remaining));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf(reset));
+        exchange.getResponseHeaders().set("X-RateLimit-Resource", resource);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package main;
+
+import Models.BuildSystem;
+import Models.CrawlCheckpoint;
+import benchmark.BenchmarkEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.CheckpointFile;
+import utils.DeadLetterFile;
+import utils.FileHelper;
+import utils.HttpArchive;
+import utils.JsonWriter;
+import utils.RepositoryRouter;
+import utils.SeenRepositoryIndex;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of the SearchQueryCrawler: 10 search pages with all their repositories checked against the
+ * FakeGitHubApi, the matches written to the json file and a checkpoint saved after every page.
+ * The score is the number of checked repositories per second.
+ *
+ * The crawler parts are wired like GitHubCrawler wires them for a single language and build system with the REST
+ * backend, without verifying the token and without the maxStars decrement loop around the query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(SearchQueryCrawler.MAX_PAGES * FakeGitHubApi.PAGE_SIZE)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterRepositoriesBenchmark {
+
+    private FakeGitHubApi api;
+    private SearchQueryCrawler queryCrawler;
+    private Map<String, String> searchQuery;
+
+    @Setup
+    public void setUp() throws IOException {
+        api = new FakeGitHubApi();
+        BenchmarkEnvironment.init(api.getUrl());
+        String language = Config.LANGUAGES.get(0);
+        BuildSystem buildSystem = Config.BUILDSYSTEMS.get(0);
+        TokenPool tokenPool = new TokenPool(Config.OAUTHTOKENS, Config.APIURL);
+        RequestExecutor requestExecutor = new RequestExecutor();
+        RepositoryRouter outputRouter = new RepositoryRouter();
+        outputRouter.addRoute(language, buildSystem, JsonWriter.getInstance());
+        SeenRepositoryIndex seenRepositories = new SeenRepositoryIndex(FileHelper.getRepositoriesJsonFilePath(),
+                language + "/" + buildSystem + "/" + Config.CUSTOMFILE, buildSystem.toString(), Config.SEENBLOOMFILTER);
+        CheckpointManager checkpointManager = new CheckpointManager(new CheckpointFile(FileHelper.getCheckpointFilePath()),
+                seenRepositories, outputRouter, HttpArchive.getInstance().today().toString());
+        RepositoryChecker repositoryChecker = new RepositoryChecker(Config.BUILDSYSTEMS, new BuildSystemDetector(Config.CUSTOMFILE),
+                tokenPool, requestExecutor, new DeadLetterFile(FileHelper.getDeadLetterFilePath()), seenRepositories,
+                null, outputRouter, null, null);
+        queryCrawler = new SearchQueryCrawler(tokenPool, requestExecutor, repositoryChecker, language,
+                (page, stars) -> checkpointManager.save(new CrawlCheckpoint()));
+        searchQuery = new HashMap<>();
+        searchQuery.put("language", language);
+        searchQuery.put("sort", "stars");
+    }
+
+    @TearDown
+    public void tearDown() {
+        api.stop();
+    }
+
+    @Benchmark
+    public boolean filterRepositories() {
+        return queryCrawler.crawl(searchQuery, 1);
+    }
+}
@@ -3,6 +3,7 @@ package Models;
 import main.Config;
 import org.eclipse.egit.github.core.Repository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -28,7 +29,7 @@ import java.util.List;
  * The only difference is the name.
  *
  * MAKE:
- * The make utility requires a file, Makefile (or makefile), which defines set of tasks to be executed
+ * The make utility requires a file, Makefile (or makefile, GNUmakefile), which defines set of tasks to be executed
  *
  * UNKNOWN:
  * If you are not interested in filtering repositories by its build systems, then simply leave the buildSystem property empty
@@ -40,17 +41,28 @@ import java.util.List;
 
 public enum BuildSystem {
     CMAKE("CMAKE", new String[] {"CMakeLists.txt"}),
-    AUTOTOOLS("AUTOTOOLS", new String[]{"configure.ac", "configure.in","Makefile.am"}),
-    MAKE("MAKE", new String []{"Makefile"}),
-    CUSTOM("CUSTOM", new String[] {""}),
-    UNKNOWN("UNKNOWN", new String []{});
+    AUTOTOOLS("AUTOTOOLS", new String[]{"configure.ac", "configure.in","Makefile.am"}, "(configure.ac | configure.in) & Makefile.am"),
+    MAKE("MAKE", new String []{"Makefile"}, "~Makefile | GNUmakefile"),
+    CUSTOM("CUSTOM", new String[] {""}, null), // the rule is read from the customFile property
+    UNKNOWN("UNKNOWN", new String []{}, null);
     private String name;
     private String[] buildFiles;
-    private List<String> filePaths;
+    private String rule;
+    private String deepRule;
 
+    /**
+     * The build system is detected if any of its build files is found.
+     */
     BuildSystem(String name, String[] buildFiles) {
+        this(name, buildFiles, String.join(" | ", buildFiles));
+    }
+
+    BuildSystem(String name, String[] buildFiles, String rule) {
         this.name = name;
         this.buildFiles = buildFiles;
+        this.rule = rule;
+        // Every file pattern prefixed with "**/", i.e. "~**/Makefile | **/GNUmakefile".
+        this.deepRule = rule != null ? rule.replaceAll("(~?)([^\\s()|&!~]+)", "$1**/$2") : null;
     }
 
     @Override
@@ -74,14 +86,33 @@ public enum BuildSystem {
         }
     }
 
-    public List<String> getFilePaths() {
-        return filePaths;
-    }
-
-    public void setFilePaths(List<String> filePaths) {
-        this.filePaths = filePaths;
+    /**
+     * @param names The names of the build systems, i.e. the entries of the buildSystem property.
+     * @return The distinct build systems in the given order. Only UNKNOWN, i.e. no filter, if no name is given.
+     */
+    public static List<BuildSystem> getBuildTypes(List<String> names) {
+        List<BuildSystem> buildSystems = new ArrayList<>();
+        for (String name : names) {
+            BuildSystem buildSystem = getBuildType(name);
+            if (!buildSystems.contains(buildSystem))
+                buildSystems.add(buildSystem);
+        }
+        if (buildSystems.isEmpty())
+            buildSystems.add(BuildSystem.UNKNOWN);
+        return buildSystems;
     }
 
     public String[] getBuildFiles() {return buildFiles;}
+
+    /**
+     * @return The detection rule of the build system (see BuildSystemDetector) or null if it has no fixed rule.
+     */
+    public String getRule() {return rule;}
+
+    /**
+     * @return The detection rule that matches the build files within any folder, not only the root directory, or null
+     * if it has no fixed rule.
+     */
+    public String getDeepRule() {return deepRule;}
 }
 
@@ -0,0 +1,57 @@
+package Models;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable result of the build system detection of a single repository.
+ * Holds every detected build system together with the paths of the build files that matched its rule.
+ */
+public class BuildSystemDetection {
+
+    public static final BuildSystemDetection EMPTY = new BuildSystemDetection(new EnumMap<>(BuildSystem.class));
+
+    private final Map<BuildSystem, List<String>> filePaths;
+
+    /**
+     * @param filePaths The detected build systems with the paths of their matched build files.
+     */
+    public BuildSystemDetection(EnumMap<BuildSystem, List<String>> filePaths) {
+        EnumMap<BuildSystem, List<String>> copy = new EnumMap<>(BuildSystem.class);
+        for (Map.Entry<BuildSystem, List<String>> entry : filePaths.entrySet())
+            copy.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        this.filePaths = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @param buildSystem The build system to check.
+     * @return True if the rule of the build system matched.
+     */
+    public boolean matches(BuildSystem buildSystem) {
+        return filePaths.containsKey(buildSystem);
+    }
+
+    /**
+     * @return All detected build systems.
+     */
+    public Set<BuildSystem> getBuildSystems() {
+        return filePaths.keySet();
+    }
+
+    /**
+     * @param buildSystem The build system to get the build files of.
+     * @return The paths of the matched build files, or an empty list if the build system wasn't detected.
+     */
+    public List<String> getFilePaths(BuildSystem buildSystem) {
+        List<String> paths = filePaths.get(buildSystem);
+        return paths == null ? Collections.emptyList() : paths;
+    }
+
+    @Override
+    public String toString() {
+        return filePaths.toString();
+    }
+}
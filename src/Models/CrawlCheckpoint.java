@@ -0,0 +1,143 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Crawl frontier model. Stored at every page boundary, so that a restarted Crawler resumes where it stopped.
+ */
+public class CrawlCheckpoint {
+
+    // SET by the maxStars decrement loop
+    private int maxStars;
+    private int queryMaxStars;
+    private int page;
+    private boolean foundRepoInLastQuery;
+    private boolean notFirstQuery;
+
+    // SET by the search planner
+    private List<SearchWindow> remainingWindows = new ArrayList<>();
+
+    // Counters of the crawl so far
+    private int checkedRepos;
+    private int matchingRepos;
+    private int counterSearchRequests;
+    private int counterRepositoryRequests;
+    private int counterContentRequests;
+    private int counterCommitRequests;
+    private long lastWrittenId;
+    // The day the crawl was started on, the next incremental crawl queries the repositories pushed since.
+    private String crawlStartDate;
+
+    public int getMaxStars() {
+        return maxStars;
+    }
+
+    public void setMaxStars(int maxStars) {
+        this.maxStars = maxStars;
+    }
+
+    public int getQueryMaxStars() {
+        return queryMaxStars;
+    }
+
+    public void setQueryMaxStars(int queryMaxStars) {
+        this.queryMaxStars = queryMaxStars;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public boolean isFoundRepoInLastQuery() {
+        return foundRepoInLastQuery;
+    }
+
+    public void setFoundRepoInLastQuery(boolean foundRepoInLastQuery) {
+        this.foundRepoInLastQuery = foundRepoInLastQuery;
+    }
+
+    public boolean isNotFirstQuery() {
+        return notFirstQuery;
+    }
+
+    public void setNotFirstQuery(boolean notFirstQuery) {
+        this.notFirstQuery = notFirstQuery;
+    }
+
+    public List<SearchWindow> getRemainingWindows() {
+        return remainingWindows;
+    }
+
+    public void setRemainingWindows(List<SearchWindow> remainingWindows) {
+        this.remainingWindows = remainingWindows;
+    }
+
+    public int getCheckedRepos() {
+        return checkedRepos;
+    }
+
+    public void setCheckedRepos(int checkedRepos) {
+        this.checkedRepos = checkedRepos;
+    }
+
+    public int getMatchingRepos() {
+        return matchingRepos;
+    }
+
+    public void setMatchingRepos(int matchingRepos) {
+        this.matchingRepos = matchingRepos;
+    }
+
+    public int getCounterSearchRequests() {
+        return counterSearchRequests;
+    }
+
+    public void setCounterSearchRequests(int counterSearchRequests) {
+        this.counterSearchRequests = counterSearchRequests;
+    }
+
+    public int getCounterRepositoryRequests() {
+        return counterRepositoryRequests;
+    }
+
+    public void setCounterRepositoryRequests(int counterRepositoryRequests) {
+        this.counterRepositoryRequests = counterRepositoryRequests;
+    }
+
+    public int getCounterContentRequests() {
+        return counterContentRequests;
+    }
+
+    public void setCounterContentRequests(int counterContentRequests) {
+        this.counterContentRequests = counterContentRequests;
+    }
+
+    public int getCounterCommitRequests() {
+        return counterCommitRequests;
+    }
+
+    public void setCounterCommitRequests(int counterCommitRequests) {
+        this.counterCommitRequests = counterCommitRequests;
+    }
+
+    public long getLastWrittenId() {
+        return lastWrittenId;
+    }
+
+    public void setLastWrittenId(long lastWrittenId) {
+        this.lastWrittenId = lastWrittenId;
+    }
+
+    public String getCrawlStartDate() {
+        return crawlStartDate;
+    }
+
+    public void setCrawlStartDate(String crawlStartDate) {
+        this.crawlStartDate = crawlStartDate;
+    }
+}
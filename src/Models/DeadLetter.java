@@ -0,0 +1,86 @@
+package Models;
+
+/**
+ * A repository that couldn't be checked, even after all retries. Stored in the dead letter file, so that it can be
+ * checked again later on (see Config.REDRIVEDEADLETTERS).
+ */
+public class DeadLetter {
+    private String owner;
+    private String name;
+    // The language the repository was searched with. Null for dead letters of older crawls.
+    private String language;
+    private RequestType requestType;
+    private RequestFailure failure;
+    private String message;
+    private String failedAt;
+
+    public DeadLetter() {
+    }
+
+    public DeadLetter(String owner, String name, String language, RequestType requestType, RequestFailure failure,
+                      String message, String failedAt) {
+        this.owner = owner;
+        this.name = name;
+        this.language = language;
+        this.requestType = requestType;
+        this.failure = failure;
+        this.message = message;
+        this.failedAt = failedAt;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public RequestType getRequestType() {
+        return requestType;
+    }
+
+    public void setRequestType(RequestType requestType) {
+        this.requestType = requestType;
+    }
+
+    public RequestFailure getFailure() {
+        return failure;
+    }
+
+    public void setFailure(RequestFailure failure) {
+        this.failure = failure;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(String failedAt) {
+        this.failedAt = failedAt;
+    }
+}
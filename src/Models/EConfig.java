@@ -14,6 +14,37 @@ public enum EConfig {
     BUILDSYSTEM("buildSystem"),
     FILEPATH("filePath"),
     CUSTOMFILE("customFile"),
+    FLUSHEVERYRECORDS("flushEveryRecords"),
+    FLUSHINTERVALMILLIS("flushIntervalMillis"),
+    CONCURRENTREQUESTS("concurrentRequests"),
+    FETCHREPOSITORYONMATCHONLY("fetchRepositoryOnMatchOnly"),
+    APIURL("apiUrl"),
+    SEARCHPLANNER("searchPlanner"),
+    SEENBLOOMFILTER("seenBloomFilter"),
+    HTTPCACHEMEGABYTES("httpCacheMegabytes"),
+    ENRICHMENTBACKEND("enrichmentBackend"),
+    GRAPHQLBATCHSIZE("graphqlBatchSize"),
+    TREEDETECTION("treeDetection"),
+    DEEPBUILDFILES("deepBuildFiles"),
+    METRICSPORT("metricsPort"),
+    HTTPARCHIVE("httpArchive"),
+    HTTPARCHIVEFILE("httpArchiveFile"),
+    REPLAYRATELIMITS("replayRateLimits"),
+    OUTPUTFORMAT("outputFormat"),
+    SHARDMAXRECORDS("shardMaxRecords"),
+    SHARDMAXMEGABYTES("shardMaxMegabytes"),
+    HTTPTRANSPORT("httpTransport"),
+    SEARCHPREFETCHPAGES("searchPrefetchPages"),
+    RETRYMAXATTEMPTS("retryMaxAttempts"),
+    RETRYBASEDELAYMILLIS("retryBaseDelayMillis"),
+    CIRCUITBREAKERTHRESHOLD("circuitBreakerThreshold"),
+    CIRCUITBREAKEROPENMILLIS("circuitBreakerOpenMillis"),
+    HEDGEAFTERMILLIS("hedgeAfterMillis"),
+    REDRIVEDEADLETTERS("redriveDeadLetters"),
+    INCREMENTALCRAWL("incrementalCrawl"),
+    LEASEDIR("leaseDir"),
+    NODEID("nodeId"),
+    LEASEMILLIS("leaseMillis"),
     UNKNOWN("unknown");
 
 
@@ -44,6 +75,68 @@ public enum EConfig {
                 return EConfig.FILEPATH;
             case "customFile":
                 return EConfig.CUSTOMFILE;
+            case "flushEveryRecords":
+                return EConfig.FLUSHEVERYRECORDS;
+            case "flushIntervalMillis":
+                return EConfig.FLUSHINTERVALMILLIS;
+            case "concurrentRequests":
+                return EConfig.CONCURRENTREQUESTS;
+            case "fetchRepositoryOnMatchOnly":
+                return EConfig.FETCHREPOSITORYONMATCHONLY;
+            case "apiUrl":
+                return EConfig.APIURL;
+            case "searchPlanner":
+                return EConfig.SEARCHPLANNER;
+            case "seenBloomFilter":
+                return EConfig.SEENBLOOMFILTER;
+            case "httpCacheMegabytes":
+                return EConfig.HTTPCACHEMEGABYTES;
+            case "enrichmentBackend":
+                return EConfig.ENRICHMENTBACKEND;
+            case "graphqlBatchSize":
+                return EConfig.GRAPHQLBATCHSIZE;
+            case "treeDetection":
+                return EConfig.TREEDETECTION;
+            case "deepBuildFiles":
+                return EConfig.DEEPBUILDFILES;
+            case "metricsPort":
+                return EConfig.METRICSPORT;
+            case "httpArchive":
+                return EConfig.HTTPARCHIVE;
+            case "httpArchiveFile":
+                return EConfig.HTTPARCHIVEFILE;
+            case "replayRateLimits":
+                return EConfig.REPLAYRATELIMITS;
+            case "outputFormat":
+                return EConfig.OUTPUTFORMAT;
+            case "shardMaxRecords":
+                return EConfig.SHARDMAXRECORDS;
+            case "shardMaxMegabytes":
+                return EConfig.SHARDMAXMEGABYTES;
+            case "httpTransport":
+                return EConfig.HTTPTRANSPORT;
+            case "searchPrefetchPages":
+                return EConfig.SEARCHPREFETCHPAGES;
+            case "retryMaxAttempts":
+                return EConfig.RETRYMAXATTEMPTS;
+            case "retryBaseDelayMillis":
+                return EConfig.RETRYBASEDELAYMILLIS;
+            case "circuitBreakerThreshold":
+                return EConfig.CIRCUITBREAKERTHRESHOLD;
+            case "circuitBreakerOpenMillis":
+                return EConfig.CIRCUITBREAKEROPENMILLIS;
+            case "hedgeAfterMillis":
+                return EConfig.HEDGEAFTERMILLIS;
+            case "redriveDeadLetters":
+                return EConfig.REDRIVEDEADLETTERS;
+            case "incrementalCrawl":
+                return EConfig.INCREMENTALCRAWL;
+            case "leaseDir":
+                return EConfig.LEASEDIR;
+            case "nodeId":
+                return EConfig.NODEID;
+            case "leaseMillis":
+                return EConfig.LEASEMILLIS;
             default:
                 return EConfig.UNKNOWN;
         }
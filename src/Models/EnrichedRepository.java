@@ -0,0 +1,39 @@
+package Models;
+
+import org.eclipse.egit.github.core.Repository;
+
+import java.util.List;
+
+/**
+ * A repository together with everything required to check and store it, collected by a single GraphQL query.
+ */
+public class EnrichedRepository {
+
+    private Repository repository;
+    private List<String> rootFileNames;
+    private String latestCommitId;
+
+    public EnrichedRepository(Repository repository, List<String> rootFileNames, String latestCommitId) {
+        this.repository = repository;
+        this.rootFileNames = rootFileNames;
+        this.latestCommitId = latestCommitId;
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * @return The names of all files and folders within the root directory of the default branch.
+     */
+    public List<String> getRootFileNames() {
+        return rootFileNames;
+    }
+
+    /**
+     * @return The sha of the head commit of the default branch or an empty String for an empty repository.
+     */
+    public String getLatestCommitId() {
+        return latestCommitId;
+    }
+}
@@ -0,0 +1,40 @@
+package Models;
+
+/**
+ * Backends that collect the root contents, metadata and latest commit of the found repositories.
+ *
+ * REST:
+ * Separate requests to the REST API for the root contents, the repository and the latest commit of every repository.
+ *
+ * GRAPHQL:
+ * A single aliased GraphQL query for a whole batch of repositories (see Config.GRAPHQLBATCHSIZE).
+ * Requires an OAuth token.
+ */
+public enum EnrichmentBackend {
+    REST("rest"),
+    GRAPHQL("graphql"),
+    UNKNOWN("unknown");
+
+    private String name;
+
+    EnrichmentBackend(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public static EnrichmentBackend getEnrichmentBackend(String name) {
+        switch (name) {
+            case "":
+            case "rest":
+                return EnrichmentBackend.REST;
+            case "graphql":
+                return EnrichmentBackend.GRAPHQL;
+            default:
+                return EnrichmentBackend.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package Models;
+
+import org.eclipse.egit.github.core.Repository;
+
+/**
+ * Repository model that also reads the "default_branch" field of the current API.
+ * The egit Repository model only knows the deprecated "master_branch" field, which the API doesn't return anymore.
+ */
+public class GitHubRepository extends Repository {
+
+    private static final long serialVersionUID = 1L;
+
+    private String defaultBranch;
+
+    public String getDefaultBranch() {
+        return defaultBranch;
+    }
+
+    public GitHubRepository setDefaultBranch(String defaultBranch) {
+        this.defaultBranch = defaultBranch;
+        return this;
+    }
+
+    /**
+     * @return The default branch of the repository.
+     */
+    @Override
+    public String getMasterBranch() {
+        String masterBranch = super.getMasterBranch();
+        return masterBranch != null ? masterBranch : defaultBranch;
+    }
+}
@@ -0,0 +1,24 @@
+package Models;
+
+import org.eclipse.egit.github.core.Tree;
+
+/**
+ * Tree model that also reads the "truncated" field of the git trees API.
+ * A recursive tree is truncated if it exceeds the limits of a single response, the egit Tree model doesn't tell.
+ * SEE: https://developer.github.com/v3/git/trees/#get-a-tree-recursively
+ */
+public class GitTree extends Tree {
+
+    private static final long serialVersionUID = 1L;
+
+    private boolean truncated;
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public GitTree setTruncated(boolean truncated) {
+        this.truncated = truncated;
+        return this;
+    }
+}
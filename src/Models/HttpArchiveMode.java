@@ -0,0 +1,45 @@
+package Models;
+
+/**
+ * Modes of the HttpArchive.
+ *
+ * OFF:
+ * Requests are sent to the API as usual.
+ *
+ * RECORD:
+ * Requests are sent to the API and every response is written to the archive.
+ *
+ * REPLAY:
+ * No request leaves the machine, every response is served from the archive file.
+ */
+public enum HttpArchiveMode {
+    OFF("off"),
+    RECORD("record"),
+    REPLAY("replay"),
+    UNKNOWN("unknown");
+
+    private String name;
+
+    HttpArchiveMode(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public static HttpArchiveMode getHttpArchiveMode(String name) {
+        switch (name) {
+            case "":
+            case "off":
+                return HttpArchiveMode.OFF;
+            case "record":
+                return HttpArchiveMode.RECORD;
+            case "replay":
+                return HttpArchiveMode.REPLAY;
+            default:
+                return HttpArchiveMode.UNKNOWN;
+        }
+    }
+}
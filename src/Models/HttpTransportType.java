@@ -0,0 +1,41 @@
+package Models;
+
+/**
+ * Transports the API requests are sent with (see utils.HttpTransport).
+ *
+ * HTTP2:
+ * java.net.http client. Requests are multiplexed over a few persistent HTTP/2 connections (HTTP/1.1 keep-alive if the
+ * server doesn't speak HTTP/2) and responses are gzip compressed. Asynchronous requests don't hold a thread while they
+ * are in flight.
+ *
+ * URLCONNECTION:
+ * The blocking HttpURLConnection of the JDK, one thread per request in flight.
+ */
+public enum HttpTransportType {
+    HTTP2("http2"),
+    URLCONNECTION("urlconnection"),
+    UNKNOWN("unknown");
+
+    private String name;
+
+    HttpTransportType(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public static HttpTransportType getHttpTransportType(String name) {
+        switch (name) {
+            case "":
+            case "http2":
+                return HttpTransportType.HTTP2;
+            case "urlconnection":
+                return HttpTransportType.URLCONNECTION;
+            default:
+                return HttpTransportType.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package Models;
+
+/**
+ * Formats the matching repositories are written in.
+ *
+ * JSON:
+ * The repositories.json file, a json array of RMetaData objects (see utils.JsonWriter).
+ *
+ * COLUMNAR:
+ * The repositories.columns folder with one file per RMetaData field (see utils.ColumnarWriter).
+ *
+ * BOTH:
+ * Both of the above.
+ */
+public enum OutputFormat {
+    JSON("json"),
+    COLUMNAR("columnar"),
+    BOTH("both"),
+    UNKNOWN("unknown");
+
+    private String name;
+
+    OutputFormat(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public static OutputFormat getOutputFormat(String name) {
+        switch (name) {
+            case "":
+            case "json":
+                return OutputFormat.JSON;
+            case "columnar":
+                return OutputFormat.COLUMNAR;
+            case "both":
+                return OutputFormat.BOTH;
+            default:
+                return OutputFormat.UNKNOWN;
+        }
+    }
+}
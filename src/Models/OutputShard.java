@@ -0,0 +1,91 @@
+package Models;
+
+/**
+ * Entry of a single shard file within the ShardManifest.
+ */
+public class OutputShard {
+
+    private int number;
+    private String fileName;
+    // Position of the first repository of the shard within the whole output.
+    private long firstRecord;
+    private long records;
+    private long minId;
+    private long maxId;
+    private long sizeBytes;
+    // Hex encoded SHA-256 checksum of the shard file. Null while the shard is still written.
+    private String sha256;
+    private boolean finished;
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getFirstRecord() {
+        return firstRecord;
+    }
+
+    public void setFirstRecord(long firstRecord) {
+        this.firstRecord = firstRecord;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public void setMinId(long minId) {
+        this.minId = minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public void setMaxId(long maxId) {
+        this.maxId = maxId;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+}
@@ -0,0 +1,100 @@
+package Models;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Columns of the columnar output of RMetaData (see utils.ColumnarWriter).
+ *
+ * Every column is stored in its own file, so a scan over a single column doesn't decode any other field.
+ */
+public enum RepositoryColumn {
+    ID("id", Type.LONG, RMetaData::getId, (r, v) -> r.setId((Long) v)),
+    NAME("name", Type.STRING, RMetaData::getName, (r, v) -> r.setName((String) v)),
+    OWNER("owner", Type.STRING, RMetaData::getOwner, (r, v) -> r.setOwner((String) v)),
+    OWNERTYPE("ownerType", Type.DICTIONARY, RMetaData::getOwnerType, (r, v) -> r.setOwnerType((String) v)),
+    DESCRIPTION("description", Type.STRING, RMetaData::getDescription, (r, v) -> r.setDescription((String) v)),
+    LANGUAGE("language", Type.DICTIONARY, RMetaData::getLanguage, (r, v) -> r.setLanguage((String) v)),
+    HASDOWNLOADS("hasDownloads", Type.BOOLEAN, RMetaData::isHasDownloads, (r, v) -> r.setHasDownloads((Boolean) v)),
+    SIZE("size", Type.INT, RMetaData::getSize, (r, v) -> r.setSize((Integer) v)),
+    CREATEDAT("createdAt", Type.DATE, RMetaData::getCreatedAt, (r, v) -> r.setCreatedAt((Date) v)),
+    PUSHEDAT("pushedAt", Type.DATE, RMetaData::getPushedAt, (r, v) -> r.setPushedAt((Date) v)),
+    DEFAULTBRANCH("defaultBranch", Type.DICTIONARY, RMetaData::getDefaultBranch, (r, v) -> r.setDefaultBranch((String) v)),
+    LATESTCOMMITID("latestCommitId", Type.STRING, RMetaData::getLatestCommitId, (r, v) -> r.setLatestCommitId((String) v)),
+    ISPRIVATE("isPrivate", Type.BOOLEAN, RMetaData::isPrivate, (r, v) -> r.setPrivate((Boolean) v)),
+    FORKSCOUNT("forksCount", Type.INT, RMetaData::getForksCount, (r, v) -> r.setForksCount((Integer) v)),
+    OPENISSUESCOUNT("openIssuesCount", Type.INT, RMetaData::getOpenIssuesCount, (r, v) -> r.setOpenIssuesCount((Integer) v)),
+    STARGAZERSCOUNT("stargazersCount", Type.INT, RMetaData::getStargazersCount, (r, v) -> r.setStargazersCount((Integer) v)),
+    HTMLURL("htmlUrl", Type.STRING, RMetaData::getHtmlUrl, (r, v) -> r.setHtmlUrl((String) v)),
+    CLONEURL("cloneUrl", Type.STRING, RMetaData::getCloneUrl, (r, v) -> r.setCloneUrl((String) v)),
+    BUILDSYSTEM("buildSystem", Type.DICTIONARY, RMetaData::getBuildSystem, (r, v) -> r.setBuildSystem((String) v)),
+    BUILDFILEPATH("buildFilePath", Type.STRING_LIST, RMetaData::getBuildFilePath, (r, v) -> r.setBuildFilePath(castList(v))),
+    BUILDSTATUS("buildStatus", Type.DICTIONARY, RMetaData::getBuildStatus, (r, v) -> r.setBuildStatus((String) v)),
+    EXECUTABLES("executables", Type.INT, RMetaData::getExecutables, (r, v) -> r.setExecutables((Integer) v)),
+    LIBRARIES("libraries", Type.INT, RMetaData::getLibraries, (r, v) -> r.setLibraries((Integer) v)),
+    ARCHIVES("archives", Type.INT, RMetaData::getArchives, (r, v) -> r.setArchives((Integer) v)),
+    ERRORMESSAGE("errorMessage", Type.STRING_LIST, RMetaData::getErrorMessage, (r, v) -> r.setErrorMessage(castList(v))),
+    PACKAGEDEPENDENCIES("packageDependencies", Type.STRING_LIST, RMetaData::getPackageDependencies, (r, v) -> r.setPackageDependencies(castList(v)));
+
+    /**
+     * Encodings of the column values.
+     *
+     * LONG, INT, BOOLEAN: Fixed width primitive values (8, 4 and 1 bytes).
+     * DATE: Milliseconds since epoch (8 bytes), Long.MIN_VALUE for null.
+     * DICTIONARY: Index of the string within the dictionary of the column (4 bytes), -1 for null. For strings with
+     *             only a few distinct values, i.e. the language or the build system.
+     * STRING: Length of the UTF-8 bytes (4 bytes), followed by the bytes. -1 for null.
+     * STRING_LIST: Number of strings (4 bytes), followed by the strings encoded like STRING. -1 for null.
+     */
+    public enum Type {
+        LONG,
+        INT,
+        BOOLEAN,
+        DATE,
+        DICTIONARY,
+        STRING,
+        STRING_LIST
+    }
+
+    private String name;
+    private Type type;
+    private Function<RMetaData, Object> getter;
+    private BiConsumer<RMetaData, Object> setter;
+
+    RepositoryColumn(String name, Type type, Function<RMetaData, Object> getter, BiConsumer<RMetaData, Object> setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The value of this column of the repository, boxed.
+     */
+    public Object get(RMetaData repository) {
+        return getter.apply(repository);
+    }
+
+    /**
+     * Sets the value of this column of the repository.
+     */
+    public void set(RMetaData repository, Object value) {
+        setter.accept(repository, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> castList(Object value) {
+        return (List<String>) value;
+    }
+}
@@ -0,0 +1,32 @@
+package Models;
+
+/**
+ * Classes of failed requests, each handled differently by the RequestExecutor.
+ *
+ * TRANSIENT:
+ * Server errors (5xx), timeouts, reset connections and broken responses. Retried after a jittered backoff and counted
+ * by the circuit breaker of the endpoint.
+ *
+ * RATE_LIMITED:
+ * 429 and 403 responses of the primary or secondary rate limit. The RequestScheduler already waits for the reset of the
+ * limit, so the request is retried without any further backoff.
+ *
+ * NOT_FOUND:
+ * The resource doesn't exist (anymore), i.e. a renamed, deleted, empty or blocked repository. Never retried.
+ *
+ * FATAL:
+ * Any other client error, i.e. a rejected token or an invalid query. Never retried.
+ */
+public enum RequestFailure {
+    TRANSIENT,
+    RATE_LIMITED,
+    NOT_FOUND,
+    FATAL;
+
+    /**
+     * @return True if the request is sent again.
+     */
+    public boolean isRetried() {
+        return this == TRANSIENT || this == RATE_LIMITED;
+    }
+}
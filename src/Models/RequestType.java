@@ -0,0 +1,35 @@
+package Models;
+
+/**
+ * Types of requests sent by the Crawler.
+ *
+ * Each type belongs to one of the rate limit resources of the GitHub API ("search", "core" or "graphql") and to a
+ * priority class.
+ * Requests of a higher priority class (lower number) are admitted first when they compete for the same resource:
+ * commit requests finish an already matching repository, repository requests complete a detected match and content
+ * requests start checking a new repository.
+ * SEE: https://developer.github.com/v3/#rate-limiting
+ */
+public enum RequestType {
+    SEARCH("search", 0),
+    COMMITS("core", 0),
+    REPOSITORY("core", 1),
+    CONTENTS("core", 2),
+    GRAPHQL("graphql", 0);
+
+    private String resource;
+    private int priority;
+
+    RequestType(String resource, int priority) {
+        this.resource = resource;
+        this.priority = priority;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+}
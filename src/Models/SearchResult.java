@@ -0,0 +1,57 @@
+package Models;
+
+import com.google.gson.JsonObject;
+import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.SearchRepository;
+import org.eclipse.egit.github.core.client.GsonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response model of the search API (GET /search/repositories).
+ * SEE: https://developer.github.com/v3/search/#search-repositories
+ */
+public class SearchResult {
+
+    private int totalCount;
+    private boolean incompleteResults;
+    private List<Repository> items;
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isIncompleteResults() {
+        return incompleteResults;
+    }
+
+    public List<Repository> getItems() {
+        return items == null ? new ArrayList<>() : items;
+    }
+
+    /**
+     * Converts the items into the SearchRepository model used by the Crawler to check repositories.
+     * @return The items as SearchRepository objects.
+     */
+    public List<SearchRepository> toSearchRepositories() {
+        List<SearchRepository> searchRepositories = new ArrayList<>();
+        for (Repository item : getItems()) {
+            JsonObject searchRepository = new JsonObject();
+            searchRepository.addProperty("owner", item.getOwner().getLogin());
+            searchRepository.addProperty("name", item.getName());
+            searchRepository.addProperty("description", item.getDescription());
+            searchRepository.addProperty("language", item.getLanguage());
+            searchRepository.addProperty("watchers", item.getWatchers());
+            searchRepository.addProperty("forks", item.getForks());
+            searchRepository.addProperty("open_issues", item.getOpenIssues());
+            searchRepository.addProperty("size", item.getSize());
+            searchRepository.addProperty("fork", item.isFork());
+            searchRepository.addProperty("has_downloads", item.isHasDownloads());
+            // Compared with the stored repositories by the incremental crawl.
+            searchRepository.add("pushed_at", GsonUtils.getGson().toJsonTree(item.getPushedAt()));
+            searchRepositories.add(GsonUtils.fromJson(searchRepository.toString(), SearchRepository.class));
+        }
+        return searchRepositories;
+    }
+}
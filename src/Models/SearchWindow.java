@@ -0,0 +1,112 @@
+package Models;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A disjoint part of the search space, bound by a range of stars and a range of creation dates.
+ * The SearchPlanner splits the search space into windows with at most 1000 results each,
+ * which is the maximum number of results the search API returns for a single query.
+ */
+public class SearchWindow {
+
+    private final int minStars;
+    private final int maxStars;
+    // ISO dates (yyyy-MM-dd), so that the window can be stored within the crawl checkpoint.
+    private final String createdFrom;
+    private final String createdTo;
+    private int totalCount;
+    // The language the window is searched with. Null for windows of checkpoints of older crawls.
+    private String language;
+    // The next result page to crawl. Stored within the crawl checkpoint.
+    private int nextPage = 1;
+
+    public SearchWindow(int minStars, int maxStars, LocalDate createdFrom, LocalDate createdTo) {
+        this.minStars = minStars;
+        this.maxStars = maxStars;
+        this.createdFrom = createdFrom.toString();
+        this.createdTo = createdTo.toString();
+    }
+
+    /**
+     * @param baseQuery The search qualifiers shared by all windows, i.e. language and pushed date.
+     * @return The search qualifiers of this window.
+     */
+    public Map<String, String> toQualifiers(Map<String, String> baseQuery) {
+        Map<String, String> qualifiers = new HashMap<>(baseQuery);
+        qualifiers.put("stars", minStars == maxStars ? String.valueOf(minStars) : minStars + ".." + maxStars);
+        qualifiers.put("created", createdFrom + ".." + createdTo);
+        return qualifiers;
+    }
+
+    public boolean canSplitStars() {
+        return minStars < maxStars;
+    }
+
+    public boolean canSplitCreated() {
+        return LocalDate.parse(createdFrom).isBefore(LocalDate.parse(createdTo));
+    }
+
+    /**
+     * @return The lower and the upper half of the stars range.
+     */
+    public SearchWindow[] splitStars() {
+        int middle = minStars + (maxStars - minStars) / 2;
+        LocalDate from = LocalDate.parse(createdFrom);
+        LocalDate to = LocalDate.parse(createdTo);
+        return new SearchWindow[] {
+                new SearchWindow(middle + 1, maxStars, from, to),
+                new SearchWindow(minStars, middle, from, to)};
+    }
+
+    /**
+     * @return The earlier and the later half of the creation date range.
+     */
+    public SearchWindow[] splitCreated() {
+        LocalDate from = LocalDate.parse(createdFrom);
+        LocalDate to = LocalDate.parse(createdTo);
+        LocalDate middle = from.plusDays(ChronoUnit.DAYS.between(from, to) / 2);
+        return new SearchWindow[] {
+                new SearchWindow(minStars, maxStars, from, middle),
+                new SearchWindow(minStars, maxStars, middle.plusDays(1), to)};
+    }
+
+    public int getMinStars() {
+        return minStars;
+    }
+
+    public int getMaxStars() {
+        return maxStars;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public int getNextPage() {
+        return nextPage;
+    }
+
+    public void setNextPage(int nextPage) {
+        this.nextPage = nextPage;
+    }
+
+    @Override
+    public String toString() {
+        return (language != null ? "language:" + language + " " : "") + "stars:" + minStars + ".." + maxStars + " created:" + createdFrom + ".." + createdTo + " (" + totalCount + " repositories)";
+    }
+}
@@ -0,0 +1,21 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifest of the sharded json output (see utils.ShardedJsonWriter). Lists all shards in the order they were written.
+ * Only the last shard may be unfinished, all others are immutable.
+ */
+public class ShardManifest {
+
+    private List<OutputShard> shards = new ArrayList<>();
+
+    public List<OutputShard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<OutputShard> shards) {
+        this.shards = shards;
+    }
+}
@@ -0,0 +1,67 @@
+package Models;
+
+/**
+ * The lease of a crawler node on a search window of a distributed crawl, stored within the lease directory
+ * (see LeaseDirectory). The node renews the lease while it crawls the window, a lease that wasn't renewed before it
+ * expired is taken over by another node, which resumes the window at the stored next page.
+ */
+public class WindowLease {
+
+    private int windowId;
+    private String nodeId;
+    // Milliseconds since the epoch.
+    private long expiresAt;
+    // Updated by the crawling thread, stored by the heartbeat.
+    private volatile int nextPage;
+    // The planned window, not stored within the lease file.
+    private transient SearchWindow window;
+    // Set once another node took over the window.
+    private transient volatile boolean lost;
+
+    public WindowLease(int windowId, String nodeId, long expiresAt, int nextPage) {
+        this.windowId = windowId;
+        this.nodeId = nodeId;
+        this.expiresAt = expiresAt;
+        this.nextPage = nextPage;
+    }
+
+    public int getWindowId() {
+        return windowId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public int getNextPage() {
+        return nextPage;
+    }
+
+    public void setNextPage(int nextPage) {
+        this.nextPage = nextPage;
+    }
+
+    public SearchWindow getWindow() {
+        return window;
+    }
+
+    public void setWindow(SearchWindow window) {
+        this.window = window;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    public void setLost(boolean lost) {
+        this.lost = lost;
+    }
+}
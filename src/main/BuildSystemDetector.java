@@ -0,0 +1,406 @@
+package main;
+
+import Models.BuildSystem;
+import Models.BuildSystemDetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Rule engine that detects all build systems of a repository in a single pass over its file listing.
+ *
+ * The rules of all build systems (see BuildSystem.getRule()) and the custom rule are compiled once.
+ * A rule is a boolean expression of file patterns, which are matched against the path of a file within the repository:
+ *   CMakeLists.txt                               the file exists in the root directory
+ *   (configure.ac | configure.in) & Makefile.am  "|" is or, "&" is and, parentheses group
+ *   !setup.py                                    the file doesn't exist
+ *   *.pro                                        glob, "*" and "?" match within a file or folder name
+ *   src/CMakeLists.txt                           the file exists in a specific folder
+ *   **&#47;CMakeLists.txt                            "**&#47;" matches any number of folders, i.e. the file exists anywhere
+ *   ~makefile                                    case-insensitive
+ *
+ * The file patterns of all rules are hashed, so every listed file costs one lookup for all build systems together
+ * (plus one match per glob pattern). The detector is immutable and can be shared by all threads.
+ */
+public class BuildSystemDetector {
+
+    /**
+     * Node of a compiled rule expression, evaluated on the matched file patterns.
+     */
+    private interface Rule {
+        boolean evaluate(boolean[] matchedPatterns);
+
+        void collectPatterns(Set<Integer> patterns);
+    }
+
+    private static class PatternRule implements Rule {
+        private final int pattern;
+
+        PatternRule(int pattern) {
+            this.pattern = pattern;
+        }
+
+        public boolean evaluate(boolean[] matchedPatterns) {
+            return matchedPatterns[pattern];
+        }
+
+        public void collectPatterns(Set<Integer> patterns) {
+            patterns.add(pattern);
+        }
+    }
+
+    private static class NotRule implements Rule {
+        private final Rule rule;
+
+        NotRule(Rule rule) {
+            this.rule = rule;
+        }
+
+        public boolean evaluate(boolean[] matchedPatterns) {
+            return !rule.evaluate(matchedPatterns);
+        }
+
+        public void collectPatterns(Set<Integer> patterns) {
+            // The files of a negated pattern never belong to a match.
+        }
+    }
+
+    private static class AndRule implements Rule {
+        private final Rule left;
+        private final Rule right;
+
+        AndRule(Rule left, Rule right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public boolean evaluate(boolean[] matchedPatterns) {
+            return left.evaluate(matchedPatterns) && right.evaluate(matchedPatterns);
+        }
+
+        public void collectPatterns(Set<Integer> patterns) {
+            left.collectPatterns(patterns);
+            right.collectPatterns(patterns);
+        }
+    }
+
+    private static class OrRule implements Rule {
+        private final Rule left;
+        private final Rule right;
+
+        OrRule(Rule left, Rule right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        public boolean evaluate(boolean[] matchedPatterns) {
+            return left.evaluate(matchedPatterns) || right.evaluate(matchedPatterns);
+        }
+
+        public void collectPatterns(Set<Integer> patterns) {
+            left.collectPatterns(patterns);
+            right.collectPatterns(patterns);
+        }
+    }
+
+    // Pattern ids by file name (or path) for exact, case-sensitive patterns.
+    private final Map<String, int[]> exactPatterns = new HashMap<>();
+    // Pattern ids by lower case file name (or path) for case-insensitive patterns.
+    private final Map<String, int[]> caseInsensitivePatterns = new HashMap<>();
+    // Pattern ids by file name of the "**/" patterns, which match the file within any folder.
+    private final Map<String, int[]> deepExactPatterns = new HashMap<>();
+    private final Map<String, int[]> deepCaseInsensitivePatterns = new HashMap<>();
+    // Lengths of the patterns of each map. Only paths of these lengths are looked up at all,
+    // which sorts out most files of a listing without hashing or lower casing them.
+    private final BitSet exactLengths = new BitSet();
+    private final BitSet caseInsensitiveLengths = new BitSet();
+    private final BitSet deepExactLengths = new BitSet();
+    private final BitSet deepCaseInsensitiveLengths = new BitSet();
+    private final List<Pattern> globs = new ArrayList<>();
+    private final List<Integer> globPatternIds = new ArrayList<>();
+    // Top level folders of the patterns that match files within specific folders.
+    private final Set<String> patternDirectories = new LinkedHashSet<>();
+    // True if any pattern matches files within arbitrary folders.
+    private boolean deep;
+    private final Map<String, Integer> patternIds = new HashMap<>();
+    private final EnumMap<BuildSystem, Rule> rules = new EnumMap<>(BuildSystem.class);
+    private final EnumMap<BuildSystem, int[]> rulePatterns = new EnumMap<>(BuildSystem.class);
+
+    /**
+     * Compiles the rules of all build systems.
+     * @param customRule The rule of the CUSTOM build system, i.e. the customFile property. Null or empty if not set.
+     * @throws IllegalArgumentException If a rule is not a valid expression.
+     */
+    public BuildSystemDetector(String customRule) {
+        this(customRule, false);
+    }
+
+    /**
+     * Compiles the rules of all build systems.
+     * @param customRule The rule of the CUSTOM build system, i.e. the customFile property. Null or empty if not set.
+     * @param deepBuiltInRules True to match the build files of the built-in build systems within any folder
+     *                         (see BuildSystem.getDeepRule()), which requires the whole tree of a repository.
+     * @throws IllegalArgumentException If a rule is not a valid expression.
+     */
+    public BuildSystemDetector(String customRule, boolean deepBuiltInRules) {
+        for (BuildSystem buildSystem : BuildSystem.values()) {
+            String rule = buildSystem == BuildSystem.CUSTOM ? customRule
+                    : deepBuiltInRules ? buildSystem.getDeepRule() : buildSystem.getRule();
+            if (rule == null || rule.trim().isEmpty())
+                continue;
+            Rule compiled = new Parser(rule).parse();
+            rules.put(buildSystem, compiled);
+            Set<Integer> patterns = new LinkedHashSet<>();
+            compiled.collectPatterns(patterns);
+            rulePatterns.put(buildSystem, patterns.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Detects all build systems in a single pass over the file listing.
+     * @param paths The paths of the files of the repository relative to its root directory, i.e. just the names of
+     *              the files if only the root directory is listed.
+     * @return The detected build systems with the paths of their matched build files.
+     */
+    public BuildSystemDetection detect(Collection<String> paths) {
+        int patternCount = patternIds.size();
+        boolean[] matched = new boolean[patternCount];
+        List<List<String>> matchedPaths = new ArrayList<>(Collections.nCopies(patternCount, null));
+
+        for (String path : paths) {
+            lookup(exactPatterns, exactLengths, path, path, matched, matchedPaths);
+            lookupCaseInsensitive(caseInsensitivePatterns, caseInsensitiveLengths, path, path, matched, matchedPaths);
+            if (!deepExactPatterns.isEmpty() || !deepCaseInsensitivePatterns.isEmpty()) {
+                int nameStart = path.lastIndexOf('/') + 1;
+                String name = nameStart == 0 ? path : path.substring(nameStart);
+                lookup(deepExactPatterns, deepExactLengths, name, path, matched, matchedPaths);
+                lookupCaseInsensitive(deepCaseInsensitivePatterns, deepCaseInsensitiveLengths, name, path, matched, matchedPaths);
+            }
+            for (int i = 0; i < globs.size(); i++) {
+                if (globs.get(i).matcher(path).matches())
+                    mark(new int[] {globPatternIds.get(i)}, path, matched, matchedPaths);
+            }
+        }
+
+        EnumMap<BuildSystem, List<String>> detected = new EnumMap<>(BuildSystem.class);
+        for (Map.Entry<BuildSystem, Rule> rule : rules.entrySet()) {
+            if (!rule.getValue().evaluate(matched))
+                continue;
+            List<String> filePaths = new ArrayList<>();
+            for (int pattern : rulePatterns.get(rule.getKey())) {
+                if (matchedPaths.get(pattern) != null)
+                    filePaths.addAll(matchedPaths.get(pattern));
+            }
+            detected.put(rule.getKey(), filePaths);
+        }
+        return new BuildSystemDetection(detected);
+    }
+
+    /**
+     * @return True if any rule matches files within arbitrary folders, i.e. the whole tree of a repository is required.
+     */
+    public boolean isDeep() {
+        return deep;
+    }
+
+    /**
+     * @return The top level folders that rules match specific files in, i.e. "src" for "src/CMakeLists.txt".
+     */
+    public Set<String> getPatternDirectories() {
+        return Collections.unmodifiableSet(patternDirectories);
+    }
+
+    private static void lookup(Map<String, int[]> patterns, BitSet lengths, String key, String path, boolean[] matched,
+                               List<List<String>> matchedPaths) {
+        if (lengths.get(key.length()))
+            mark(patterns.get(key), path, matched, matchedPaths);
+    }
+
+    private static void lookupCaseInsensitive(Map<String, int[]> patterns, BitSet lengths, String key, String path,
+                                              boolean[] matched, List<List<String>> matchedPaths) {
+        if (lengths.get(key.length()))
+            mark(patterns.get(key.toLowerCase(Locale.ROOT)), path, matched, matchedPaths);
+    }
+
+    private static void mark(int[] patterns, String path, boolean[] matched, List<List<String>> matchedPaths) {
+        if (patterns == null)
+            return;
+        for (int pattern : patterns) {
+            matched[pattern] = true;
+            List<String> paths = matchedPaths.get(pattern);
+            if (paths == null) {
+                paths = new ArrayList<>(1);
+                matchedPaths.set(pattern, paths);
+            }
+            if (!paths.contains(path))
+                paths.add(path);
+        }
+    }
+
+    /**
+     * Registers a file pattern once, equal patterns of different rules share the same id.
+     */
+    private int registerPattern(String pattern) {
+        Integer id = patternIds.get(pattern);
+        if (id != null)
+            return id;
+        id = patternIds.size();
+        patternIds.put(pattern, id);
+
+        boolean caseInsensitive = pattern.startsWith("~");
+        String filePattern = caseInsensitive ? pattern.substring(1) : pattern;
+        int folderEnd = filePattern.indexOf('/');
+        if (folderEnd > 0) {
+            String folder = filePattern.substring(0, folderEnd);
+            if (isGlob(folder))
+                deep = true;
+            else
+                patternDirectories.add(folder);
+        }
+
+        String deepName = filePattern.startsWith("**/") ? filePattern.substring(3) : null;
+        if (deepName != null && !deepName.contains("/") && !isGlob(deepName)) {
+            deep = true;
+            if (caseInsensitive) {
+                addPatternId(deepCaseInsensitivePatterns, deepName.toLowerCase(Locale.ROOT), id);
+                deepCaseInsensitiveLengths.set(deepName.length());
+            } else {
+                addPatternId(deepExactPatterns, deepName, id);
+                deepExactLengths.set(deepName.length());
+            }
+        } else if (isGlob(filePattern)) {
+            globs.add(Pattern.compile(globToRegex(filePattern), caseInsensitive ? Pattern.CASE_INSENSITIVE : 0));
+            globPatternIds.add(id);
+        } else if (caseInsensitive) {
+            addPatternId(caseInsensitivePatterns, filePattern.toLowerCase(Locale.ROOT), id);
+            caseInsensitiveLengths.set(filePattern.length());
+        } else {
+            addPatternId(exactPatterns, filePattern, id);
+            exactLengths.set(filePattern.length());
+        }
+        return id;
+    }
+
+    private static void addPatternId(Map<String, int[]> patterns, String key, int id) {
+        int[] ids = patterns.get(key);
+        if (ids == null) {
+            patterns.put(key, new int[] {id});
+        } else {
+            int[] extended = Arrays.copyOf(ids, ids.length + 1);
+            extended[ids.length] = id;
+            patterns.put(key, extended);
+        }
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.contains("*") || pattern.contains("?");
+    }
+
+    private String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (glob.startsWith("**/", i)) {
+                regex.append("(?:[^/]*/)*");
+                deep = true;
+                i += 2;
+            } else if (glob.startsWith("**", i)) {
+                regex.append(".*");
+                deep = true;
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Recursive descent parser of the rule expressions.
+     * expression := term ("|" term)*
+     * term       := factor ("&" factor)*
+     * factor     := "!" factor | "(" expression ")" | pattern
+     */
+    private class Parser {
+        private final String rule;
+        private int position;
+
+        Parser(String rule) {
+            this.rule = rule;
+        }
+
+        Rule parse() {
+            Rule expression = parseExpression();
+            skipWhitespace();
+            if (position < rule.length())
+                throw error("unexpected '" + rule.charAt(position) + "'");
+            return expression;
+        }
+
+        private Rule parseExpression() {
+            Rule expression = parseTerm();
+            while (consume('|'))
+                expression = new OrRule(expression, parseTerm());
+            return expression;
+        }
+
+        private Rule parseTerm() {
+            Rule term = parseFactor();
+            while (consume('&'))
+                term = new AndRule(term, parseFactor());
+            return term;
+        }
+
+        private Rule parseFactor() {
+            if (consume('!'))
+                return new NotRule(parseFactor());
+            if (consume('(')) {
+                Rule expression = parseExpression();
+                if (!consume(')'))
+                    throw error("missing ')'");
+                return expression;
+            }
+            skipWhitespace();
+            int start = position;
+            while (position < rule.length() && !Character.isWhitespace(rule.charAt(position))
+                    && "()&|!".indexOf(rule.charAt(position)) < 0)
+                position++;
+            if (start == position)
+                throw error("missing file pattern");
+            return new PatternRule(registerPattern(rule.substring(start, position)));
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (position < rule.length() && rule.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < rule.length() && Character.isWhitespace(rule.charAt(position)))
+                position++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid rule '" + rule + "' at position " + position + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package main;
+
+import Models.CrawlCheckpoint;
+import utils.CheckpointFile;
+import utils.FileHelper;
+import utils.Metrics;
+import utils.RepositoryRouter;
+import utils.SeenRepositoryIndex;
+
+/**
+ * Stores the crawl frontier at every page boundary, so that a restarted crawler resumes where it stopped.
+ *
+ * A checkpoint is only saved once all repositories found so far are on disk. The outputs are flushed first, then the
+ * repositories checked since the last flush are published to the seen repositories index, so that a later crawl only
+ * skips a repository once its record was written.
+ */
+public class CheckpointManager {
+
+    private final CheckpointFile checkpointFile;
+    private final SeenRepositoryIndex seenRepositories;
+    private final RepositoryRouter outputRouter;
+    private final Metrics metrics = Metrics.getInstance();
+    // Serializes the publishes of the seen repositories, see flush.
+    private final Object seenPublishLock = new Object();
+    // The lost repositories of the outputs at the last publish of the seen repositories.
+    private long publishedLostRepositories;
+    // The day this crawl was started on, continued by a resumed crawl.
+    private volatile String crawlStartDate;
+
+    /**
+     * @param checkpointFile The file the checkpoint is stored in.
+     * @param seenRepositories All repositories checked so far, published with every flush.
+     * @param outputRouter The outputs of every language and build system.
+     * @param crawlStartDate The day this crawl was started on, replaced by the day of a restored checkpoint.
+     */
+    public CheckpointManager(CheckpointFile checkpointFile, SeenRepositoryIndex seenRepositories,
+                             RepositoryRouter outputRouter, String crawlStartDate) {
+        this.checkpointFile = checkpointFile;
+        this.seenRepositories = seenRepositories;
+        this.outputRouter = outputRouter;
+        this.crawlStartDate = crawlStartDate;
+    }
+
+    /**
+     * @return The day this crawl was started on, i.e. of the first crawl of a resumed one.
+     */
+    public String getCrawlStartDate() {
+        return crawlStartDate;
+    }
+
+    /**
+     * Loads the checkpoint of an interrupted crawl and restores its metrics and the day the crawl was started on.
+     * The crawl frontier itself is restored by the caller.
+     * @return The checkpoint or null if there is none.
+     */
+    public CrawlCheckpoint restore() {
+        CrawlCheckpoint checkpoint = checkpointFile.load();
+        if (checkpoint == null)
+            return null;
+        System.out.println("Resuming the crawl from the checkpoint at: " + FileHelper.getCheckpointFilePath());
+        System.out.println("Last repository written before the interruption: " + checkpoint.getLastWrittenId());
+        System.out.println("---------------------------------");
+        if (checkpoint.getCrawlStartDate() != null)
+            crawlStartDate = checkpoint.getCrawlStartDate();
+        metrics.restore(checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Stores the crawl frontier. All repositories found so far are written to disk first.
+     * @param checkpoint The crawl frontier, the metrics and the last written repository are added.
+     */
+    public void save(CrawlCheckpoint checkpoint) {
+        flush();
+        metrics.save(checkpoint);
+        checkpoint.setLastWrittenId(outputRouter.getLastWrittenId());
+        checkpoint.setCrawlStartDate(crawlStartDate);
+        checkpointFile.save(checkpoint);
+    }
+
+    /**
+     * Writes the current batches of all outputs, then publishes the repositories checked since the last publish to the
+     * seen repositories index. A repository is only skipped by a later crawl once its record is on disk, the
+     * repositories are dropped from the index if any record was lost since the last publish.
+     */
+    public void flush() {
+        synchronized (seenPublishLock) {
+            // Taken before the flush, the records of all taken matching repositories are already within the batches.
+            seenRepositories.beginPublish();
+            outputRouter.flush();
+            long lostRepositories = outputRouter.getLostRepositories();
+            seenRepositories.publish(lostRepositories == publishedLostRepositories);
+            publishedLostRepositories = lostRepositories;
+            seenRepositories.force();
+        }
+    }
+
+    /**
+     * Deletes the checkpoint of the finished crawl.
+     */
+    public void delete() {
+        checkpointFile.delete();
+    }
+}
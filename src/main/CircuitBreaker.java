@@ -0,0 +1,118 @@
+package main;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Circuit breaker of a single endpoint.
+ *
+ * After Config.CIRCUITBREAKERTHRESHOLD consecutive transient failures the breaker opens and holds back all requests of
+ * the endpoint for Config.CIRCUITBREAKEROPENMILLIS, instead of burning the retries of every request in flight against
+ * an endpoint that is down. Then a single probe request is let through (half open). If it succeeds the breaker closes
+ * again, otherwise it stays open for another period. Only the outcome of the probe changes a half open breaker, the
+ * requests that were in flight before the breaker opened can't close nor reopen it.
+ *
+ * The requests are held back, not failed: a crawl can't skip an endpoint, it can only wait until it's back.
+ */
+public class CircuitBreaker {
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int threshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    /**
+     * @param name The name of the endpoint used in log messages.
+     * @param threshold The number of consecutive transient failures that open the breaker. 0 never opens it.
+     * @param openMillis The time the breaker stays open before a probe request is let through.
+     */
+    public CircuitBreaker(String name, int threshold, long openMillis) {
+        this.name = name;
+        this.threshold = threshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Waits until a request may be sent. Every call has to be followed by onSuccess, onFailure or onAbort.
+     * @return True if the request is the probe of the half open breaker, passed on to the outcome of the request.
+     * @throws InterruptedIOException If interrupted while waiting.
+     */
+    public synchronized boolean acquire() throws InterruptedIOException {
+        try {
+            while (true) {
+                if (state == State.CLOSED)
+                    return false;
+                if (state == State.OPEN) {
+                    long wait = openUntil - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        state = State.HALF_OPEN;
+                        return true;
+                    }
+                    wait(wait);
+                } else {
+                    wait(); // until the probe is done
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while the circuit breaker of " + name + " was open.");
+        }
+    }
+
+    /**
+     * The endpoint answered, even if only with a client error.
+     * @param probe The result of acquire. Only the probe closes a half open breaker.
+     */
+    public synchronized void onSuccess(boolean probe) {
+        consecutiveFailures = 0;
+        if (probe && state == State.HALF_OPEN) {
+            System.out.println("Circuit breaker of " + name + " requests closed again.");
+            state = State.CLOSED;
+            notifyAll();
+        }
+    }
+
+    /**
+     * The endpoint failed transiently.
+     * @param probe The result of acquire. Only a failed probe reopens a half open breaker.
+     * @return True if the closed breaker opened because of this failure. A failed probe only reopens it.
+     */
+    public synchronized boolean onFailure(boolean probe) {
+        consecutiveFailures++;
+        if (probe) {
+            reopen();
+            return false;
+        }
+        if (state == State.CLOSED && threshold > 0 && consecutiveFailures >= threshold) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+            System.err.println("Circuit breaker of " + name + " requests opened after " + consecutiveFailures
+                    + " consecutive failures. Holding back the requests for " + openMillis + " ms at a time.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The request failed without telling if the endpoint is back, i.e. its response couldn't be parsed or it was
+     * interrupted. A probe reopens the breaker, any other request leaves it as it is.
+     * @param probe The result of acquire.
+     */
+    public synchronized void onAbort(boolean probe) {
+        if (probe)
+            reopen();
+    }
+
+    private void reopen() {
+        if (state != State.HALF_OPEN)
+            return;
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMillis;
+        notifyAll();
+    }
+}
@@ -2,18 +2,56 @@ package main;
 
 import Models.BuildSystem;
 import Models.EConfig;
+import Models.EnrichmentBackend;
+import Models.HttpArchiveMode;
+import Models.HttpTransportType;
+import Models.OutputFormat;
 import utils.PropertyFileReader;
 
+import java.util.List;
+
 public class Config {
 
-    public static final String LANGUAGE = PropertyFileReader.getInstance().getProperty(EConfig.LANGUAGE);
+    public static final List<String> LANGUAGES = PropertyFileReader.getInstance().getListProperty(EConfig.LANGUAGE);
     public static final String LASTPUSHEDDATE = PropertyFileReader.getInstance().getProperty(EConfig.LASTPUSHEDDATE);
     public static final String STARSDECREASEAMOUNT = PropertyFileReader.getInstance().getProperty(EConfig.STARSDECREASEAMOUNT);
-    public static final BuildSystem BUILDSYSTEM = BuildSystem.getBuildType(PropertyFileReader.getInstance().getProperty(EConfig.BUILDSYSTEM));
+    public static final List<BuildSystem> BUILDSYSTEMS = BuildSystem.getBuildTypes(PropertyFileReader.getInstance().getListProperty(EConfig.BUILDSYSTEM));
     public static final String OAUTHTOKEN = PropertyFileReader.getInstance().getProperty(EConfig.OAUTHTOKEN);
+    public static final List<String> OAUTHTOKENS = PropertyFileReader.getInstance().getListProperty(EConfig.OAUTHTOKEN);
+    public static final boolean SEARCHPLANNER = PropertyFileReader.getInstance().getBooleanProperty(EConfig.SEARCHPLANNER, true);
+    public static final String APIURL = PropertyFileReader.getInstance().getProperty(EConfig.APIURL, "https://api.github.com");
     public static final String FILEPATH = PropertyFileReader.getInstance().getProperty(EConfig.FILEPATH);
     public static final String JSONFILENAME = "repositories.json";
     public static final String CUSTOMFILE = PropertyFileReader.getInstance().getProperty(EConfig.CUSTOMFILE);
+    public static final int FLUSHEVERYRECORDS = PropertyFileReader.getInstance().getIntProperty(EConfig.FLUSHEVERYRECORDS, 50);
+    public static final int FLUSHINTERVALMILLIS = PropertyFileReader.getInstance().getIntProperty(EConfig.FLUSHINTERVALMILLIS, 10000);
+    public static final int CONCURRENTREQUESTS = PropertyFileReader.getInstance().getIntProperty(EConfig.CONCURRENTREQUESTS, 8);
+    public static final boolean FETCHREPOSITORYONMATCHONLY = PropertyFileReader.getInstance().getBooleanProperty(EConfig.FETCHREPOSITORYONMATCHONLY, true);
+    public static final boolean SEENBLOOMFILTER = PropertyFileReader.getInstance().getBooleanProperty(EConfig.SEENBLOOMFILTER, true);
+    public static final int HTTPCACHEMEGABYTES = PropertyFileReader.getInstance().getIntProperty(EConfig.HTTPCACHEMEGABYTES, 256);
+    public static final EnrichmentBackend ENRICHMENTBACKEND = EnrichmentBackend.getEnrichmentBackend(PropertyFileReader.getInstance().getProperty(EConfig.ENRICHMENTBACKEND, "rest"));
+    public static final int GRAPHQLBATCHSIZE = PropertyFileReader.getInstance().getIntProperty(EConfig.GRAPHQLBATCHSIZE, 25);
+    public static final boolean TREEDETECTION = PropertyFileReader.getInstance().getBooleanProperty(EConfig.TREEDETECTION, false);
+    public static final boolean DEEPBUILDFILES = PropertyFileReader.getInstance().getBooleanProperty(EConfig.DEEPBUILDFILES, false);
+    public static final int METRICSPORT = PropertyFileReader.getInstance().getIntProperty(EConfig.METRICSPORT, 9400);
+    public static final HttpArchiveMode HTTPARCHIVE = HttpArchiveMode.getHttpArchiveMode(PropertyFileReader.getInstance().getProperty(EConfig.HTTPARCHIVE, "off"));
+    public static final String HTTPARCHIVEFILE = PropertyFileReader.getInstance().getProperty(EConfig.HTTPARCHIVEFILE, "");
+    public static final boolean REPLAYRATELIMITS = PropertyFileReader.getInstance().getBooleanProperty(EConfig.REPLAYRATELIMITS, false);
+    public static final int SHARDMAXRECORDS = PropertyFileReader.getInstance().getIntProperty(EConfig.SHARDMAXRECORDS, 0);
+    public static final int SHARDMAXMEGABYTES = PropertyFileReader.getInstance().getIntProperty(EConfig.SHARDMAXMEGABYTES, 0);
+    public static final int SEARCHPREFETCHPAGES = PropertyFileReader.getInstance().getIntProperty(EConfig.SEARCHPREFETCHPAGES, 2);
+    public static final HttpTransportType HTTPTRANSPORT = HttpTransportType.getHttpTransportType(PropertyFileReader.getInstance().getProperty(EConfig.HTTPTRANSPORT, "http2"));
+    public static final int RETRYMAXATTEMPTS = PropertyFileReader.getInstance().getIntProperty(EConfig.RETRYMAXATTEMPTS, 5);
+    public static final int RETRYBASEDELAYMILLIS = PropertyFileReader.getInstance().getIntProperty(EConfig.RETRYBASEDELAYMILLIS, 1000);
+    public static final int CIRCUITBREAKERTHRESHOLD = PropertyFileReader.getInstance().getIntProperty(EConfig.CIRCUITBREAKERTHRESHOLD, 10);
+    public static final int CIRCUITBREAKEROPENMILLIS = PropertyFileReader.getInstance().getIntProperty(EConfig.CIRCUITBREAKEROPENMILLIS, 30000);
+    public static final int HEDGEAFTERMILLIS = PropertyFileReader.getInstance().getIntProperty(EConfig.HEDGEAFTERMILLIS, 0);
+    public static final boolean REDRIVEDEADLETTERS = PropertyFileReader.getInstance().getBooleanProperty(EConfig.REDRIVEDEADLETTERS, false);
+    public static final boolean INCREMENTALCRAWL = PropertyFileReader.getInstance().getBooleanProperty(EConfig.INCREMENTALCRAWL, false);
+    public static final String LEASEDIR = PropertyFileReader.getInstance().getProperty(EConfig.LEASEDIR, "");
+    public static final String NODEID = PropertyFileReader.getInstance().getProperty(EConfig.NODEID, "");
+    public static final int LEASEMILLIS = PropertyFileReader.getInstance().getIntProperty(EConfig.LEASEMILLIS, 60000);
+    public static final OutputFormat OUTPUTFORMAT = OutputFormat.getOutputFormat(PropertyFileReader.getInstance().getProperty(EConfig.OUTPUTFORMAT, "json"));
 
 
 }
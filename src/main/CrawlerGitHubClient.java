@@ -0,0 +1,364 @@
+package main;
+
+import Models.RequestType;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import utils.HttpArchive;
+import utils.HttpResponseCache;
+import utils.HttpTransport;
+import utils.Metrics;
+import utils.TransportConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * GitHub client that reports the rate limit headers of every response to the RequestScheduler.
+ * GET requests are sent as conditional requests if a response cache is set (see HttpResponseCache).
+ * The latency and the outcome of every request are recorded in the Metrics.
+ * If an HttpArchive is set, all responses are recorded to it or replayed from it.
+ * Requests are sent with the HttpTransport of the client, GET requests can also be sent without blocking (see getAsync).
+ *
+ * SEE: https://developer.github.com/v3/#rate-limiting
+ * SEE: https://developer.github.com/v3/#abuse-rate-limits
+ */
+public class CrawlerGitHubClient extends GitHubClient {
+
+    private static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    private static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    private static final String HEADER_RESET = "X-RateLimit-Reset";
+    private static final String HEADER_RESOURCE = "X-RateLimit-Resource";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String GRAPHQL_URI = "/graphql";
+
+    private final RequestScheduler requestScheduler;
+    private HttpResponseCache responseCache;
+    // Hash of the OAuth token, responses are cached per token.
+    private String cacheScope;
+    private HttpArchive httpArchive;
+    private HttpTransport transport;
+
+    public CrawlerGitHubClient(RequestScheduler requestScheduler) {
+        super();
+        this.requestScheduler = requestScheduler;
+    }
+
+    /**
+     * @param hostname The host of the API, i.e. api.github.com or localhost for a mock API server.
+     * @param port The port of the API or -1 for the default port.
+     * @param scheme The scheme of the API, http or https.
+     * @param requestScheduler The scheduler that throttles the requests of this client.
+     */
+    public CrawlerGitHubClient(String hostname, int port, String scheme, RequestScheduler requestScheduler) {
+        super(hostname, port, scheme);
+        this.requestScheduler = requestScheduler;
+    }
+
+    /**
+     * Creates a client for the given API base URL.
+     * @param apiUrl The base URL of the API, i.e. https://api.github.com or http://localhost:8080.
+     * @param requestScheduler The scheduler that throttles the requests of this client.
+     * @return The client.
+     */
+    public static CrawlerGitHubClient create(String apiUrl, RequestScheduler requestScheduler) {
+        URI uri = URI.create(apiUrl);
+        if (uri.getHost() == null) {
+            System.err.println("apiUrl '" + apiUrl + "' is not a valid URL. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        return new CrawlerGitHubClient(uri.getHost(), uri.getPort(), uri.getScheme() == null ? "https" : uri.getScheme(), requestScheduler);
+    }
+
+    /**
+     * Sends all following GET requests as conditional requests using the given cache.
+     * @param responseCache The cache to store the responses in.
+     * @param oAuthToken The OAuth token of this client or an empty String. Only its hash is stored.
+     * @return This client.
+     */
+    public CrawlerGitHubClient setResponseCache(HttpResponseCache responseCache, String oAuthToken) {
+        this.responseCache = responseCache;
+        this.cacheScope = HttpResponseCache.hash(oAuthToken);
+        return this;
+    }
+
+    /**
+     * Records all following responses to the given archive, or replays them from it without sending any request.
+     * @param httpArchive The archive to record to or replay from.
+     * @return This client.
+     */
+    public CrawlerGitHubClient setHttpArchive(HttpArchive httpArchive) {
+        this.httpArchive = httpArchive;
+        return this;
+    }
+
+    /**
+     * Sends all following requests with the given transport instead of a new HttpURLConnection each.
+     * @param transport The transport, shared by all clients.
+     * @return This client.
+     */
+    public CrawlerGitHubClient setTransport(HttpTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(String uri) throws IOException {
+        URL url = new URL(createUri(uri));
+        if (httpArchive != null && httpArchive.isReplaying())
+            return httpArchive.replay(url);
+        HttpURLConnection connection = transport == null ? (HttpURLConnection) url.openConnection() : transport.open(url);
+        return httpArchive == null ? connection : httpArchive.record(connection);
+    }
+
+    /**
+     * Sends a GET request without blocking the calling thread while it is in flight. The rate limit headers of the
+     * response are reported to the RequestScheduler before the future completes.
+     * Conditional and archived requests, and all requests of a transport without asynchronous connections, are sent on
+     * the calling thread instead.
+     * @param request The request.
+     * @return The response. Completes exceptionally with an IOException, just like get fails.
+     */
+    public CompletableFuture<GitHubResponse> getAsync(GitHubRequest request) {
+        String uri = request.generateUri();
+        if (responseCache != null && !uri.contains("/search/"))
+            return getOnCallingThread(request);
+        HttpURLConnection httpRequest;
+        try {
+            httpRequest = createGet(uri);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!(httpRequest instanceof TransportConnection))
+            return getOnCallingThread(request);
+
+        TransportConnection connection = (TransportConnection) httpRequest;
+        String accept = request.getResponseContentType();
+        if (accept != null)
+            connection.setRequestProperty(HEADER_ACCEPT, accept);
+        long start = System.nanoTime();
+        return connection.sendAsync().handle((sent, failure) -> {
+            boolean failed = true;
+            try {
+                if (failure != null)
+                    throw HttpTransport.unwrap(failure);
+                final int code = connection.getResponseCode();
+                updateRateLimits(connection);
+                GitHubResponse response;
+                if (isOk(code))
+                    response = new GitHubResponse(connection, getBody(request, getStream(connection)));
+                else if (isEmpty(code))
+                    response = new GitHubResponse(connection, null);
+                else
+                    throw createException(getStream(connection), code, connection.getResponseMessage());
+                failed = false;
+                return response;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                Metrics.getInstance().recordRequest(getRequestType(uri), System.nanoTime() - start, failed);
+            }
+        });
+    }
+
+    @Override
+    public GitHubResponse get(GitHubRequest request) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            GitHubResponse response = getConditional(request);
+            failed = false;
+            return response;
+        } finally {
+            Metrics.getInstance().recordRequest(getRequestType(request.getUri()), System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public <V> V post(String uri, Object params, Type type) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            V response = super.post(uri, params, type);
+            failed = false;
+            return response;
+        } finally {
+            Metrics.getInstance().recordRequest(getRequestType(uri), System.nanoTime() - start, failed);
+        }
+    }
+
+    private CompletableFuture<GitHubResponse> getOnCallingThread(GitHubRequest request) {
+        try {
+            return CompletableFuture.completedFuture(get(request));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Maps the URI of a request onto the endpoint it is recorded for in the Metrics.
+     * @param uri The URI of the request without the API prefix, i.e. "/repos/owner/name/contents".
+     * @return The type of the request or null for requests that aren't sent by the crawl itself.
+     */
+    static RequestType getRequestType(String uri) {
+        if (uri == null)
+            return null;
+        if (uri.contains("/search/"))
+            return RequestType.SEARCH;
+        if (uri.endsWith(GRAPHQL_URI))
+            return RequestType.GRAPHQL;
+        if (!uri.startsWith("/repos/"))
+            return null;
+        String[] segments = uri.split("\\?")[0].split("/"); // "", "repos", owner, name, endpoint...
+        if (segments.length <= 4)
+            return RequestType.REPOSITORY;
+        String endpoint = segments[4];
+        if (endpoint.equals("contents") || (endpoint.equals("git") && segments.length > 5 && segments[5].equals("trees")))
+            return RequestType.CONTENTS;
+        if (endpoint.equals("commits") || endpoint.equals("git") || endpoint.equals("branches"))
+            return RequestType.COMMITS;
+        return null;
+    }
+
+    /**
+     * Sends the request with the If-None-Match and If-Modified-Since headers of the cached response.
+     * A "304 Not Modified" response is answered with the cached body, new bodies are stored in the cache.
+     * Search results change with every push, they are never cached.
+     */
+    private GitHubResponse getConditional(GitHubRequest request) throws IOException {
+        String uri = request.generateUri();
+        if (responseCache == null || uri.contains("/search/"))
+            return super.get(request);
+
+        HttpURLConnection httpRequest = createGet(uri);
+        String accept = request.getResponseContentType();
+        if (accept != null)
+            httpRequest.setRequestProperty(HEADER_ACCEPT, accept);
+        String cacheKey = cacheScope + " " + httpRequest.getURL();
+        HttpResponseCache.Entry cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            if (cached.getETag() != null)
+                httpRequest.setRequestProperty(HEADER_IF_NONE_MATCH, cached.getETag());
+            if (cached.getLastModified() != null)
+                httpRequest.setRequestProperty(HEADER_IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+
+        final int code = httpRequest.getResponseCode();
+        updateRateLimits(httpRequest);
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            responseCache.countNotModified();
+            return new GitHubResponse(httpRequest, getBody(request, new ByteArrayInputStream(cached.getBody())));
+        }
+        if (isOk(code)) {
+            byte[] body = readFully(getStream(httpRequest));
+            String eTag = httpRequest.getHeaderField(HEADER_ETAG);
+            String lastModified = httpRequest.getHeaderField(HEADER_LAST_MODIFIED);
+            if (eTag != null || lastModified != null)
+                responseCache.put(cacheKey, eTag, lastModified, body);
+            return new GitHubResponse(httpRequest, getBody(request, new ByteArrayInputStream(body)));
+        }
+        if (isEmpty(code))
+            return new GitHubResponse(httpRequest, null);
+        throw createException(getStream(httpRequest), code, httpRequest.getResponseMessage());
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        super.updateRateLimits(request);
+        String resource = getResource(request);
+        if (isUnauthorized(request)) {
+            System.err.println("OAuth token was rejected. Taking it out of rotation.");
+            requestScheduler.disable();
+            return this;
+        }
+
+        String retryAfter = request.getHeaderField(HEADER_RETRY_AFTER);
+        if (retryAfter != null) {
+            requestScheduler.pause(resource, parseLong(retryAfter, 0) * 1000);
+            return this;
+        }
+
+        long limit = parseLong(request.getHeaderField(HEADER_LIMIT), -1);
+        long remaining = parseLong(request.getHeaderField(HEADER_REMAINING), -1);
+        long reset = parseLong(request.getHeaderField(HEADER_RESET), -1);
+        if (limit >= 0 && remaining >= 0 && reset >= 0)
+            requestScheduler.updateLimits(resource, (int) limit, (int) remaining, reset);
+        if (remaining != 0 && isRateLimited(request)) {
+            // Secondary (abuse) rate limit without any hint how long to wait. Its responses carry the headers of the
+            // primary limit with requests remaining, the pause falls back to one minute.
+            requestScheduler.pause(resource, 0);
+        }
+        return this;
+    }
+
+    private String getResource(HttpURLConnection request) {
+        String resource = request.getHeaderField(HEADER_RESOURCE);
+        if (resource != null)
+            return resource;
+        String path = request.getURL().getPath();
+        if (path.endsWith("/graphql"))
+            return RequestScheduler.GRAPHQL;
+        return path.contains("/search/") ? RequestScheduler.SEARCH : RequestScheduler.CORE;
+    }
+
+    /**
+     * GitHub Enterprise serves the GraphQL API at "/api/graphql" instead of below the "/api/v3" prefix.
+     */
+    @Override
+    protected String configureUri(String uri) {
+        if (prefix != null && uri.equals(GRAPHQL_URI))
+            return "/api" + GRAPHQL_URI;
+        return super.configureUri(uri);
+    }
+
+    private boolean isUnauthorized(HttpURLConnection request) {
+        try {
+            return request.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isRateLimited(HttpURLConnection request) {
+        try {
+            int code = request.getResponseCode();
+            return code == HttpURLConnection.HTTP_FORBIDDEN || code == HTTP_TOO_MANY_REQUESTS;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private long parseLong(String value, long defaultValue) {
+        if (value == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -1,57 +1,122 @@
 package main;
 
 import Models.BuildSystem;
-import Models.RMetaData;
-import com.google.common.util.concurrent.RateLimiter;
+import Models.CrawlCheckpoint;
+import Models.DeadLetter;
+import Models.EnrichmentBackend;
+import Models.HttpArchiveMode;
+import Models.HttpTransportType;
+import Models.OutputFormat;
+import Models.RequestType;
+import Models.SearchWindow;
 import org.eclipse.egit.github.core.*;
-import org.eclipse.egit.github.core.client.GitHubClient;
-import org.eclipse.egit.github.core.client.PageIterator;
-import org.eclipse.egit.github.core.service.CommitService;
-import org.eclipse.egit.github.core.service.ContentsService;
-import org.eclipse.egit.github.core.service.RepositoryService;
-import org.eclipse.egit.github.core.service.UserService;
+import utils.CheckpointFile;
+import utils.ColumnarWriter;
+import utils.DeadLetterFile;
+import utils.FileHelper;
+import utils.HttpArchive;
+import utils.HttpResponseCache;
 import utils.JsonWriter;
+import utils.LeaseDirectory;
+import utils.Metrics;
+import utils.PrometheusEndpoint;
+import utils.RepositoryRouter;
+import utils.RepositorySink;
+import utils.SeenRepositoryIndex;
+import utils.ShardedJsonWriter;
+import utils.StoredRepositoryIndex;
+import utils.TeeRepositorySink;
 import java.io.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
 /**
  * Main GitHub Crawler class. Queries, filters and stores the GitHub repositories.
  *
+ * The repositories of every search page are checked by the RepositoryChecker, the windows of the search planner are
+ * crawled by the SearchWindowCrawler and the crawl frontier is stored by the CheckpointManager.
+ *
  * @author Daniel Braun
  */
 public class GitHubCrawler {
     /**
-    * The filtered programming language.
+    * The filtered programming languages. Each language is searched on its own.
     */
-    private String searchLanguage;
+    private List<String> searchLanguages;
+    /**
+     * The BuildSystems to detect and filter for. All of them are checked with the same contents request.
+     */
+    private List<BuildSystem> buildSystems;
+    /**
+     * Detects all build systems of a repository at once. Compiled once, shared by all enrichment threads.
+     */
+    private BuildSystemDetector buildSystemDetector;
+    /**
+     * Checks the repositories of every search page and writes the matching ones to their outputs.
+     */
+    private RepositoryChecker repositoryChecker;
     /**
-     * The BuildSystem to detect and filter for.
+     * The OAuth tokens, each with its own GitHub client object, the requests are distributed on.
      */
-    private BuildSystem buildSystem;
+    private TokenPool tokenPool;
     /**
-     * The GitHub client object.
+     * Sends all requests of the crawler and retries them on failure.
      */
-    private GitHubClient client;
+    private RequestExecutor requestExecutor;
+    /**
+     * The repositories that couldn't be checked, even after all retries.
+     */
+    private DeadLetterFile deadLetterFile;
     private String lastPushedDate;
     private int maxStars = Integer.MAX_VALUE;
     private int starDecreaseAmount;
-    private int matchingRepos = 0;
-    private int checkedRepos = 0;
-    private int counterSearchRequests = 0;
-    private int counterRepositoryRequests = 0;
-    private int counterContentRequests = 0;
-    private int counterCommitRequests = 0;
-    private boolean foundRepoInLastQuery;
+    // Counts the checked and matching repositories and all sent requests.
+    private final Metrics metrics = Metrics.getInstance();
     private boolean notFirstQuery = false;
-    private RepositoryService repositoryService;
-    private CommitService commitService;
-    private ContentsService contentsService;
-    // Request throttling using the com.google.guava 28.0-jre library
-    // SEE: https://www.javadoc.io/doc/com.google.guava/guava/28.0-jre/com/google/common/util/concurrent/RateLimiter.html
-    private RateLimiter requestRateLimiter;
-    private RateLimiter searchRequestRateLimiter;
+    // The maximum stars count of the current query of the maxStars decrement loop.
+    private int queryMaxStars = Integer.MAX_VALUE;
+    /**
+     * Crawls the queries of the maxStars decrement loop. Null if Config.SEARCHPLANNER is set.
+     */
+    private SearchQueryCrawler queryCrawler;
+    /**
+     * The crawl frontier is stored at every page boundary, so that a restarted crawler resumes where it stopped.
+     */
+    private CheckpointManager checkpointManager;
+    /**
+     * Crawls the windows of the search planner. Null unless Config.SEARCHPLANNER is set.
+     */
+    private SearchWindowCrawler windowCrawler;
+    /**
+     * The repositories stored within the json file by earlier crawls. Null unless Config.INCREMENTALCRAWL is set.
+     */
+    private StoredRepositoryIndex storedRepositories;
+    /**
+     * Checks whole batches of repositories with single GraphQL queries. Null if the REST backend is used.
+     */
+    private GraphQLEnricher graphQLEnricher;
+    /**
+     * Lists the whole tree of a repository for the detection. Null if only the root directory is checked.
+     */
+    private RepositoryTreeLister treeLister;
+    /**
+     * The outputs of every language and build system, each the json file, the columnar output or both
+     * (see Config.OUTPUTFORMAT).
+     */
+    private RepositoryRouter outputRouter;
+    // The json files or columnar folders of the outputs of every language and build system. Empty if there is a single output.
+    private final List<Path> combinationOutputs = new ArrayList<>();
+    /**
+     * The lease folder shared with the other nodes of a distributed crawl, null on a single node.
+     */
+    private LeaseDirectory leaseDirectory;
     private long startTime;
     private String systemStartTime;
     private Calendar calendar;
@@ -59,23 +124,58 @@ public class GitHubCrawler {
 
     /**
      * Crawlers Constructor.
-     * @param language The programming language filter.
-     * @param buildSystem The build system filter.
-     * @param oAuthToken The Github OAuth token for authentication.
+     * @param languages The programming language filters.
+     * @param buildSystems The build system filters.
+     * @param oAuthTokens The Github OAuth tokens for authentication. Unauthenticated requests are sent if empty.
      */
-    public GitHubCrawler(String language, String lastPushedDate, String starsDecreaseAmount , BuildSystem buildSystem, String oAuthToken){
+    public GitHubCrawler(List<String> languages, String lastPushedDate, String starsDecreaseAmount , List<BuildSystem> buildSystems, List<String> oAuthTokens){
         this.calendar = Calendar.getInstance();
         this.formatter =  new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
         this.systemStartTime = formatter.format(calendar.getTime());
         this.startTime = System.nanoTime();
 
-        this.searchLanguage = language;
+        this.searchLanguages = new ArrayList<>(new LinkedHashSet<>(languages));
         this.lastPushedDate = lastPushedDate;
-        this.buildSystem = buildSystem;
-        this.client = authenticate(oAuthToken);
-        initGitHubServices();
+        this.buildSystems = buildSystems;
+        initSearchScope();
+        if (Config.DEEPBUILDFILES && !Config.TREEDETECTION) {
+            System.err.println("deepBuildFiles requires treeDetection = true. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        try {
+            this.buildSystemDetector = new BuildSystemDetector(Config.CUSTOMFILE, Config.DEEPBUILDFILES);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "\ncustomFile is not a valid rule. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        initHttpArchive();
+        initOutputSink();
+        initHttpTransport();
+        this.tokenPool = new TokenPool(oAuthTokens, Config.APIURL);
+        initRequestExecutor();
+        this.deadLetterFile = new DeadLetterFile(FileHelper.getDeadLetterFilePath());
+        if (Config.TREEDETECTION)
+            this.treeLister = new RepositoryTreeLister(tokenPool, buildSystemDetector);
+        // A repository counts as matching if it matched any of the build systems.
+        SeenRepositoryIndex seenRepositories = new SeenRepositoryIndex(FileHelper.getRepositoriesJsonFilePath(), getStoredOutputs(),
+                String.join(",", searchLanguages) + "/" + joinBuildSystems() + "/" + Config.CUSTOMFILE,
+                isSingleOutput() ? buildSystems.get(0).toString() : null, Config.SEENBLOOMFILTER);
+        this.checkpointManager = new CheckpointManager(new CheckpointFile(FileHelper.getCheckpointFilePath()), seenRepositories,
+                outputRouter, HttpArchive.getInstance().today().toString());
+        initIncrementalCrawl();
+        initDistributedCrawl();
+        initMetrics();
         printSetup();
         calcRequestLimits();
+        initEnrichmentBackend();
+        this.repositoryChecker = new RepositoryChecker(buildSystems, buildSystemDetector, tokenPool, requestExecutor,
+                deadLetterFile, seenRepositories, storedRepositories, outputRouter, graphQLEnricher, treeLister);
+        if (Config.SEARCHPLANNER)
+            this.windowCrawler = new SearchWindowCrawler(searchLanguages, this::buildBaseQuery, tokenPool, requestExecutor,
+                    repositoryChecker, outputRouter, leaseDirectory, () -> saveCheckpoint(0));
+        else
+            this.queryCrawler = new SearchQueryCrawler(tokenPool, requestExecutor, repositoryChecker, searchLanguages.get(0),
+                    this::onPageChecked);
 
         try {
             this.starDecreaseAmount = Integer.parseInt(starsDecreaseAmount);
@@ -89,13 +189,327 @@ public class GitHubCrawler {
         }
     }
 
+    /**
+     * Exposes the metrics over JMX and, unless switched off, over the Prometheus endpoint on localhost.
+     */
+    private void initMetrics() {
+        metrics.registerMBean();
+        if (Config.METRICSPORT <= 0)
+            return;
+        try {
+            new PrometheusEndpoint(Config.METRICSPORT);
+        } catch (IOException e) {
+            // Not fatal, the crawl itself doesn't depend on it.
+            System.err.println("Couldn't start the metrics endpoint on port " + Config.METRICSPORT + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the archive to record the responses to or loads the archive to replay them from.
+     */
+    private void initHttpArchive() {
+        if (Config.HTTPARCHIVE == HttpArchiveMode.UNKNOWN) {
+            System.err.println("httpArchive must be either off, record or replay. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        HttpArchive.getInstance();
+    }
+
+    private void initHttpTransport() {
+        if (Config.HTTPTRANSPORT == HttpTransportType.UNKNOWN) {
+            System.err.println("httpTransport must be either http2 or urlconnection. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+    }
+
+    private void initRequestExecutor() {
+        if (Config.RETRYMAXATTEMPTS < 1) {
+            System.err.println("retryMaxAttempts must be greater 0. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        if (Config.RETRYBASEDELAYMILLIS < 0 || Config.CIRCUITBREAKERTHRESHOLD < 0 || Config.CIRCUITBREAKEROPENMILLIS < 0
+                || Config.HEDGEAFTERMILLIS < 0) {
+            System.err.println("retryBaseDelayMillis, circuitBreakerThreshold, circuitBreakerOpenMillis and hedgeAfterMillis must not be negative. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        requestExecutor = new RequestExecutor();
+    }
+
+    /**
+     * Validates the searched languages and build systems.
+     */
+    private void initSearchScope() {
+        if (searchLanguages.isEmpty()) {
+            System.err.println("language must be set. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        if (buildSystems.size() > 1 && buildSystems.contains(BuildSystem.UNKNOWN)) {
+            System.err.println("buildSystem must only list CMAKE, AUTOTOOLS, MAKE or CUSTOM. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        // The maxStars decrement loop holds the frontier of a single query.
+        if (searchLanguages.size() > 1 && !Config.SEARCHPLANNER) {
+            System.err.println("Several languages require searchPlanner = true. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return The searched build systems separated by commas.
+     */
+    private String joinBuildSystems() {
+        StringJoiner joiner = new StringJoiner(",");
+        for (BuildSystem buildSystem : buildSystems)
+            joiner.add(buildSystem.toString());
+        return joiner.toString();
+    }
+
+    /**
+     * @return True if a single language and a single build system are searched. Their repositories are written to the
+     * repositories.json file (or the columnar output), otherwise every combination has an output of its own.
+     */
+    private boolean isSingleOutput() {
+        return searchLanguages.size() == 1 && buildSystems.size() == 1;
+    }
+
+    private void initOutputSink() {
+        if (Config.FLUSHINTERVALMILLIS <= 0) {
+            System.err.println("flushIntervalMillis must be greater 0. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        if (Config.SHARDMAXRECORDS < 0 || Config.SHARDMAXMEGABYTES < 0) {
+            System.err.println("shardMaxRecords and shardMaxMegabytes must not be negative. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        if (Config.OUTPUTFORMAT == OutputFormat.UNKNOWN) {
+            System.err.println("outputFormat must be either json, columnar or both. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        outputRouter = new RepositoryRouter();
+        if (isSingleOutput()) {
+            outputRouter.addRoute(searchLanguages.get(0), buildSystems.get(0), getOutputSink());
+            return;
+        }
+        for (String language : searchLanguages) {
+            for (BuildSystem buildSystem : buildSystems)
+                outputRouter.addRoute(language, buildSystem, getOutputSink(FileHelper.getRepositoriesJsonFilePath(language, buildSystem)));
+        }
+    }
+
+    /**
+     * @return The repositories.json file, the columnar output or both.
+     */
+    private RepositorySink getOutputSink() {
+        switch (Config.OUTPUTFORMAT) {
+            case COLUMNAR:
+                return ColumnarWriter.getInstance();
+            case BOTH:
+                return new TeeRepositorySink(getJsonSink(), ColumnarWriter.getInstance());
+            default:
+                return getJsonSink();
+        }
+    }
+
+    /**
+     * @param jsonFilePath The json file of a single language and build system.
+     * @return The json file, its shards, the columnar output next to it or both.
+     */
+    private RepositorySink getOutputSink(String jsonFilePath) {
+        ShardedJsonWriter jsonSink = null;
+        if (Config.OUTPUTFORMAT != OutputFormat.COLUMNAR && (Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0)) {
+            jsonSink = ShardedJsonWriter.open(FileHelper.getRepositoriesShardsDirPath(jsonFilePath));
+            combinationOutputs.addAll(jsonSink.getShardPaths());
+        } else if (Config.OUTPUTFORMAT == OutputFormat.COLUMNAR) {
+            combinationOutputs.add(Paths.get(FileHelper.getRepositoriesColumnsDirPath(jsonFilePath)));
+        } else {
+            combinationOutputs.add(Paths.get(jsonFilePath));
+        }
+        switch (Config.OUTPUTFORMAT) {
+            case COLUMNAR:
+                return ColumnarWriter.open(FileHelper.getRepositoriesColumnsDirPath(jsonFilePath));
+            case BOTH:
+                return new TeeRepositorySink(jsonSink != null ? jsonSink : JsonWriter.open(jsonFilePath),
+                        ColumnarWriter.open(FileHelper.getRepositoriesColumnsDirPath(jsonFilePath)));
+            default:
+                return jsonSink != null ? jsonSink : JsonWriter.open(jsonFilePath);
+        }
+    }
+
+    /**
+     * Loads the repositories of earlier crawls and restricts the search to the repositories pushed since the start of
+     * the last finished crawl.
+     */
+    private void initIncrementalCrawl() {
+        if (!Config.INCREMENTALCRAWL)
+            return;
+        if (Config.OUTPUTFORMAT != OutputFormat.JSON || Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0
+                || !isSingleOutput()) {
+            System.err.println("incrementalCrawl requires outputFormat json without shards, a single language and a single build system. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        storedRepositories = new StoredRepositoryIndex(Paths.get(FileHelper.getRepositoriesJsonFilePath()));
+        String lastCrawlDate = readLastCrawlDate();
+        // Both are days in the yyyy-MM-dd format.
+        if (lastCrawlDate != null && lastCrawlDate.compareTo(lastPushedDate) > 0)
+            lastPushedDate = lastCrawlDate;
+    }
+
+    /**
+     * Opens the lease folder shared with the other nodes of a distributed crawl and registers the outputs of this node,
+     * so that they are merged once all search windows are crawled.
+     */
+    private void initDistributedCrawl() {
+        if (Config.LEASEDIR.isEmpty())
+            return;
+        if (!Config.SEARCHPLANNER || Config.OUTPUTFORMAT == OutputFormat.COLUMNAR || Config.INCREMENTALCRAWL) {
+            System.err.println("leaseDir requires searchPlanner = true, outputFormat json or both and incrementalCrawl = false. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        if (Config.LEASEMILLIS < 1000) {
+            System.err.println("leaseMillis must be at least 1000. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        String nodeId = Config.NODEID.isEmpty() ? getDefaultNodeId() : Config.NODEID;
+        try {
+            leaseDirectory = new LeaseDirectory(Paths.get(Config.LEASEDIR), nodeId, Config.LEASEMILLIS);
+            leaseDirectory.registerOutputs(getJsonOutputs());
+        } catch (IOException e) {
+            System.err.println("Couldn't open the lease folder at: " + Config.LEASEDIR + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return The host name and the process id, i.e. "crawler1-4711".
+     */
+    private static String getDefaultNodeId() {
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hostName = "localhost";
+        }
+        return hostName + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * @return The json files of all outputs of this node, or the folders of their shards.
+     */
+    private List<Path> getJsonOutputs() {
+        boolean sharded = Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0;
+        List<Path> outputs = new ArrayList<>();
+        if (isSingleOutput()) {
+            outputs.add(Paths.get(sharded ? FileHelper.getRepositoriesShardsDirPath() : FileHelper.getRepositoriesJsonFilePath()));
+            return outputs;
+        }
+        for (String language : searchLanguages) {
+            for (BuildSystem buildSystem : buildSystems) {
+                String jsonFilePath = FileHelper.getRepositoriesJsonFilePath(language, buildSystem);
+                outputs.add(Paths.get(sharded ? FileHelper.getRepositoriesShardsDirPath(jsonFilePath) : jsonFilePath));
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * @return The day the last finished crawl was started on or null if there is none.
+     */
+    private String readLastCrawlDate() {
+        Path lastCrawlPath = Paths.get(FileHelper.getLastCrawlFilePath());
+        if (!Files.exists(lastCrawlPath))
+            return null;
+        try {
+            String lastCrawlDate = new String(Files.readAllBytes(lastCrawlPath), StandardCharsets.UTF_8).trim();
+            return lastCrawlDate.isEmpty() ? null : lastCrawlDate;
+        } catch (IOException e) {
+            System.err.println("Couldn't read the day of the last crawl at: " + lastCrawlPath + ". Using lastPushedDate instead.");
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finishes the crawl: the repositories refreshed by an incremental crawl are updated within the json file, and the
+     * start of this crawl is stored for the next incremental crawl.
+     */
+    private void finishCrawl() {
+        if (storedRepositories != null) {
+            int updated = JsonWriter.getInstance().updateRepositories(repositoryChecker.getRefreshedRepositories());
+            System.out.println("Updated stored repositories within the json file: " + updated);
+        }
+        Path lastCrawlPath = Paths.get(FileHelper.getLastCrawlFilePath());
+        try {
+            Files.write(lastCrawlPath, (checkpointManager.getCrawlStartDate() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Couldn't store the day of this crawl at: " + lastCrawlPath + ".");
+            System.err.println(e.getMessage());
+        }
+        checkpointManager.delete();
+    }
+
+    /**
+     * @return The sharded output if a shard size is set, the repositories.json file otherwise.
+     */
+    private RepositorySink getJsonSink() {
+        if (Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0)
+            return ShardedJsonWriter.getInstance();
+        return JsonWriter.getInstance();
+    }
+
+    /**
+     * @return The outputs the repositories of earlier crawls are stored in, either the shards, the repositories.json
+     * file or the columnar folder, of every output.
+     */
+    private List<Path> getStoredOutputs() {
+        if (isSingleOutput()) {
+            if (Config.OUTPUTFORMAT == OutputFormat.COLUMNAR)
+                return Collections.singletonList(Paths.get(FileHelper.getRepositoriesColumnsDirPath()));
+            if (Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0)
+                return ShardedJsonWriter.getInstance().getShardPaths();
+            return Collections.singletonList(Paths.get(FileHelper.getRepositoriesJsonFilePath()));
+        }
+        return combinationOutputs;
+    }
+
     private void printSetup() {
         System.out.println("----------CONFIGURATION----------");
 
-        System.out.println("BuildSystem: " + Config.BUILDSYSTEM);
-        if(BuildSystem.CUSTOM == buildSystem)
+        System.out.println("BuildSystem: " + joinBuildSystems());
+        if(buildSystems.contains(BuildSystem.CUSTOM))
             System.out.println("Searching for custom file: " + Config.CUSTOMFILE);
-        System.out.println("Repository language: " + Config.LANGUAGE);
+        System.out.println("Repository language: " + String.join(", ", searchLanguages));
+        if (!isSingleOutput())
+            System.out.println("Every language and build system is written to an output of its own: " + outputRouter.getRoutes().size() + " outputs");
+        if (leaseDirectory != null)
+            System.out.println("Distributed crawl as node " + leaseDirectory.getNodeId() + " with the nodes of: "
+                    + leaseDirectory.getDir().toAbsolutePath() + " (leases expire after " + Config.LEASEMILLIS + " ms)");
+        if (storedRepositories != null)
+            System.out.println("Incremental crawl of the repositories pushed since: " + lastPushedDate + " ("
+                    + storedRepositories.size() + " stored repositories)");
+        System.out.println("Detection checks: " + (Config.TREEDETECTION ? "the whole tree" : "the root directory")
+                + (Config.DEEPBUILDFILES ? ", build files within any folder" : ""));
+        System.out.println("Concurrently checked repositories: " + Config.CONCURRENTREQUESTS);
+        System.out.println("Search pages fetched ahead: " + Math.max(0, Config.SEARCHPREFETCHPAGES));
+        System.out.println("Enrichment backend: " + Config.ENRICHMENTBACKEND);
+        System.out.println("Number of OAuth tokens: " + Config.OAUTHTOKENS.size());
+        System.out.println("Requests are sent with: " + GitHubToken.getTransport().getName());
+        System.out.println("Failed requests are sent up to: " + Config.RETRYMAXATTEMPTS + " times"
+                + (Config.HEDGEAFTERMILLIS > 0 ? ", slow requests are hedged after " + Config.HEDGEAFTERMILLIS + " ms" : ""));
+        System.out.println("Repositories that can't be checked are written to: " + deadLetterFile.getPath());
+        HttpArchive httpArchive = HttpArchive.getInstance();
+        if (httpArchive.isRecording())
+            System.out.println("Responses are recorded to: " + httpArchive.getArchivePath());
+        if (httpArchive.isReplaying())
+            System.out.println("Responses are replayed from: " + httpArchive.getArchivePath()
+                    + (Config.REPLAYRATELIMITS ? " (recorded rate limits)" : " (no rate limits)"));
+        if (Config.METRICSPORT > 0)
+            System.out.println("Metrics are served at: http://localhost:" + Config.METRICSPORT + "/metrics");
+        System.out.println("Output format: " + Config.OUTPUTFORMAT);
+        if (Config.OUTPUTFORMAT != OutputFormat.COLUMNAR && (Config.SHARDMAXRECORDS > 0 || Config.SHARDMAXMEGABYTES > 0))
+            System.out.println("Json shards are finished at: " + (Config.SHARDMAXRECORDS > 0 ? Config.SHARDMAXRECORDS + " repositories" : "")
+                    + (Config.SHARDMAXRECORDS > 0 && Config.SHARDMAXMEGABYTES > 0 ? " or " : "")
+                    + (Config.SHARDMAXMEGABYTES > 0 ? Config.SHARDMAXMEGABYTES + " MB" : ""));
         if(Config.FILEPATH.isEmpty())
             System.out.println("Output is written to: " + System.getProperty("user.dir"));
         else
@@ -103,37 +517,45 @@ public class GitHubCrawler {
         System.out.println("---------------------------------");
     }
 
-    private void initGitHubServices() {
-        repositoryService = new RepositoryService(client);
-        commitService = new CommitService(client);
-        contentsService = new ContentsService(client);
+    private void initEnrichmentBackend() {
+        switch (Config.ENRICHMENTBACKEND) {
+            case REST:
+                break;
+            case GRAPHQL:
+                if (Config.OAUTHTOKENS.isEmpty()) {
+                    System.err.println("The graphql enrichment backend requires an OAuth token. Config file not properly set up.\nShutting down.");
+                    System.exit(1);
+                }
+                if (Config.GRAPHQLBATCHSIZE < 1 || Config.GRAPHQLBATCHSIZE > 100) {
+                    System.err.println("graphqlBatchSize must be between 1 and 100. Config file not properly set up.\nShutting down.");
+                    System.exit(1);
+                }
+                graphQLEnricher = new GraphQLEnricher(tokenPool);
+                break;
+            default:
+                System.err.println("enrichmentBackend must be either rest or graphql. Config file not properly set up.\nShutting down.");
+                System.exit(1);
+        }
     }
 
     private void calcRequestLimits() {
-        //Request limit values are defined here : https://developer.github.com/v3/#rate-limiting
-        //Search Request limit values are defined here: https://developer.github.com/v3/search/#rate-limit
-        if(Config.OAUTHTOKEN.equals("")) {
-            requestRateLimiter = RateLimiter.create(60d/3600d);
-            searchRequestRateLimiter = RateLimiter.create(10d/60d);
-        } else { // assuming correct token was provided!
-            UserService userService = new UserService(client);
-            try {
-                if (userService.getUser() != null) { //Check if current user is correctly authenticated.
-                    System.out.println("Your current remaining request limit is: " + client.getRemainingRequests());
-                    requestRateLimiter = RateLimiter.create((double) client.getRemainingRequests() / 3600d);
+        if(!Config.OAUTHTOKENS.isEmpty()) {
+            for (GitHubToken token : tokenPool.getTokens()) {
+                if (token.verify()) { //Check if current user is correctly authenticated.
+                    // The rate limit headers of this response already retuned the request scheduler of the token.
+                    System.out.println("Your current remaining request limit of " + token.getName() + " is: "
+                            + token.getClient().getRemainingRequests());
                 }
-
-            } catch (IOException e) {
-                System.err.println(e.getMessage());
+            }
+            if (tokenPool.getTokens().isEmpty()) {
+                System.err.println("None of the OAuth tokens is valid.\nShutting down.");
                 System.exit(1);
             }
-            //Not possible to request the remaining amount of search requests, thus it is set to the maximum
-            // for authenticated users.
-            searchRequestRateLimiter = RateLimiter.create(30d/60d);
         }
 
-        System.out.println("Requests are throttled to " + requestRateLimiter.getRate() + " requests per second.");
-        System.out.println("Search requests are throttled to " + searchRequestRateLimiter.getRate() + " requests per second.");
+        System.out.println("Requests are throttled to " + tokenPool.getRate(RequestScheduler.CORE) + " requests per second.");
+        System.out.println("Search requests are throttled to " + tokenPool.getRate(RequestScheduler.SEARCH) + " requests per second.");
+        System.out.println("Both limits are adjusted to the rate limit headers of every response.");
         System.out.println("---------------------------------");
 
     }
@@ -143,27 +565,133 @@ public class GitHubCrawler {
      * The main entry point to start the crawler.
      */
     public void run() {
+        CrawlCheckpoint checkpoint = checkpointManager.restore();
+        if(checkpoint != null)
+            restoreCheckpoint(checkpoint);
+        if(Config.REDRIVEDEADLETTERS)
+            redriveDeadLetters();
+
+        if(leaseDirectory != null) {
+            windowCrawler.crawlLeasedWindows();
+            if(!leaseDirectory.isFinished()) {
+                printStats();
+                System.err.println("Not all search windows could be crawled completely.\n"
+                        + "Restart the crawler to resume them from the lease folder at: " + leaseDirectory.getDir());
+                System.exit(1);
+            }
+            System.out.println("All search windows were crawled by the nodes. Crawling Finished\n");
+            finishCrawl();
+            windowCrawler.mergeOutputs();
+            printStats();
+            System.out.println("Shutting down");
+            System.exit(0);
+        }
+        if(Config.SEARCHPLANNER) {
+            windowCrawler.crawlSearchWindows(checkpoint);
+            List<SearchWindow> remainingWindows = windowCrawler.getRemainingWindows();
+            if(!remainingWindows.isEmpty()) {
+                printStats();
+                System.err.println(remainingWindows.size() + " search windows couldn't be crawled completely.\n"
+                        + "Restart the crawler to resume them from the checkpoint at: " + FileHelper.getCheckpointFilePath());
+                System.exit(1);
+            }
+            System.out.println("All search windows were crawled. Crawling Finished\n");
+            finishCrawl();
+            printStats();
+            System.out.println("Shutting down");
+            System.exit(0);
+        }
+        if(checkpoint != null && checkpoint.getPage() > 0) // resume the interrupted query
+            filterRepositories(buildResumedSearchQuery(), checkpoint.getPage());
         while(true) {
-            filterRepositories(buildSearchQuery());
+            filterRepositories(buildSearchQuery(), 1);
         }
     }
 
     /**
-     * Function to authenticate to the GitHub client. Authenticated user have 5000 request per hour.
-     * Not authenticated users have 60 search requests per hour.
-     *
-     * @param oAuthToken The Github OAuth token for authentication.
-     * @return Either an authenticated ot not authenticated GithubClient.
+     * Restores the crawl frontier of the maxStars decrement loop of an interrupted crawl.
+     * @param checkpoint The checkpoint of the interrupted crawl.
      */
-    private GitHubClient authenticate(String oAuthToken) {
-        GitHubClient client = new GitHubClient();
-        try {
-            client.setOAuth2Token(oAuthToken);
-        } catch (Exception e) {
-            System.err.println("Authentication failed!");
-            System.err.println(e.getMessage());
+    private void restoreCheckpoint(CrawlCheckpoint checkpoint) {
+        maxStars = checkpoint.getMaxStars();
+        queryMaxStars = checkpoint.getQueryMaxStars();
+        repositoryChecker.setFoundRepo(checkpoint.isFoundRepoInLastQuery());
+        notFirstQuery = checkpoint.isNotFirstQuery();
+    }
+
+    /**
+     * Stores the current crawl frontier (see CheckpointManager).
+     * @param nextPage The next page of the current query of the maxStars decrement loop.
+     *                 0 if the next query has to be built first.
+     */
+    private void saveCheckpoint(int nextPage) {
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+        checkpoint.setMaxStars(maxStars);
+        checkpoint.setQueryMaxStars(queryMaxStars);
+        checkpoint.setPage(nextPage);
+        checkpoint.setFoundRepoInLastQuery(repositoryChecker.isFoundRepo());
+        checkpoint.setNotFirstQuery(notFirstQuery);
+        if (windowCrawler != null)
+            checkpoint.setRemainingWindows(windowCrawler.getRemainingWindows());
+        checkpointManager.save(checkpoint);
+    }
+
+    /**
+     * Checks the repositories of the dead letter file again, one search page at a time. Repositories that fail again
+     * are dead lettered once more.
+     */
+    private void redriveDeadLetters() {
+        List<DeadLetter> deadLetters = deadLetterFile.takeAll();
+        if (deadLetters.isEmpty())
+            return;
+        System.out.println("Re-driving " + deadLetters.size() + " dead lettered repositories.");
+        // The re-driven repositories don't belong to the query of the maxStars decrement loop.
+        boolean foundRepo = repositoryChecker.isFoundRepo();
+        long failedBefore = metrics.getDeadLetters();
+        // Dead letters of older crawls were searched with a single language.
+        Map<String, List<SearchRepository>> repositoriesByLanguage = new LinkedHashMap<>();
+        for (DeadLetter deadLetter : deadLetters) {
+            String language = deadLetter.getLanguage() != null ? deadLetter.getLanguage() : searchLanguages.get(0);
+            repositoriesByLanguage.computeIfAbsent(language, key -> new ArrayList<>())
+                    .add(new SearchRepository(deadLetter.getOwner(), deadLetter.getName()));
+        }
+        for (Map.Entry<String, List<SearchRepository>> languageRepositories : repositoriesByLanguage.entrySet()) {
+            List<SearchRepository> repositories = languageRepositories.getValue();
+            for (int from = 0; from < repositories.size(); from += SearchWindowCrawler.SEARCH_PAGE_SIZE)
+                repositoryChecker.checkRepositories(repositories.subList(from,
+                        Math.min(from + SearchWindowCrawler.SEARCH_PAGE_SIZE, repositories.size())),
+                        languageRepositories.getKey());
         }
-        return client;
+        repositoryChecker.setFoundRepo(foundRepo);
+        checkpointManager.flush();
+        deadLetterFile.finishRedrive();
+        System.out.println("Re-driven dead lettered repositories that failed again: " + (metrics.getDeadLetters() - failedBefore));
+        System.out.println("---------------------------------");
+    }
+
+    /**
+     * Rebuilds the search query that was interrupted, without progressing the maximum stars count.
+     * @return A Map of <String,String> search qualifiers.
+     */
+    private Map<String, String> buildResumedSearchQuery() {
+        Map<String, String> searchQuery = buildBaseQuery(searchLanguages.get(0));
+        searchQuery.put("sort", "stars");
+        if(queryMaxStars != Integer.MAX_VALUE)
+            searchQuery.put("stars", "<=" + queryMaxStars);
+        return searchQuery;
+    }
+
+    /**
+     * The search qualifiers shared by all search queries of a language.
+     * @param language The language to search for.
+     * @return A Map of <String,String> search qualifiers.
+     */
+    private Map<String, String> buildBaseQuery(String language) {
+        Map<String, String> searchQuery = new HashMap<String, String>();
+        searchQuery.put("language", language); //Search for repos with given searchlLanguage set in the config file
+        searchQuery.put("is", "public"); //Search for repos that are public
+        searchQuery.put("pushed", ">=" + lastPushedDate); // The pushed qualifier will return a list of repositories, sorted by the most recent commit made on any branch in the repository.
+        return searchQuery;
     }
 
     /**
@@ -174,12 +702,10 @@ public class GitHubCrawler {
      * @return A Map of <String,String> search qualifiers.
      */
     private Map<String, String> buildSearchQuery() {
-        Map<String, String> searchQuery = new HashMap<String, String>();
-        searchQuery.put("language", searchLanguage); //Search for repos with given searchlLanguage set in the config file
-        searchQuery.put("is", "public"); //Search for repos that are public
-        searchQuery.put("pushed", ">=" + lastPushedDate); // The pushed qualifier will return a list of repositories, sorted by the most recent commit made on any branch in the repository.
+        Map<String, String> searchQuery = buildBaseQuery(searchLanguages.get(0));
         searchQuery.put("sort", "stars");
 
+        boolean foundRepoInLastQuery = repositoryChecker.isFoundRepo();
         if(maxStars != Integer.MAX_VALUE && maxStars > 0 && foundRepoInLastQuery) {
             maxStars = maxStars - 1; // NOTE: Only the repositories that had exactly maxStars from the last query and were behind the 1000 results are omitted
             System.out.println("Querying repositories with maximum number of stars of '" + maxStars + "' from last repository of previous query.");
@@ -197,226 +723,119 @@ public class GitHubCrawler {
             System.exit(1);
         }
         notFirstQuery = true;
-        foundRepoInLastQuery = false;
+        repositoryChecker.setFoundRepo(false);
+        queryMaxStars = maxStars;
         if(maxStars <= 0) {
             //including 0 otherwise there is no other termination, due to the case that when the stars count reaches 0 and the query finds repositories,
             // it will set the stars count again to 0, resulting to the same query in a loop.
             System.out.println("Minimum value for stars reached. Crawling Finished\n");
-            System.out.println("----------PRINTING STATS----------");
-            long endTime   = System.nanoTime();
-            long duration = endTime - startTime;
-            System.out.println("Crawler started at: " + systemStartTime);
-            System.out.println("Crawler terminated at: " + formatter.format(calendar.getTime()));
-            System.out.println("Overall execution time in seconds: " + TimeUnit.NANOSECONDS.toSeconds(duration));
-            System.out.println("Overall execution time in minutes: " + (double)TimeUnit.NANOSECONDS.toSeconds(duration)/60);
-            System.out.println("Overall execution time in hours: " + (double)TimeUnit.NANOSECONDS.toSeconds(duration)/3600 + "\n");
-
-            System.out.println("Total amount of crawled repositories: " + checkedRepos);
-            System.out.println("Total amount of matching repositories: " + matchingRepos + "\n");
-
-            System.out.println("Amount of sent search requests: " + counterSearchRequests);
-            System.out.println("Amount of sent repository requests: " + counterRepositoryRequests);
-            System.out.println("Amount of sent content requests: " + counterContentRequests);
-            System.out.println("Amount of sent commit requests: " + counterCommitRequests);
-            System.out.println("Total amount of sent requests: " + (counterSearchRequests + counterRepositoryRequests + counterContentRequests + counterCommitRequests));
-
-            System.out.println("----------------------------------");
-
+            finishCrawl();
+            printStats();
             System.out.println("Shutting down");
             System.exit(0);
         }
         return searchQuery;
     }
 
-    /**
-     * Function that sends the search request.
-     * @param searchQuery The search query qualifiers.
-     * @param page The 0-10 pages to query.
-     * @return A List of SearchRepository objects containing metadata.
-     */
-    private List<SearchRepository> queryRepositories(Map<String, String> searchQuery, int page){
-        try {
-            //search requests also count as a general request and thus are also throttled
-            //by the general request limiter.
-            requestRateLimiter.acquire();
-            searchRequestRateLimiter.acquire();
-            counterSearchRequests++;
-            return repositoryService.searchRepositories(searchQuery, page);
-        } catch (IOException e) {
-            System.err.println("Something went wrong while performing the repository search request.\nAborting.\n");
-            System.err.println(e.getMessage());
-            System.exit(1);
+    private void printStats() {
+        System.out.println("----------PRINTING STATS----------");
+        long endTime   = System.nanoTime();
+        long duration = endTime - startTime;
+        System.out.println("Crawler started at: " + systemStartTime);
+        System.out.println("Crawler terminated at: " + formatter.format(calendar.getTime()));
+        System.out.println("Overall execution time in seconds: " + TimeUnit.NANOSECONDS.toSeconds(duration));
+        System.out.println("Overall execution time in minutes: " + (double)TimeUnit.NANOSECONDS.toSeconds(duration)/60);
+        System.out.println("Overall execution time in hours: " + (double)TimeUnit.NANOSECONDS.toSeconds(duration)/3600 + "\n");
+
+        System.out.println("Total amount of crawled repositories: " + metrics.getCheckedRepositories());
+        System.out.println("Total amount of matching repositories: " + metrics.getMatchingRepositories());
+        System.out.println("Amount of skipped, already checked repositories: " + repositoryChecker.getSkippedRepositories() + "\n");
+        if (!isSingleOutput()) {
+            for (String route : outputRouter.getRoutes())
+                System.out.println("Matching repositories of " + route + ": " + outputRouter.getWrittenRepositories(route));
+            System.out.println();
+        }
+        if (storedRepositories != null) {
+            System.out.println("Amount of unchanged stored repositories: " + repositoryChecker.getUnchangedRepositories());
+            System.out.println("Amount of stored repositories with new metadata only: " + repositoryChecker.getMetadataRefreshedRepositories());
+            System.out.println("Amount of stored repositories detected again: " + repositoryChecker.getRedetectedRepositories());
+            System.out.println("Amount of stored repositories that no longer match (kept unchanged): " + repositoryChecker.getNoLongerMatchingRepositories() + "\n");
+        }
+
+        System.out.println("Amount of sent search requests: " + metrics.getRequests(RequestType.SEARCH));
+        System.out.println("Amount of sent repository requests: " + metrics.getRequests(RequestType.REPOSITORY));
+        System.out.println("Amount of sent content requests: " + metrics.getRequests(RequestType.CONTENTS));
+        System.out.println("Amount of sent commit requests: " + metrics.getRequests(RequestType.COMMITS));
+        if (graphQLEnricher != null)
+            System.out.println("Amount of sent GraphQL queries: " + metrics.getRequests(RequestType.GRAPHQL) + " (" + graphQLEnricher.getSpentPoints() + " points)");
+        if (treeLister != null)
+            System.out.println("Amount of truncated trees: " + treeLister.getTruncatedTrees() + " (" + treeLister.getSubtreeRequests() + " subtree requests)");
+        System.out.println("Total amount of sent requests: " + metrics.getTotalRequests());
+        long retries = 0;
+        long circuitBreakerOpens = 0;
+        for (RequestType requestType : RequestType.values()) {
+            retries += metrics.getRetries(requestType);
+            circuitBreakerOpens += metrics.getCircuitBreakerOpens(requestType);
         }
-        return null;
+        System.out.println("Amount of retried requests: " + retries + " (circuit breakers opened " + circuitBreakerOpens + " times)");
+        if (Config.HEDGEAFTERMILLIS > 0)
+            System.out.println("Amount of hedged requests: " + metrics.getHedgedRequests());
+        System.out.println("Amount of dead lettered repositories: " + metrics.getDeadLetters());
+        System.out.println("Matching repositories per hour: " + String.format("%.1f", metrics.getMatchesPerHour()));
+        System.out.println("Bytes written to the output files: " + metrics.getOutputBytes());
+        HttpArchive httpArchive = HttpArchive.getInstance();
+        if (httpArchive.isRecording())
+            System.out.println("\nRecorded responses: " + httpArchive.getRecorded());
+        if (httpArchive.isReplaying()) {
+            System.out.println("\nReplayed responses: " + httpArchive.getReplayed());
+            System.out.println("Requests without a recorded response: " + httpArchive.getMissing());
+        }
+        HttpResponseCache responseCache = HttpResponseCache.getInstance();
+        if (responseCache.isEnabled() && !httpArchive.isEnabled()) {
+            System.out.println("\nHttp cache misses: " + responseCache.getMisses());
+            System.out.println("Http cache hits (conditional requests): " + responseCache.getRevalidations());
+            System.out.println("Hits answered with 304 Not Modified (not counted against the rate limit): " + responseCache.getNotModified());
+        }
+
+        System.out.println("----------------------------------");
     }
 
     /**
-     * Sends a query to get the repository model by its owner and repository name.
-     * @param searchRepository The repository to query for.
-     * @return The repository model.
+     * Crawls a search query of the maxStars decrement loop (see SearchQueryCrawler). The crawl frontier is stored after
+     * every page.
+     * @param searchQuery The search query to send.
+     * @param firstPage The first page to query. Greater 1 when an interrupted query is resumed.
      */
-    private Repository queryRepoByOwnerAndName(SearchRepository searchRepository) {
+    private void filterRepositories(Map<String, String> searchQuery, int firstPage) {
+        boolean moreRepositories;
         try {
-            requestRateLimiter.acquire();
-            counterRepositoryRequests++;
-            return repositoryService.getRepository(searchRepository.getOwner(), searchRepository.getName());
-        } catch(IOException e) {
-            System.err.println("Something went wrong while getting the Repository by Owner and repository Name. Skipping to next repository.");
-            System.err.println(e.getMessage());
+            moreRepositories = queryCrawler.crawl(searchQuery, firstPage);
+        } catch (UncheckedIOException e) {
+            System.err.println("Something went wrong while performing the repository search request.\n"
+                    + "Restart the crawler to resume the crawl from the checkpoint at: " + FileHelper.getCheckpointFilePath() + "\nAborting.\n");
+            System.err.println(e.getCause().getMessage());
+            System.exit(1);
+            return;
+        }
+        if (!moreRepositories) {
+            System.out.println("Crawling Finished.\nShutting down.");
+            finishCrawl();
+            System.exit(0);
         }
-        return null;
     }
 
     /**
-     * Function that searches for repository matches by iterating over the array response from the search query.
-     * I.e. by checking its root contents for the specified files within the config.properties file.
-     * If a matching is found all required metadata is collected and stored into the repositories.json file.
-     * @param searchQuery The search query to send.
+     * Progresses maxStars to the lowest stars count of a checked page and stores the crawl frontier.
+     * @param page The checked page of the current query.
+     * @param stars The stars count of every repository of the page.
      */
-    private void filterRepositories(Map<String, String> searchQuery) {
-
-        for (int page = 1; page <= 10; page++) {
-
-            List<SearchRepository> searchRepositoryResponse = queryRepositories(searchQuery, page);
-
-            if (searchRepositoryResponse.isEmpty()) { // If we reached a page number that returns no repositories (empty list) in the query.
-                System.out.println("Found " + searchRepositoryResponse.size() + " Repos by search at page " + page);
-                System.out.println("Crawling Finished.\nShutting down.");
-                System.exit(0);
-                break;
-            } else {
-
-                System.out.println("Query Response:\nNumber Repos: " + searchRepositoryResponse.size() + "\nOn page " + page + ".\n");
-
-                for (SearchRepository searchRepository : searchRepositoryResponse) {
-                    //Get the repository model.
-                    Repository repositoryOfOwnerAndName = queryRepoByOwnerAndName(searchRepository);
-                    if (repositoryOfOwnerAndName != null) {
-                        maxStars = repositoryOfOwnerAndName.getWatchers();
-                        System.out.println("-----------------------------------------------");
-                        System.out.println("Current maximum stars count: " + maxStars);
-                        checkedRepos++;
-                        //Detect BuildSystem subroutine
-                        BuildSystem foundBuildSystem = getFileContentsAtRootDir(repositoryOfOwnerAndName);
-                        if (foundBuildSystem == buildSystem) { //BuildSystem was detected. Create a new RMetaData object and store all information
-                            matchingRepos++;
-                            foundRepoInLastQuery = true;
-                            System.err.println("Overall detected repos: " + matchingRepos);
-                            RMetaData metaDataObject = createRMetaDataObject(repositoryOfOwnerAndName, foundBuildSystem);
-                            JsonWriter.getInstance().writeRepositoryToJson(metaDataObject);
-                        }
-                        System.out.println("Remaining Request: " + client.getRemainingRequests());
-                    }
-                }
-            }
-        }
-        System.out.println("Maximum number of 1000 repositories were processed within one search query.\nSkipping others due to limitation.");
-    }
-
-    /**
-     * Constructs the RMetaData object for later serialization into json and storage in to the repositories.json file.
-     * @param repository The Repository model
-     * @param buildSystem The BuildSystem of the repository.
-     * @return The RMetaData object.
-     */
-    private RMetaData createRMetaDataObject(Repository repository, BuildSystem buildSystem) {
-        RMetaData meteDataObject = new RMetaData(); //TODO: put this function into the model?
-        //Set all crawled fields
-        meteDataObject.setId(repository.getId());
-        meteDataObject.setName(repository.getName());
-        meteDataObject.setOwner(repository.getOwner().getLogin());
-        meteDataObject.setOwnerType(repository.getOwner().getType());
-        meteDataObject.setDescription(repository.getDescription());
-        meteDataObject.setLanguage(repository.getLanguage());
-        meteDataObject.setHasDownloads(repository.isHasDownloads());
-        meteDataObject.setSize(repository.getSize());
-        meteDataObject.setPushedAt(repository.getPushedAt());
-        meteDataObject.setCreatedAt(repository.getCreatedAt());
-        meteDataObject.setDefaultBranch(repository.getMasterBranch());
-        meteDataObject.setLatestCommitId(getLatestCommitId(repository));
-        meteDataObject.setPrivate(repository.isPrivate());
-        meteDataObject.setForksCount(repository.getForks());
-        meteDataObject.setOpenIssuesCount(repository.getOpenIssues());
-        meteDataObject.setStargazersCount(repository.getWatchers()); // NOTE: stargazers and watchers count are the same since 2012.
-                                                                     // The matchingRepos now only increases if a project is starred.
-                                                                     // SEE https://developer.github.com/changes/2012-09-05-watcher-api/
-        meteDataObject.setHtmlUrl(repository.getHtmlUrl());
-        meteDataObject.setCloneUrl(repository.getCloneUrl());
-        meteDataObject.setBuildSystem(buildSystem.toString());
-        meteDataObject.setBuildFilePath(buildSystem.getFilePaths());
-        //Setting default values
-        meteDataObject.setBuildStatus("UNKNOWN");
-        meteDataObject.setErrorMessage(new ArrayList<>());
-        meteDataObject.setPackageDependencies(new ArrayList<>());
-
-        return meteDataObject;
-    }
-
-    /**
-     * Gets the latest commit id (sha) from the repository default (master) branch.
-     *
-     * @param repository The repository we are currently looking at.
-     * @return The latest commit id as a String.
-     */
-    private String getLatestCommitId(Repository repository){
-        requestRateLimiter.acquire();
-        counterCommitRequests++;
-        PageIterator<RepositoryCommit> repositoryCommitList = commitService.pageCommits(repository, 1);
-        if(repositoryCommitList.hasNext())
-            return repositoryCommitList.next().iterator().next().getSha();
-        else return "";
-    }
-
-    /**
-     * Detects if the repository contains specific build files required by the currently searched build system.
-     *
-     * @param repository The repository to detect the build system from
-     * @return The detected BuildSystem
-     */
-    private BuildSystem getFileContentsAtRootDir(Repository repository) {
-        BuildSystem detectedBuildSystem = BuildSystem.UNKNOWN;
-        List<String> filePaths = new ArrayList<>();
-
-        try {
-            requestRateLimiter.acquire();
-            List<RepositoryContents> repositoryContents = contentsService.getContents(repository);
-           // contentsService.getContents(repository, "path/to/folder"); //TODO: use this function to search for files on specific path!
-            counterContentRequests++;
-            switch (buildSystem) {
-                case CMAKE:
-                    if(repositoryContents.stream().anyMatch(o -> o.getName().equals(BuildSystem.CMAKE.getBuildFiles()[0]))) {
-                        // filePaths.add(""); // set here the filepath to the given file.
-                        //check github library docu for requesting all files within a given path!
-                        detectedBuildSystem = BuildSystem.CMAKE;
-                    }
-                    break;
-                case AUTOTOOLS://((configure.ac || configure.in) && Makefile.am))
-                    if(((repositoryContents.stream().anyMatch(o -> o.getName().equals(BuildSystem.AUTOTOOLS.getBuildFiles()[0])) ||
-                        repositoryContents.stream().anyMatch(o -> o.getName().equals(BuildSystem.AUTOTOOLS.getBuildFiles()[1]))) &&
-                        repositoryContents.stream().anyMatch(o -> o.getName().equals(BuildSystem.AUTOTOOLS.getBuildFiles()[2])))) {
-                        detectedBuildSystem = BuildSystem.AUTOTOOLS;
-                    }
-                    break;
-                case MAKE:
-                    if(repositoryContents.stream().anyMatch(o -> o.getName().equals(BuildSystem.MAKE.getBuildFiles()[0]))) {
-                        detectedBuildSystem = BuildSystem.MAKE;
-                    }
-                    break;
-                case CUSTOM:
-                    if(repositoryContents.stream().anyMatch(o -> o.getName().equals(Config.CUSTOMFILE))) {
-                        detectedBuildSystem = BuildSystem.CUSTOM;
-                    }
-                    break;
-                default:
-                    System.out.println("Running default");
-                    detectedBuildSystem = BuildSystem.UNKNOWN;
-                    break;
-            }
-        } catch (IOException e) {
-            System.err.println("Something went wrong while querying the repository contents.\n");
-            System.err.println(e.getMessage());
+    private void onPageChecked(int page, List<Integer> stars) {
+        // The search response is sorted by stars, so the last checked repository holds the lowest stars count.
+        for (Integer repositoryStars : stars) {
+            if (repositoryStars != null)
+                maxStars = repositoryStars;
         }
-        detectedBuildSystem.setFilePaths(filePaths);
-        return detectedBuildSystem;
+        System.out.println("Current maximum stars count: " + maxStars);
+        saveCheckpoint(page < SearchQueryCrawler.MAX_PAGES ? page + 1 : 0);
     }
 }
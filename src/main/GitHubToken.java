@@ -0,0 +1,120 @@
+package main;
+
+import Models.HttpTransportType;
+import org.eclipse.egit.github.core.service.CommitService;
+import org.eclipse.egit.github.core.service.ContentsService;
+import org.eclipse.egit.github.core.service.DataService;
+import org.eclipse.egit.github.core.service.RepositoryService;
+import org.eclipse.egit.github.core.service.UserService;
+import utils.Http2Transport;
+import utils.HttpArchive;
+import utils.HttpResponseCache;
+import utils.HttpTransport;
+import utils.UrlConnectionTransport;
+
+/**
+ * A single OAuth token of the TokenPool together with its own client, services and request scheduler.
+ */
+public class GitHubToken {
+
+    private final String name;
+    private final CrawlerGitHubClient client;
+    private final RequestScheduler requestScheduler;
+    private final RepositoryService repositoryService;
+    private final CommitService commitService;
+    private final ContentsService contentsService;
+    private final DataService dataService;
+
+    /**
+     * @param name The name used in log messages. The token itself is never printed.
+     * @param oAuthToken The Github OAuth token or an empty String for unauthenticated requests.
+     * @param apiUrl The base URL of the API.
+     */
+    public GitHubToken(String name, String oAuthToken, String apiUrl) {
+        this.name = name;
+        this.requestScheduler = createRequestScheduler(oAuthToken);
+        this.client = CrawlerGitHubClient.create(apiUrl, requestScheduler);
+        if (!oAuthToken.isEmpty())
+            client.setOAuth2Token(oAuthToken);
+        client.setTransport(getTransport());
+        // Conditional requests would record "304 Not Modified" responses without a body.
+        if (HttpArchive.getInstance().isEnabled())
+            client.setHttpArchive(HttpArchive.getInstance());
+        else if (HttpResponseCache.getInstance().isEnabled())
+            client.setResponseCache(HttpResponseCache.getInstance(), oAuthToken);
+        this.repositoryService = new RepositoryService(client);
+        this.commitService = new CommitService(client);
+        this.contentsService = new ContentsService(client);
+        this.dataService = new DataService(client);
+    }
+
+    /**
+     * Creates the request scheduler with the documented default limits. The limits are retuned with the rate limit
+     * headers of every response later on. Replayed requests aren't throttled at all, unless the recorded rate limits
+     * are replayed as well (see Config.REPLAYRATELIMITS).
+     * @param oAuthToken The Github OAuth token for authentication.
+     * @return The request scheduler.
+     */
+    private static RequestScheduler createRequestScheduler(String oAuthToken) {
+        if (HttpArchive.getInstance().isReplaying() && !Config.REPLAYRATELIMITS)
+            return RequestScheduler.unlimited();
+        //Request limit values are defined here : https://developer.github.com/v3/#rate-limiting
+        //Search Request limit values are defined here: https://developer.github.com/v3/search/#rate-limit
+        //GraphQL point limit values are defined here: https://developer.github.com/v4/guides/resource-limitations/
+        if (oAuthToken.isEmpty()) // The GraphQL API is not available without authentication.
+            return new RequestScheduler(60d/3600d, 10d/60d, 1d/3600d);
+        return new RequestScheduler(5000d/3600d, 30d/60d, 5000d/3600d);
+    }
+
+    /**
+     * @return The transport of Config.HTTPTRANSPORT. It is shared by all tokens, so that their requests are multiplexed
+     * over the same connections.
+     */
+    static HttpTransport getTransport() {
+        if (Config.HTTPTRANSPORT == HttpTransportType.URLCONNECTION)
+            return UrlConnectionTransport.getInstance();
+        return Http2Transport.getInstance();
+    }
+
+    /**
+     * Checks if the token is accepted by GitHub. Invalid tokens are taken out of rotation.
+     * @return True if the token is valid.
+     */
+    public boolean verify() {
+        try {
+            return new UserService(client).getUser() != null;
+        } catch (Exception e) {
+            System.err.println("Authentication with " + name + " failed! " + e.getMessage());
+            requestScheduler.disable();
+            return false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CrawlerGitHubClient getClient() {
+        return client;
+    }
+
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    public RepositoryService getRepositoryService() {
+        return repositoryService;
+    }
+
+    public CommitService getCommitService() {
+        return commitService;
+    }
+
+    public ContentsService getContentsService() {
+        return contentsService;
+    }
+
+    public DataService getDataService() {
+        return dataService;
+    }
+}
@@ -0,0 +1,188 @@
+package main;
+
+import Models.EnrichedRepository;
+import Models.RequestType;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.SearchRepository;
+import org.eclipse.egit.github.core.User;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enrichment backend that collects the root contents, the metadata and the latest commit of a whole batch of
+ * repositories with a single aliased GraphQL query, instead of three REST requests per repository.
+ *
+ * GraphQL queries are limited by points instead of requests. Each query also asks for its own cost, which is used as the
+ * expected cost of the next query and retunes the graphql resource of the RequestScheduler of the token.
+ * SEE: https://developer.github.com/v4/guides/resource-limitations/
+ */
+public class GraphQLEnricher {
+
+    private static final String REPOSITORY_FIELDS = "fragment repositoryFields on Repository {"
+            + " databaseId name description isPrivate diskUsage forkCount createdAt pushedAt url"
+            + " owner { login __typename }"
+            + " primaryLanguage { name }"
+            + " stargazers { totalCount }"
+            + " issues(states: OPEN) { totalCount }"
+            + " pullRequests(states: OPEN) { totalCount }"
+            + " defaultBranchRef { name target { oid } }"
+            + " object(expression: \"HEAD:\") { ... on Tree { entries { name } } }"
+            + " }";
+
+    private final TokenPool tokenPool;
+    private final AtomicLong spentPoints = new AtomicLong();
+    private volatile int expectedCost = 1;
+
+    public GraphQLEnricher(TokenPool tokenPool) {
+        this.tokenPool = tokenPool;
+    }
+
+    /**
+     * Fetches a batch of repositories with a single query.
+     * @param repositories The repositories of the search response, at most 100.
+     * @return The enriched repositories in the order of the given repositories. Null for repositories that couldn't be
+     * resolved, i.e. deleted or renamed since the search.
+     * @throws IOException If the query failed as a whole.
+     */
+    public List<EnrichedRepository> fetch(List<SearchRepository> repositories) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        params.put("query", buildQuery(repositories));
+
+        GitHubToken token = tokenPool.acquire(RequestType.GRAPHQL, expectedCost);
+        JsonObject response = token.getClient().post(CrawlerGitHubClient.GRAPHQL_URI, params, JsonObject.class);
+        JsonObject data = getObject(response, "data");
+        if (data == null)
+            throw new IOException("GraphQL query failed: " + response.get("errors"));
+        updateBudget(token, getObject(data, "rateLimit"));
+
+        List<EnrichedRepository> enrichedRepositories = new ArrayList<>();
+        for (int i = 0; i < repositories.size(); i++) {
+            JsonObject node = getObject(data, "r" + i);
+            enrichedRepositories.add(node == null ? null : toEnrichedRepository(node));
+        }
+        return enrichedRepositories;
+    }
+
+    /**
+     * @return The sum of the points of all queries sent so far.
+     */
+    public long getSpentPoints() {
+        return spentPoints.get();
+    }
+
+    private String buildQuery(List<SearchRepository> repositories) {
+        StringBuilder query = new StringBuilder("query { rateLimit { limit cost remaining resetAt }");
+        for (int i = 0; i < repositories.size(); i++) {
+            SearchRepository repository = repositories.get(i);
+            query.append(" r").append(i)
+                    .append(": repository(owner: ").append(quote(repository.getOwner()))
+                    .append(", name: ").append(quote(repository.getName()))
+                    .append(") { ...repositoryFields }");
+        }
+        return query.append(" } ").append(REPOSITORY_FIELDS).toString();
+    }
+
+    private void updateBudget(GitHubToken token, JsonObject rateLimit) {
+        if (rateLimit == null)
+            return;
+        int cost = getInt(rateLimit, "cost");
+        spentPoints.addAndGet(cost);
+        expectedCost = Math.max(1, cost);
+        Date resetAt = getDate(rateLimit, "resetAt");
+        if (resetAt != null)
+            token.getRequestScheduler().updateLimits(RequestScheduler.GRAPHQL, getInt(rateLimit, "limit"),
+                    getInt(rateLimit, "remaining"), resetAt.getTime() / 1000);
+    }
+
+    /**
+     * Maps the GraphQL fields onto the Repository model of the REST API.
+     */
+    private EnrichedRepository toEnrichedRepository(JsonObject node) {
+        Repository repository = new Repository();
+        repository.setId(getInt(node, "databaseId"));
+        repository.setName(getString(node, "name"));
+        JsonObject owner = getObject(node, "owner");
+        if (owner != null)
+            repository.setOwner(new User().setLogin(getString(owner, "login")).setType(getString(owner, "__typename")));
+        repository.setDescription(getString(node, "description"));
+        JsonObject primaryLanguage = getObject(node, "primaryLanguage");
+        repository.setLanguage(primaryLanguage == null ? null : getString(primaryLanguage, "name"));
+        repository.setHasDownloads(true); // not part of the GraphQL API, always true for public repositories
+        repository.setSize(getInt(node, "diskUsage"));
+        repository.setCreatedAt(getDate(node, "createdAt"));
+        repository.setPushedAt(getDate(node, "pushedAt"));
+        repository.setPrivate(node.has("isPrivate") && node.get("isPrivate").getAsBoolean());
+        repository.setForks(getInt(node, "forkCount"));
+        // Like the REST API, the open issues count includes the open pull requests.
+        repository.setOpenIssues(getTotalCount(node, "issues") + getTotalCount(node, "pullRequests"));
+        repository.setWatchers(getTotalCount(node, "stargazers"));
+        String url = getString(node, "url");
+        repository.setHtmlUrl(url);
+        repository.setCloneUrl(url == null ? null : url + ".git");
+
+        String latestCommitId = "";
+        JsonObject defaultBranchRef = getObject(node, "defaultBranchRef");
+        if (defaultBranchRef != null) { // null for empty repositories
+            repository.setMasterBranch(getString(defaultBranchRef, "name"));
+            JsonObject target = getObject(defaultBranchRef, "target");
+            if (target != null)
+                latestCommitId = getString(target, "oid");
+        }
+
+        List<String> rootFileNames = new ArrayList<>();
+        JsonObject tree = getObject(node, "object");
+        if (tree != null && tree.has("entries")) {
+            JsonArray entries = tree.getAsJsonArray("entries");
+            for (JsonElement entry : entries)
+                rootFileNames.add(getString(entry.getAsJsonObject(), "name"));
+        }
+        return new EnrichedRepository(repository, Collections.unmodifiableList(rootFileNames), latestCommitId);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static JsonObject getObject(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element == null || !element.isJsonObject() ? null : element.getAsJsonObject();
+    }
+
+    private static String getString(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private static int getInt(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element == null || element.isJsonNull() ? 0 : element.getAsInt();
+    }
+
+    private static int getTotalCount(JsonObject object, String member) {
+        JsonObject connection = getObject(object, member);
+        return connection == null ? 0 : getInt(connection, "totalCount");
+    }
+
+    private static Date getDate(JsonObject object, String member) {
+        String value = getString(object, member);
+        if (value == null)
+            return null;
+        try {
+            return Date.from(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -9,7 +9,7 @@ public class MainCrawler {
 
     public static void main(String[] args) {
         //Init crawler with configuration.
-        GitHubCrawler crawler = new GitHubCrawler(Config.LANGUAGE, Config.LASTPUSHEDDATE, Config.STARSDECREASEAMOUNT, Config.BUILDSYSTEM, Config.OAUTHTOKEN);
+        GitHubCrawler crawler = new GitHubCrawler(Config.LANGUAGES, Config.LASTPUSHEDDATE, Config.STARSDECREASEAMOUNT, Config.BUILDSYSTEMS, Config.OAUTHTOKENS);
         //Start the crawler.
         crawler.run();
 
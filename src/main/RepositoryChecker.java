@@ -0,0 +1,728 @@
+package main;
+
+import Models.BuildSystem;
+import Models.BuildSystemDetection;
+import Models.DeadLetter;
+import Models.EnrichedRepository;
+import Models.GitHubRepository;
+import Models.RMetaData;
+import Models.RequestFailure;
+import Models.RequestType;
+import com.google.gson.reflect.TypeToken;
+import org.eclipse.egit.github.core.IRepositoryIdProvider;
+import org.eclipse.egit.github.core.Repository;
+import org.eclipse.egit.github.core.RepositoryCommit;
+import org.eclipse.egit.github.core.RepositoryContents;
+import org.eclipse.egit.github.core.SearchRepository;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.NoSuchPageException;
+import org.eclipse.egit.github.core.client.PageIterator;
+import utils.DeadLetterFile;
+import utils.HttpTransport;
+import utils.JsonReader;
+import utils.Metrics;
+import utils.RepositoryRouter;
+import utils.SeenRepositoryIndex;
+import utils.StoredRepositoryIndex;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the repositories of a search page for the searched build systems and writes the matching ones to their
+ * outputs.
+ *
+ * The repositories of a page are checked concurrently on the enrichment executor, either one by one using the REST
+ * API or in batches using the GraphQL API. Repositories that were already checked are skipped without sending any
+ * request (see SeenRepositoryIndex), those stored by an earlier crawl are refreshed instead (see StoredRepositoryIndex).
+ * Repositories that can't be checked, even after all retries, are dead lettered.
+ */
+public class RepositoryChecker {
+
+    /**
+     * The BuildSystems to detect and filter for. All of them are checked with the same contents request.
+     */
+    private final List<BuildSystem> buildSystems;
+    private final BuildSystemDetector buildSystemDetector;
+    private final TokenPool tokenPool;
+    private final RequestExecutor requestExecutor;
+    private final DeadLetterFile deadLetterFile;
+    private final SeenRepositoryIndex seenRepositories;
+    /**
+     * The repositories stored within the json file by earlier crawls. Null unless Config.INCREMENTALCRAWL is set.
+     */
+    private final StoredRepositoryIndex storedRepositories;
+    private final RepositoryRouter outputRouter;
+    /**
+     * Checks whole batches of repositories with single GraphQL queries. Null if the REST backend is used.
+     */
+    private final GraphQLEnricher graphQLEnricher;
+    /**
+     * Lists the whole tree of a repository for the detection. Null if only the root directory is checked.
+     */
+    private final RepositoryTreeLister treeLister;
+    /**
+     * Checks the repositories of a search page concurrently. The bounded queue together with the
+     * CallerRunsPolicy throttles the submission of new repositories (backpressure).
+     */
+    private final ThreadPoolExecutor enrichmentExecutor;
+    private final Metrics metrics = Metrics.getInstance();
+    private final AtomicInteger skippedRepos = new AtomicInteger();
+    // Set once a matching repository was found, reset by the maxStars decrement loop with every query.
+    private volatile boolean foundRepo;
+    // The repositories handled by this incremental crawl, so that overlapping search results don't refresh them twice.
+    private final Set<Long> refreshedKeys = ConcurrentHashMap.newKeySet();
+    // The refreshed stored repositories by their index within the json array. Written once the crawl finished.
+    private final Map<Integer, RMetaData> refreshedRepositories = new ConcurrentHashMap<>();
+    private final AtomicInteger unchangedRepos = new AtomicInteger();
+    private final AtomicInteger metadataRefreshedRepos = new AtomicInteger();
+    private final AtomicInteger redetectedRepos = new AtomicInteger();
+    private final AtomicInteger noLongerMatchingRepos = new AtomicInteger();
+
+    /**
+     * @param buildSystems The searched build systems.
+     * @param buildSystemDetector Detects all build systems of a repository at once.
+     * @param tokenPool The OAuth tokens the requests are distributed on.
+     * @param requestExecutor Sends the requests and retries them on failure.
+     * @param deadLetterFile The repositories that couldn't be checked, even after all retries.
+     * @param seenRepositories All repositories checked so far, including those of earlier crawls.
+     * @param storedRepositories The repositories of earlier crawls to refresh, null unless the crawl is incremental.
+     * @param outputRouter The outputs of every language and build system.
+     * @param graphQLEnricher The GraphQL backend, null for the REST backend.
+     * @param treeLister Lists the whole tree of a repository, null if only the root directory is checked.
+     */
+    public RepositoryChecker(List<BuildSystem> buildSystems, BuildSystemDetector buildSystemDetector, TokenPool tokenPool,
+                             RequestExecutor requestExecutor, DeadLetterFile deadLetterFile, SeenRepositoryIndex seenRepositories,
+                             StoredRepositoryIndex storedRepositories, RepositoryRouter outputRouter,
+                             GraphQLEnricher graphQLEnricher, RepositoryTreeLister treeLister) {
+        this.buildSystems = buildSystems;
+        this.buildSystemDetector = buildSystemDetector;
+        this.tokenPool = tokenPool;
+        this.requestExecutor = requestExecutor;
+        this.deadLetterFile = deadLetterFile;
+        this.seenRepositories = seenRepositories;
+        this.storedRepositories = storedRepositories;
+        this.outputRouter = outputRouter;
+        this.graphQLEnricher = graphQLEnricher;
+        this.treeLister = treeLister;
+        int threads = Math.max(1, Config.CONCURRENTREQUESTS);
+        this.enrichmentExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads), runnable -> {
+                    Thread thread = new Thread(runnable, "repository-enrichment");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @return True if a matching repository was found since the flag was reset, including skipped and refreshed ones.
+     */
+    public boolean isFoundRepo() {
+        return foundRepo;
+    }
+
+    public void setFoundRepo(boolean foundRepo) {
+        this.foundRepo = foundRepo;
+    }
+
+    /**
+     * @return The number of repositories skipped as already checked.
+     */
+    public int getSkippedRepositories() {
+        return skippedRepos.get();
+    }
+
+    public int getUnchangedRepositories() {
+        return unchangedRepos.get();
+    }
+
+    public int getMetadataRefreshedRepositories() {
+        return metadataRefreshedRepos.get();
+    }
+
+    public int getRedetectedRepositories() {
+        return redetectedRepos.get();
+    }
+
+    public int getNoLongerMatchingRepositories() {
+        return noLongerMatchingRepos.get();
+    }
+
+    /**
+     * @return The refreshed stored repositories by their index within the json array.
+     */
+    public Map<Integer, RMetaData> getRefreshedRepositories() {
+        return refreshedRepositories;
+    }
+
+    /**
+     * Checks all repositories of a search page concurrently on the enrichment executor, either one by one using the
+     * REST API or in batches of Config.GRAPHQLBATCHSIZE repositories using the GraphQL API.
+     * @param repositories The repositories of the search page.
+     * @param language The language the repositories were searched with.
+     * @return The stars count of every repository in the order of the page. Null for repositories that couldn't be checked.
+     */
+    public List<Integer> checkRepositories(List<SearchRepository> repositories, String language) {
+        List<Integer> stars = new ArrayList<>();
+        if (graphQLEnricher == null) {
+            List<Future<Integer>> checkedRepositories = new ArrayList<>();
+            for (SearchRepository searchRepository : repositories)
+                checkedRepositories.add(enrichmentExecutor.submit(() -> checkRepository(searchRepository, language)));
+            for (Future<Integer> checkedRepository : checkedRepositories)
+                stars.add(awaitCheckedRepository(checkedRepository));
+            return stars;
+        }
+
+        List<List<SearchRepository>> batches = new ArrayList<>();
+        List<Future<List<Integer>>> checkedBatches = new ArrayList<>();
+        for (int from = 0; from < repositories.size(); from += Config.GRAPHQLBATCHSIZE) {
+            List<SearchRepository> batch = repositories.subList(from, Math.min(from + Config.GRAPHQLBATCHSIZE, repositories.size()));
+            batches.add(batch);
+            checkedBatches.add(enrichmentExecutor.submit(() -> checkRepositoryBatch(batch, language)));
+        }
+        for (int i = 0; i < checkedBatches.size(); i++) {
+            List<Integer> batchStars = awaitCheckedRepository(checkedBatches.get(i));
+            if (batchStars == null)
+                batchStars = Collections.nCopies(batches.get(i).size(), null);
+            stars.addAll(batchStars);
+        }
+        return stars;
+    }
+
+    /**
+     * Stores a repository that couldn't be checked in the dead letter file.
+     * @param repositoryId The owner and the name of the repository, i.e. "owner/name".
+     * @param language The language the repository was searched with.
+     * @param requestType The request that failed.
+     * @param failure The failure of the last attempt.
+     */
+    private void deadLetter(String repositoryId, String language, RequestType requestType, Throwable failure) {
+        int slash = repositoryId.indexOf('/');
+        metrics.countDeadLetter();
+        deadLetterFile.add(new DeadLetter(repositoryId.substring(0, slash), repositoryId.substring(slash + 1), language,
+                requestType, RequestExecutor.classify(failure), HttpTransport.unwrap(failure).getMessage(), Instant.now().toString()));
+    }
+
+    /**
+     * Marks a repository that was already checked as skipped.
+     * @param searchRepository The repository of the search response.
+     * @param seenKey The key of the repository within the seen repositories index.
+     * @return True if the repository was checked by an overlapping query or an earlier crawl.
+     */
+    private boolean skipIfSeen(SearchRepository searchRepository, long seenKey) {
+        int seen = seenRepositories.lookup(seenKey);
+        if (seen == SeenRepositoryIndex.NOT_SEEN)
+            return false;
+        // The search of an incremental crawl only returns repositories pushed since, they could match by now.
+        if (seen == SeenRepositoryIndex.NOT_MATCHING && storedRepositories != null && refreshedKeys.add(seenKey))
+            return false;
+        skippedRepos.incrementAndGet();
+        if (seen == SeenRepositoryIndex.MATCHING)
+            foundRepo = true;
+        return true;
+    }
+
+    /**
+     * Checks a batch of repositories with a single GraphQL query, which returns the root contents, the metadata and the
+     * latest commit of all of them. Runs concurrently on the enrichment executor.
+     * @param batch The repositories of the search response.
+     * @param language The language the repositories were searched with.
+     * @return The stars count of every repository of the batch. Null for repositories that couldn't be checked.
+     */
+    private List<Integer> checkRepositoryBatch(List<SearchRepository> batch, String language) {
+        List<Integer> stars = new ArrayList<>();
+        List<SearchRepository> unseenRepositories = new ArrayList<>();
+        List<Long> seenKeys = new ArrayList<>();
+        Map<SearchRepository, Integer> refreshedStars = new IdentityHashMap<>();
+        for (SearchRepository searchRepository : batch) {
+            long seenKey = SeenRepositoryIndex.key(searchRepository.getOwner(), searchRepository.getName());
+            int storedIndex = takeStoredRepository(seenKey);
+            if (storedIndex != StoredRepositoryIndex.NOT_STORED) {
+                refreshedStars.put(searchRepository, refreshStoredRepository(searchRepository, language, seenKey, storedIndex));
+            } else if (!skipIfSeen(searchRepository, seenKey)) {
+                unseenRepositories.add(searchRepository);
+                seenKeys.add(seenKey);
+            }
+        }
+        List<EnrichedRepository> enrichedRepositories = Collections.emptyList();
+        if (!unseenRepositories.isEmpty()) {
+            try {
+                List<SearchRepository> repositories = unseenRepositories;
+                enrichedRepositories = requestExecutor.execute(RequestType.GRAPHQL,
+                        "GraphQL query of " + repositories.size() + " repositories", () -> graphQLEnricher.fetch(repositories));
+            } catch (IOException e) {
+                System.err.println("Something went wrong while performing the GraphQL query. Skipping " + unseenRepositories.size() + " repositories.");
+                System.err.println(e.getMessage());
+                for (SearchRepository searchRepository : unseenRepositories)
+                    deadLetter(searchRepository.generateId(), language, RequestType.GRAPHQL, e);
+                enrichedRepositories = Collections.nCopies(unseenRepositories.size(), null);
+            }
+        }
+
+        int next = 0;
+        for (SearchRepository searchRepository : batch) {
+            if (refreshedStars.containsKey(searchRepository)) {
+                stars.add(refreshedStars.get(searchRepository));
+                continue;
+            }
+            if (next >= unseenRepositories.size() || unseenRepositories.get(next) != searchRepository) {
+                stars.add(searchRepository.getWatchers()); // skipped, already checked
+                continue;
+            }
+            EnrichedRepository enrichedRepository = enrichedRepositories.get(next);
+            long seenKey = seenKeys.get(next);
+            next++;
+            if (enrichedRepository == null) {
+                stars.add(null);
+                continue;
+            }
+            // The GraphQL query only lists the root directory, the whole tree is requested separately.
+            BuildSystemDetection detection = treeLister != null ? getFileContentsAtRootDir(enrichedRepository.getRepository(), language)
+                    : buildSystemDetector.detect(enrichedRepository.getRootFileNames());
+            if (detection == null) {
+                stars.add(null);
+                continue;
+            }
+            metrics.countCheckedRepository();
+            if (isMatch(detection)) {
+                foundRepo = true;
+                System.err.println("Overall detected repos: " + metrics.countMatchingRepository());
+                writeMatches(language, enrichedRepository.getRepository(), detection, enrichedRepository.getLatestCommitId());
+            }
+            seenRepositories.add(seenKey, isMatch(detection));
+            stars.add(enrichedRepository.getRepository().getWatchers());
+        }
+        return stars;
+    }
+
+    /**
+     * Checks a single repository of the search response for the searched build system and stores it if it matches.
+     * Runs concurrently on the enrichment executor.
+     * @param searchRepository The repository of the search response.
+     * @param language The language the repository was searched with.
+     * @return The stars count of the repository or null if it couldn't be checked.
+     */
+    private Integer checkRepository(SearchRepository searchRepository, String language) {
+        long seenKey = SeenRepositoryIndex.key(searchRepository.getOwner(), searchRepository.getName());
+        int storedIndex = takeStoredRepository(seenKey);
+        if (storedIndex != StoredRepositoryIndex.NOT_STORED)
+            return refreshStoredRepository(searchRepository, language, seenKey, storedIndex);
+        if (skipIfSeen(searchRepository, seenKey))
+            return searchRepository.getWatchers();
+        if (Config.FETCHREPOSITORYONMATCHONLY)
+            return checkSearchRepository(searchRepository, language, seenKey);
+
+        //Get the repository model and its contents at once, the contents request only needs the owner and the name.
+        CompletableFuture<Repository> repositoryModel = fetchRepoByOwnerAndName(searchRepository);
+        CompletableFuture<BuildSystemDetection> repositoryDetection = detectBuildSystems(searchRepository, language);
+        Repository repositoryOfOwnerAndName = awaitRepository(searchRepository, language, repositoryModel);
+        //Detect BuildSystem subroutine
+        BuildSystemDetection detection = repositoryDetection.join();
+        if (repositoryOfOwnerAndName != null && detection != null) {
+            metrics.countCheckedRepository();
+            if (isMatch(detection)) { //BuildSystem was detected. Create a new RMetaData object and store all information
+                foundRepo = true;
+                System.err.println("Overall detected repos: " + metrics.countMatchingRepository());
+                writeMatches(language, repositoryOfOwnerAndName, detection, getLatestCommitId(repositoryOfOwnerAndName));
+            }
+            seenRepositories.add(seenKey, isMatch(detection));
+            System.out.println("Remaining Request: " + tokenPool.getRemainingRequests());
+            return repositoryOfOwnerAndName.getWatchers();
+        }
+        return null;
+    }
+
+    /**
+     * Checks the root contents using the search response only. The repository model, which is required for the
+     * RMetaData object, is only requested for matching repositories.
+     * @param searchRepository The repository of the search response.
+     * @param language The language the repository was searched with.
+     * @param seenKey The key of the repository within the seen repositories index.
+     * @return The stars count of the repository or null if its contents couldn't be requested.
+     */
+    private Integer checkSearchRepository(SearchRepository searchRepository, String language, long seenKey) {
+        //Detect BuildSystem subroutine
+        BuildSystemDetection detection = getFileContentsAtRootDir(searchRepository, language);
+        if (detection == null)
+            return null;
+        metrics.countCheckedRepository();
+        if (isMatch(detection)) {
+            Repository repositoryOfOwnerAndName = queryRepoByOwnerAndName(searchRepository, language);
+            if (repositoryOfOwnerAndName != null) {
+                foundRepo = true;
+                System.err.println("Overall detected repos: " + metrics.countMatchingRepository());
+                writeMatches(language, repositoryOfOwnerAndName, detection, getLatestCommitId(repositoryOfOwnerAndName));
+                seenRepositories.add(seenKey, true);
+            }
+        } else {
+            seenRepositories.add(seenKey, false);
+        }
+        System.out.println("Remaining Request: " + tokenPool.getRemainingRequests());
+        return searchRepository.getWatchers();
+    }
+
+    /**
+     * @param seenKey The key of a repository of the search response.
+     * @return The index of the repository within the json array if it was stored by an earlier crawl and isn't
+     * refreshed by this incremental crawl yet, otherwise NOT_STORED.
+     */
+    private int takeStoredRepository(long seenKey) {
+        if (storedRepositories == null)
+            return StoredRepositoryIndex.NOT_STORED;
+        int storedIndex = storedRepositories.lookup(seenKey);
+        if (storedIndex == StoredRepositoryIndex.NOT_STORED || !refreshedKeys.add(seenKey))
+            return StoredRepositoryIndex.NOT_STORED;
+        return storedIndex;
+    }
+
+    /**
+     * Refreshes a repository stored by an earlier crawl. Unless it was pushed since, nothing is requested. Otherwise
+     * only the head of its default branch is requested, and the contents and the repository model only if the head
+     * moved. The updated record keeps the fields that were collected after the crawl (i.e. the build status and the
+     * dependencies) and replaces the stored record once the crawl finished (see GitHubCrawler.finishCrawl).
+     * @param searchRepository The repository of the search response.
+     * @param language The language the repository was searched with.
+     * @param seenKey The key of the repository within the seen repositories index.
+     * @param storedIndex The index of the stored repository within the json array.
+     * @return The stars count of the repository or null if it couldn't be refreshed.
+     */
+    private Integer refreshStoredRepository(SearchRepository searchRepository, String language, long seenKey, int storedIndex) {
+        foundRepo = true;
+        Integer stars = refreshStoredRecord(searchRepository, language, seenKey, storedIndex);
+        if (stars == null) {
+            // Failed requests are dead lettered, the repository is refreshed by the redrive or an overlapping query.
+            refreshedKeys.remove(seenKey);
+            return null;
+        }
+        seenRepositories.add(seenKey, true);
+        return stars;
+    }
+
+    private Integer refreshStoredRecord(SearchRepository searchRepository, String language, long seenKey, int storedIndex) {
+        if (!storedRepositories.isPushedSince(seenKey, searchRepository.getPushedAt())) {
+            unchangedRepos.incrementAndGet();
+            return searchRepository.getWatchers();
+        }
+        RMetaData storedRepository = JsonReader.getInstance().deserializeRepositoryFromJsonArray(storedIndex);
+        if (storedRepository == null) {
+            deadLetter(searchRepository.generateId(), language, RequestType.REPOSITORY,
+                    new IOException("Couldn't read the stored record at index " + storedIndex + " from the json file."));
+            return null;
+        }
+
+        Repository repository = new Repository();
+        repository.setOwner(new User().setLogin(storedRepository.getOwner()));
+        repository.setName(storedRepository.getName());
+        repository.setMasterBranch(storedRepository.getDefaultBranch());
+        String latestCommitId = getLatestCommitId(repository);
+        metrics.countCheckedRepository();
+        if (!latestCommitId.isEmpty() && latestCommitId.equals(storedRepository.getLatestCommitId())) {
+            // Pushed to another branch only, the build files of the default branch are the same.
+            storedRepository.setPushedAt(searchRepository.getPushedAt());
+            storedRepository.setStargazersCount(searchRepository.getWatchers());
+            storedRepository.setForksCount(searchRepository.getForks());
+            storedRepository.setOpenIssuesCount(searchRepository.getOpenIssues());
+            storedRepository.setSize(searchRepository.getSize());
+            storedRepository.setDescription(searchRepository.getDescription());
+            refreshedRepositories.put(storedIndex, storedRepository);
+            metadataRefreshedRepos.incrementAndGet();
+            return searchRepository.getWatchers();
+        }
+
+        CompletableFuture<Repository> repositoryModel = fetchRepoByOwnerAndName(searchRepository);
+        CompletableFuture<BuildSystemDetection> repositoryDetection = detectBuildSystems(searchRepository, language);
+        Repository repositoryOfOwnerAndName = awaitRepository(searchRepository, language, repositoryModel);
+        BuildSystemDetection detection = repositoryDetection.join();
+        if (repositoryOfOwnerAndName == null || detection == null)
+            return null;
+        if (!isMatch(detection)) {
+            System.err.println("The stored repository " + searchRepository.generateId() + " no longer matches. Keeping its stored record.");
+            noLongerMatchingRepos.incrementAndGet();
+            return repositoryOfOwnerAndName.getWatchers();
+        }
+        // An incremental crawl searches a single language and a single build system.
+        RMetaData refreshedRepository = createRMetaDataObject(repositoryOfOwnerAndName, detection, latestCommitId, buildSystems.get(0));
+        refreshedRepository.setBuildStatus(storedRepository.getBuildStatus());
+        refreshedRepository.setExecutables(storedRepository.getExecutables());
+        refreshedRepository.setLibraries(storedRepository.getLibraries());
+        refreshedRepository.setArchives(storedRepository.getArchives());
+        refreshedRepository.setErrorMessage(storedRepository.getErrorMessage());
+        refreshedRepository.setPackageDependencies(storedRepository.getPackageDependencies());
+        refreshedRepositories.put(storedIndex, refreshedRepository);
+        redetectedRepos.incrementAndGet();
+        return repositoryOfOwnerAndName.getWatchers();
+    }
+
+    private <T> T awaitCheckedRepository(Future<T> checkedRepository) {
+        try {
+            return checkedRepository.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while checking the repositories.\nShutting down.");
+            System.exit(1);
+        } catch (ExecutionException e) {
+            System.err.println("Something went wrong while checking a repository. Skipping to next repository.");
+            System.err.println(e.getCause().getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Sends a query to get the repository model by its owner and repository name.
+     * The model also holds the default branch (see GitHubRepository).
+     * @param searchRepository The repository to query for.
+     * @param language The language the repository was searched with.
+     * @return The repository model.
+     */
+    private Repository queryRepoByOwnerAndName(SearchRepository searchRepository, String language) {
+        return awaitRepository(searchRepository, language, fetchRepoByOwnerAndName(searchRepository));
+    }
+
+    /**
+     * Sends the query of the repository model without waiting for its response.
+     * @param searchRepository The repository to query for.
+     * @return The repository model.
+     */
+    private CompletableFuture<Repository> fetchRepoByOwnerAndName(SearchRepository searchRepository) {
+        GitHubRequest request = new GitHubRequest();
+        request.setUri("/repos/" + searchRepository.getOwner() + "/" + searchRepository.getName());
+        request.setType(GitHubRepository.class);
+        return requestExecutor.executeAsync(RequestType.REPOSITORY, "Repository request of " + searchRepository.generateId(), () -> {
+            GitHubToken token = tokenPool.acquire(RequestType.REPOSITORY);
+            return token.getClient().getAsync(request).thenApply(response -> (Repository) response.getBody());
+        });
+    }
+
+    /**
+     * @return The repository model or null if the request failed. Repositories that still exist are dead lettered.
+     */
+    private Repository awaitRepository(SearchRepository searchRepository, String language, CompletableFuture<Repository> repository) {
+        try {
+            return repository.join();
+        } catch (CompletionException e) {
+            System.err.println("Something went wrong while getting the Repository by Owner and repository Name. Skipping to next repository.");
+            System.err.println(HttpTransport.unwrap(e).getMessage());
+            if (RequestExecutor.classify(e) != RequestFailure.NOT_FOUND)
+                deadLetter(searchRepository.generateId(), language, RequestType.REPOSITORY, e);
+        }
+        return null;
+    }
+
+    /**
+     * Writes a matching repository to the output of every searched build system it matches.
+     * @param language The language the repository was searched with.
+     * @param repository The Repository model
+     * @param detection The detected build systems of the repository.
+     * @param latestCommitId The sha of the latest commit of the default branch.
+     */
+    private void writeMatches(String language, Repository repository, BuildSystemDetection detection, String latestCommitId) {
+        for (BuildSystem buildSystem : buildSystems) {
+            if (isMatch(detection, buildSystem))
+                outputRouter.writeRepository(language, buildSystem, createRMetaDataObject(repository, detection, latestCommitId, buildSystem));
+        }
+    }
+
+    /**
+     * Constructs the RMetaData object for later serialization into json and storage in to the repositories.json file.
+     * @param repository The Repository model
+     * @param detection The detected build systems of the repository.
+     * @param latestCommitId The sha of the latest commit of the default branch.
+     * @param buildSystem The matched build system the object is stored for.
+     * @return The RMetaData object.
+     */
+    private RMetaData createRMetaDataObject(Repository repository, BuildSystemDetection detection, String latestCommitId,
+                                            BuildSystem buildSystem) {
+        RMetaData meteDataObject = new RMetaData(); //TODO: put this function into the model?
+        //Set all crawled fields
+        meteDataObject.setId(repository.getId());
+        meteDataObject.setName(repository.getName());
+        meteDataObject.setOwner(repository.getOwner().getLogin());
+        meteDataObject.setOwnerType(repository.getOwner().getType());
+        meteDataObject.setDescription(repository.getDescription());
+        meteDataObject.setLanguage(repository.getLanguage());
+        meteDataObject.setHasDownloads(repository.isHasDownloads());
+        meteDataObject.setSize(repository.getSize());
+        meteDataObject.setPushedAt(repository.getPushedAt());
+        meteDataObject.setCreatedAt(repository.getCreatedAt());
+        meteDataObject.setDefaultBranch(repository.getMasterBranch());
+        meteDataObject.setLatestCommitId(latestCommitId);
+        meteDataObject.setPrivate(repository.isPrivate());
+        meteDataObject.setForksCount(repository.getForks());
+        meteDataObject.setOpenIssuesCount(repository.getOpenIssues());
+        meteDataObject.setStargazersCount(repository.getWatchers()); // NOTE: stargazers and watchers count are the same since 2012.
+                                                                     // The matchingRepos now only increases if a project is starred.
+                                                                     // SEE https://developer.github.com/changes/2012-09-05-watcher-api/
+        meteDataObject.setHtmlUrl(repository.getHtmlUrl());
+        meteDataObject.setCloneUrl(repository.getCloneUrl());
+        meteDataObject.setBuildSystem(buildSystem.toString());
+        meteDataObject.setBuildFilePath(new ArrayList<>(detection.getFilePaths(buildSystem)));
+        //Setting default values
+        meteDataObject.setBuildStatus("UNKNOWN");
+        meteDataObject.setErrorMessage(new ArrayList<>());
+        meteDataObject.setPackageDependencies(new ArrayList<>());
+
+        return meteDataObject;
+    }
+
+    /**
+     * Gets the latest commit id (sha) from the repository default (master) branch.
+     * The sha is read from the reference of the default branch, which is a tiny response compared to a commit object
+     * with its author, committer, message and file stats. Only if the default branch is unknown, the latest commit is
+     * paged instead.
+     *
+     * @param repository The repository we are currently looking at.
+     * @return The latest commit id as a String.
+     */
+    private String getLatestCommitId(Repository repository){
+        String defaultBranch = repository.getMasterBranch();
+        if(defaultBranch != null && !defaultBranch.isEmpty()) {
+            try {
+                return requestExecutor.execute(RequestType.COMMITS, "Reference request of " + repository.generateId(), () -> {
+                    GitHubToken token = tokenPool.acquire(RequestType.COMMITS);
+                    return token.getDataService().getReference(repository, "heads/" + defaultBranch).getObject().getSha();
+                });
+            } catch (IOException e) {
+                System.err.println("Something went wrong while resolving the head of the default branch '" + defaultBranch + "'.");
+                System.err.println(e.getMessage());
+                return "";
+            }
+        }
+        try {
+            return requestExecutor.execute(RequestType.COMMITS, "Commit request of " + repository.generateId(), () -> {
+                GitHubToken token = tokenPool.acquire(RequestType.COMMITS);
+                PageIterator<RepositoryCommit> repositoryCommitList = token.getCommitService().pageCommits(repository, 1);
+                try {
+                    if(repositoryCommitList.hasNext())
+                        return repositoryCommitList.next().iterator().next().getSha();
+                    else return "";
+                } catch (NoSuchPageException e) {
+                    throw e.getCause();
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Something went wrong while requesting the latest commit.");
+            System.err.println(e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * Detects if the repository contains specific build files required by the currently searched build system.
+     * Either the root directory is listed, or with Config.TREEDETECTION the whole tree of the default branch with a
+     * single recursive request, plus the requests that complete a truncated tree (see RepositoryTreeLister).
+     *
+     * @param repository The repository to detect the build system from
+     * @param language The language the repository was searched with.
+     * @return The detected build systems or null if the request failed, even after all retries.
+     */
+    private BuildSystemDetection getFileContentsAtRootDir(IRepositoryIdProvider repository, String language) {
+        return detectBuildSystems(repository, language).join();
+    }
+
+    /**
+     * @return The default branch if known from the repository model, i.e. of the GraphQL query, otherwise "HEAD",
+     * which GitHub resolves to the default branch itself.
+     */
+    private static String getTreeIsh(IRepositoryIdProvider repository) {
+        if (repository instanceof Repository) {
+            String defaultBranch = ((Repository) repository).getMasterBranch();
+            if (defaultBranch != null && !defaultBranch.isEmpty())
+                return defaultBranch;
+        }
+        return "HEAD";
+    }
+
+    /**
+     * Sends the request of getFileContentsAtRootDir without waiting for its response. The tree of Config.TREEDETECTION
+     * is still listed on the calling thread.
+     * @param repository The repository to detect the build system from
+     * @param language The language the repository was searched with.
+     * @return The detected build systems. Empty if the repository has no contents (anymore), null if the request failed,
+     * even after all retries. Such a repository is dead lettered.
+     */
+    private CompletableFuture<BuildSystemDetection> detectBuildSystems(IRepositoryIdProvider repository, String language) {
+        String description = "Contents request of " + repository.generateId();
+        if (treeLister != null) {
+            try {
+                return CompletableFuture.completedFuture(buildSystemDetector.detect(requestExecutor.execute(RequestType.CONTENTS,
+                        description, () -> treeLister.listPaths(repository, getTreeIsh(repository)))));
+            } catch (IOException e) {
+                return CompletableFuture.completedFuture(onContentsFailure(repository, language, e));
+            }
+        }
+        // The request of ContentsService.getContents, sent without blocking.
+        GitHubRequest request = new GitHubRequest();
+        request.setUri("/repos/" + repository.generateId() + "/contents");
+        request.setType(RepositoryContents.class);
+        request.setArrayType(new TypeToken<List<RepositoryContents>>() {
+        }.getType());
+        return requestExecutor.executeAsync(RequestType.CONTENTS, description, () -> {
+            GitHubToken token = tokenPool.acquire(RequestType.CONTENTS);
+            return token.getClient().getAsync(request);
+        }).handle((response, failure) -> {
+            if (failure != null)
+                return onContentsFailure(repository, language, failure);
+            Object body = response.getBody();
+            List<String> rootFileNames = new ArrayList<>();
+            if (body instanceof RepositoryContents) {
+                rootFileNames.add(((RepositoryContents) body).getName());
+            } else if (body != null) {
+                for (Object contents : (List<?>) body)
+                    rootFileNames.add(((RepositoryContents) contents).getName());
+            }
+            return buildSystemDetector.detect(rootFileNames);
+        });
+    }
+
+    /**
+     * @param repository The repository whose contents couldn't be requested.
+     * @param language The language the repository was searched with.
+     * @param failure The failure of the last attempt.
+     * @return Empty if the repository has no contents (anymore), i.e. an empty or deleted repository, otherwise null.
+     */
+    private BuildSystemDetection onContentsFailure(IRepositoryIdProvider repository, String language, Throwable failure) {
+        System.err.println("Something went wrong while querying the repository contents.\n");
+        System.err.println(HttpTransport.unwrap(failure).getMessage());
+        if (RequestExecutor.classify(failure) == RequestFailure.NOT_FOUND)
+            return BuildSystemDetection.EMPTY;
+        deadLetter(repository.generateId(), language, RequestType.CONTENTS, failure);
+        return null;
+    }
+
+    /**
+     * @param detection The detected build systems of a repository.
+     * @return True if any of the searched build systems was detected.
+     */
+    private boolean isMatch(BuildSystemDetection detection) {
+        for (BuildSystem buildSystem : buildSystems) {
+            if (isMatch(detection, buildSystem))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param detection The detected build systems of a repository.
+     * @param buildSystem A searched build system.
+     * @return True if the build system was detected. Every repository matches if no build system is searched for.
+     */
+    private boolean isMatch(BuildSystemDetection detection, BuildSystem buildSystem) {
+        return buildSystem == BuildSystem.UNKNOWN || detection.matches(buildSystem);
+    }
+}
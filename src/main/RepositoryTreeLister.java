@@ -0,0 +1,115 @@
+package main;
+
+import Models.GitTree;
+import Models.RequestType;
+import org.eclipse.egit.github.core.IRepositoryIdProvider;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lists the paths of all files and folders of a repository with a single recursive git trees request, instead of one
+ * contents request per folder.
+ *
+ * A recursive tree is truncated by GitHub if it is too large for a single response. The paths of a truncated tree are
+ * completed by fetching the root tree and then the subtrees of those top level folders the rules of the
+ * BuildSystemDetector actually look into, each with its own recursive request.
+ * SEE: https://developer.github.com/v3/git/trees/#get-a-tree-recursively
+ */
+public class RepositoryTreeLister {
+
+    // Upper bound of the subtree requests spent on a single truncated tree.
+    private static final int MAX_SUBTREE_REQUESTS = 10;
+
+    private final TokenPool tokenPool;
+    private final BuildSystemDetector buildSystemDetector;
+    private final AtomicLong truncatedTrees = new AtomicLong();
+    private final AtomicLong subtreeRequests = new AtomicLong();
+
+    public RepositoryTreeLister(TokenPool tokenPool, BuildSystemDetector buildSystemDetector) {
+        this.tokenPool = tokenPool;
+        this.buildSystemDetector = buildSystemDetector;
+    }
+
+    /**
+     * Lists the paths of the tree of a commit.
+     * @param repository The repository to list.
+     * @param treeIsh The commit, branch or tree to list, i.e. "HEAD" for the default branch.
+     * @return The paths of all files and folders relative to the root directory.
+     * @throws IOException If the tree couldn't be requested.
+     */
+    public List<String> listPaths(IRepositoryIdProvider repository, String treeIsh) throws IOException {
+        GitTree tree = getTree(repository, treeIsh, true);
+        Set<String> paths = new LinkedHashSet<>();
+        addPaths(paths, "", tree);
+        if (tree.isTruncated()) {
+            truncatedTrees.incrementAndGet();
+            completeTruncatedTree(repository, treeIsh, paths);
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * @return The number of recursive trees that were truncated by GitHub.
+     */
+    public long getTruncatedTrees() {
+        return truncatedTrees.get();
+    }
+
+    /**
+     * @return The number of requests sent to complete truncated trees.
+     */
+    public long getSubtreeRequests() {
+        return subtreeRequests.get();
+    }
+
+    private void completeTruncatedTree(IRepositoryIdProvider repository, String treeIsh, Set<String> paths) throws IOException {
+        // Rules of the root directory only are matched against the entries of the truncated tree as they are.
+        if (!buildSystemDetector.isDeep() && buildSystemDetector.getPatternDirectories().isEmpty())
+            return;
+        subtreeRequests.incrementAndGet();
+        GitTree root = getTree(repository, treeIsh, false);
+        addPaths(paths, "", root);
+
+        List<TreeEntry> subtrees = new ArrayList<>();
+        for (TreeEntry entry : entries(root)) {
+            if (TreeEntry.TYPE_TREE.equals(entry.getType()) && (buildSystemDetector.isDeep()
+                    || buildSystemDetector.getPatternDirectories().contains(entry.getPath())))
+                subtrees.add(entry);
+        }
+        if (subtrees.size() > MAX_SUBTREE_REQUESTS)
+            System.err.println("The tree of " + repository.generateId() + " is truncated. Only " + MAX_SUBTREE_REQUESTS
+                    + " of its " + subtrees.size() + " top level folders are checked.");
+        for (TreeEntry subtree : subtrees.subList(0, Math.min(subtrees.size(), MAX_SUBTREE_REQUESTS))) {
+            subtreeRequests.incrementAndGet();
+            // A subtree that is truncated itself is used as far as it goes.
+            addPaths(paths, subtree.getPath() + "/", getTree(repository, subtree.getSha(), true));
+        }
+    }
+
+    private GitTree getTree(IRepositoryIdProvider repository, String treeIsh, boolean recursive) throws IOException {
+        GitHubRequest request = new GitHubRequest();
+        request.setUri("/repos/" + repository.generateId() + "/git/trees/" + treeIsh);
+        if (recursive)
+            request.setParams(Collections.singletonMap("recursive", "1"));
+        request.setType(GitTree.class);
+        GitHubToken token = tokenPool.acquire(RequestType.CONTENTS);
+        return (GitTree) token.getClient().get(request).getBody();
+    }
+
+    private static void addPaths(Set<String> paths, String prefix, GitTree tree) {
+        for (TreeEntry entry : entries(tree))
+            paths.add(prefix + entry.getPath());
+    }
+
+    private static List<TreeEntry> entries(GitTree tree) {
+        return tree == null || tree.getTree() == null ? Collections.emptyList() : tree.getTree();
+    }
+}
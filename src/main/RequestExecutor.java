@@ -0,0 +1,270 @@
+package main;
+
+import Models.RequestFailure;
+import Models.RequestType;
+import org.eclipse.egit.github.core.client.RequestException;
+import utils.HttpArchive;
+import utils.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Sends the requests of the crawler and recovers from their failures.
+ *
+ * Every failure is classified (see RequestFailure). Transient failures are retried up to Config.RETRYMAXATTEMPTS times
+ * after an exponential backoff with full jitter, so that the requests of all enrichment threads don't hit a recovering
+ * endpoint at the same time. Rate limited requests are retried right away, the RequestScheduler already holds them
+ * back until the limit is reset. Each endpoint has its own CircuitBreaker.
+ *
+ * Asynchronous requests that didn't complete within Config.HEDGEAFTERMILLIS are sent a second time, and the faster
+ * response is taken. Search and GraphQL requests are never hedged, they are too expensive.
+ *
+ * SEE: https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ * SEE: https://research.google/pubs/pub40801/ (The Tail at Scale)
+ */
+public class RequestExecutor {
+
+    /**
+     * A request that is sent on the calling thread.
+     */
+    public interface Request<T> {
+        T send() throws IOException;
+    }
+
+    /**
+     * A request that is sent without blocking. The future completes exceptionally with an IOException on failure.
+     */
+    public interface AsyncRequest<T> {
+        CompletableFuture<T> send();
+    }
+
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_UNAVAILABLE_FOR_LEGAL_REASONS = 451;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long hedgeAfterMillis;
+    // Indexed by the ordinal of the RequestType.
+    private final CircuitBreaker[] circuitBreakers;
+    private final Metrics metrics = Metrics.getInstance();
+    // Sends the delayed retries and the hedged requests of executeAsync.
+    private final ExecutorService retryExecutor;
+
+    public RequestExecutor() {
+        this.maxAttempts = Math.max(1, Config.RETRYMAXATTEMPTS);
+        this.baseDelayMillis = Math.max(0, Config.RETRYBASEDELAYMILLIS);
+        this.hedgeAfterMillis = Config.HEDGEAFTERMILLIS;
+        RequestType[] requestTypes = RequestType.values();
+        this.circuitBreakers = new CircuitBreaker[requestTypes.length];
+        for (RequestType requestType : requestTypes)
+            circuitBreakers[requestType.ordinal()] = new CircuitBreaker(requestType.name().toLowerCase(Locale.ROOT),
+                    Config.CIRCUITBREAKERTHRESHOLD, Config.CIRCUITBREAKEROPENMILLIS);
+        this.retryExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "request-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sends a request on the calling thread, retrying it until it succeeds or fails permanently.
+     * @param requestType The endpoint of the request.
+     * @param description Describes the request in log messages, i.e. "Search request of page 3".
+     * @param request Sends the request once.
+     * @return The response.
+     * @throws IOException The failure of the last attempt (see classify).
+     */
+    public <T> T execute(RequestType requestType, String description, Request<T> request) throws IOException {
+        CircuitBreaker circuitBreaker = circuitBreakers[requestType.ordinal()];
+        for (int attempt = 1; ; attempt++) {
+            boolean probe = circuitBreaker.acquire();
+            IOException failure;
+            try {
+                T response = request.send();
+                circuitBreaker.onSuccess(probe);
+                return response;
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException | Error e) {
+                // A FATAL failure, i.e. a response that can't be parsed. A probe of a half open breaker has to reopen
+                // it, otherwise all later requests of the endpoint wait forever.
+                circuitBreaker.onAbort(probe);
+                throw e;
+            }
+            long delay = getRetryDelay(requestType, description, failure, attempt, probe);
+            if (delay < 0)
+                throw failure;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Sends a request without blocking, retrying it until it succeeds or fails permanently. The retries are sent on
+     * threads of the executor.
+     * @param requestType The endpoint of the request.
+     * @param description Describes the request in log messages.
+     * @param request Sends the request once.
+     * @return The response. Completes exceptionally with the IOException of the last attempt.
+     */
+    public <T> CompletableFuture<T> executeAsync(RequestType requestType, String description, AsyncRequest<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(requestType, description, request, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(RequestType requestType, String description, AsyncRequest<T> request, int attempt,
+                             CompletableFuture<T> result) {
+        CircuitBreaker circuitBreaker = circuitBreakers[requestType.ordinal()];
+        boolean probe;
+        try {
+            probe = circuitBreaker.acquire();
+        } catch (InterruptedIOException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        hedge(requestType, request).whenComplete((response, failure) -> {
+            if (failure == null) {
+                circuitBreaker.onSuccess(probe);
+                result.complete(response);
+                return;
+            }
+            Throwable cause = getCause(failure);
+            long delay = getRetryDelay(requestType, description, cause, attempt, probe);
+            if (delay < 0) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, retryExecutor)
+                    .execute(() -> attempt(requestType, description, request, attempt + 1, result));
+        });
+    }
+
+    /**
+     * Sends the request a second time if it didn't complete within hedgeAfterMillis.
+     * @return The first successful response of both requests, or the failure of the last one.
+     */
+    private <T> CompletableFuture<T> hedge(RequestType requestType, AsyncRequest<T> request) {
+        CompletableFuture<T> first = send(request);
+        if (hedgeAfterMillis <= 0 || requestType == RequestType.SEARCH || requestType == RequestType.GRAPHQL)
+            return first;
+        CompletableFuture<T> fastest = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<T, Throwable> complete = (response, failure) -> {
+            if (failure == null)
+                fastest.complete(response);
+            else if (pending.decrementAndGet() == 0)
+                fastest.completeExceptionally(failure);
+        };
+        first.whenComplete(complete);
+        CompletableFuture.delayedExecutor(hedgeAfterMillis, TimeUnit.MILLISECONDS, retryExecutor).execute(() -> {
+            // No hedge once the first request completed, successfully or not.
+            if (fastest.isDone() || pending.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0)
+                return;
+            metrics.countHedgedRequest();
+            send(request).whenComplete(complete);
+        });
+        return fastest;
+    }
+
+    private static <T> CompletableFuture<T> send(AsyncRequest<T> request) {
+        try {
+            return request.send();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Reports the failure to the circuit breaker and decides if the request is sent again.
+     * @param probe True if the request was the probe of the half open circuit breaker.
+     * @return The time to wait before the next attempt or -1 if the request isn't sent again.
+     */
+    private long getRetryDelay(RequestType requestType, String description, Throwable failure, int attempt, boolean probe) {
+        RequestFailure requestFailure = classify(failure);
+        CircuitBreaker circuitBreaker = circuitBreakers[requestType.ordinal()];
+        if (requestFailure == RequestFailure.TRANSIENT) {
+            if (circuitBreaker.onFailure(probe))
+                metrics.countCircuitBreakerOpen(requestType);
+        } else if (requestFailure == RequestFailure.FATAL) {
+            circuitBreaker.onAbort(probe);
+        } else {
+            circuitBreaker.onSuccess(probe); // the endpoint answered
+        }
+        if (!requestFailure.isRetried() || attempt >= maxAttempts)
+            return -1;
+        metrics.countRetry(requestType);
+        long delay = requestFailure == RequestFailure.RATE_LIMITED ? 0 : getBackoff(attempt);
+        System.err.println(description + " failed (" + requestFailure + ", attempt " + attempt + " of " + maxAttempts
+                + "). Retrying in " + delay + " ms. " + failure.getMessage());
+        return delay;
+    }
+
+    /**
+     * Full jitter: a random delay between 0 and the exponentially growing, capped backoff.
+     * @param attempt The failed attempt, starting at 1.
+     * @return The delay in milliseconds.
+     */
+    private long getBackoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, baseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * @param failure The failure of a request, possibly wrapped by a CompletionException.
+     * @return The class of the failure.
+     */
+    public static RequestFailure classify(Throwable failure) {
+        Throwable cause = getCause(failure);
+        if (cause instanceof HttpArchive.MissingResponseException)
+            return RequestFailure.NOT_FOUND; // a replay of a crawl that didn't send this request
+        if (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))
+            return RequestFailure.FATAL;
+        if (cause instanceof RequestException) {
+            RequestException requestException = (RequestException) cause;
+            int status = requestException.getStatus();
+            if (status >= 500 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT)
+                return RequestFailure.TRANSIENT;
+            if (status == HTTP_TOO_MANY_REQUESTS)
+                return RequestFailure.RATE_LIMITED;
+            if (status == HttpURLConnection.HTTP_FORBIDDEN) {
+                // Rate limits are answered with 403 as well, other 403 responses block a single repository.
+                String message = String.valueOf(requestException.getMessage()).toLowerCase(Locale.ROOT);
+                return message.contains("rate limit") || message.contains("abuse")
+                        ? RequestFailure.RATE_LIMITED : RequestFailure.NOT_FOUND;
+            }
+            if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_CONFLICT
+                    || status == HttpURLConnection.HTTP_GONE || status == HTTP_UNAVAILABLE_FOR_LEGAL_REASONS)
+                return RequestFailure.NOT_FOUND;
+            return RequestFailure.FATAL;
+        }
+        // Timeouts, reset connections and broken responses.
+        return cause instanceof IOException ? RequestFailure.TRANSIENT : RequestFailure.FATAL;
+    }
+
+    /**
+     * @return The IOException within the wrapping exceptions, or the innermost exception if there is none.
+     */
+    private static Throwable getCause(Throwable failure) {
+        Throwable cause = failure;
+        while (cause.getCause() != null && !(cause instanceof IOException))
+            cause = cause.getCause();
+        return cause;
+    }
+}
@@ -0,0 +1,237 @@
+package main;
+
+import Models.RequestType;
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throttles the requests of the Crawler according to the rate limit headers returned by GitHub.
+ *
+ * The core, search and graphql resources have separate limits. After every response the permits of the corresponding
+ * RateLimiter are retuned to spread the remaining requests evenly until the limit resets. The graphql limit counts
+ * points instead of requests, a GraphQL request acquires as many permits as it is expected to cost. An exhausted limit,
+ * a Retry-After header or a secondary (abuse) rate limit pauses the resource until requests are allowed again.
+ * Competing core requests are admitted by their priority class (see RequestType).
+ * Each OAuth token has its own scheduler, which also tracks the remaining quota of the token for the TokenPool.
+ * Request throttling using the com.google.guava 28.0-jre library
+ * SEE: https://www.javadoc.io/doc/com.google.guava/guava/28.0-jre/com/google/common/util/concurrent/RateLimiter.html
+ */
+public class RequestScheduler {
+
+    public static final String CORE = "core";
+    public static final String SEARCH = "search";
+    public static final String GRAPHQL = "graphql";
+    // Pause applied on a secondary rate limit that does not state how long to wait.
+    private static final long SECONDARY_LIMIT_PAUSE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Limit state of a single rate limit resource.
+     */
+    private static class Resource {
+        private final RateLimiter rateLimiter;
+        // Time until the limit resets completely.
+        private final long windowMillis;
+        private volatile long pausedUntil;
+        // Remaining requests as reported by the last response, reduced by every request sent since then.
+        private final AtomicInteger remaining = new AtomicInteger(Integer.MAX_VALUE);
+
+        Resource(double permitsPerSecond, long windowMillis) {
+            this.rateLimiter = RateLimiter.create(permitsPerSecond);
+            this.windowMillis = windowMillis;
+        }
+    }
+
+    private final Resource core;
+    private final Resource search;
+    private final Resource graphql;
+    private volatile boolean disabled;
+    // Ignores all limits, see unlimited().
+    private boolean unlimited;
+    private final Object priorityLock = new Object();
+    private final int[] waitingRequests = new int[RequestType.values().length];
+
+    /**
+     * @param coreRequestsPerSecond The initial rate of core requests.
+     * @param searchRequestsPerSecond The initial rate of search requests.
+     * @param graphqlPointsPerSecond The initial rate of GraphQL points.
+     */
+    public RequestScheduler(double coreRequestsPerSecond, double searchRequestsPerSecond, double graphqlPointsPerSecond) {
+        core = new Resource(coreRequestsPerSecond, TimeUnit.HOURS.toMillis(1));
+        search = new Resource(searchRequestsPerSecond, TimeUnit.MINUTES.toMillis(1));
+        graphql = new Resource(graphqlPointsPerSecond, TimeUnit.HOURS.toMillis(1));
+    }
+
+    /**
+     * @return A scheduler that never throttles nor pauses any request, i.e. for responses replayed from an HttpArchive.
+     */
+    public static RequestScheduler unlimited() {
+        RequestScheduler scheduler = new RequestScheduler(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        scheduler.unlimited = true;
+        return scheduler;
+    }
+
+    /**
+     * Blocks until a request of the given type may be sent.
+     * @param requestType The type of the request to send.
+     */
+    public void acquire(RequestType requestType) {
+        acquire(requestType, 1);
+    }
+
+    /**
+     * Blocks until a request of the given type may be sent. An interrupt only ends the wait for requests of a higher
+     * priority, the pause and the permit are still waited for and the interrupt status is restored afterwards, so a
+     * request is never sent unthrottled.
+     * @param requestType The type of the request to send.
+     * @param permits The expected cost of the request, i.e. the points of a GraphQL query.
+     */
+    public void acquire(RequestType requestType, int permits) {
+        Resource resource = getResource(requestType.getResource());
+        resource.remaining.addAndGet(-permits);
+        if (unlimited)
+            return;
+        awaitPause(resource);
+        if (resource != core) {
+            resource.rateLimiter.acquire(permits);
+            return;
+        }
+        int priority = requestType.getPriority();
+        boolean interrupted = false;
+        synchronized (priorityLock) {
+            waitingRequests[priority]++;
+            try {
+                while (isHigherPriorityWaiting(priority))
+                    priorityLock.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            core.rateLimiter.acquire(permits);
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            synchronized (priorityLock) {
+                waitingRequests[priority]--;
+                priorityLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Retunes the permits of a resource from the rate limit headers of a response.
+     * @param resourceName The rate limit resource ("core", "search" or "graphql").
+     * @param limit The value of the X-RateLimit-Limit header.
+     * @param remaining The value of the X-RateLimit-Remaining header.
+     * @param resetEpochSeconds The value of the X-RateLimit-Reset header.
+     */
+    public void updateLimits(String resourceName, int limit, int remaining, long resetEpochSeconds) {
+        Resource resource = getResource(resourceName);
+        long millisUntilReset = TimeUnit.SECONDS.toMillis(resetEpochSeconds) - System.currentTimeMillis();
+        resource.remaining.set(remaining);
+        if (unlimited)
+            return;
+        if (remaining <= 0) {
+            pause(resourceName, millisUntilReset);
+            // The full limit is available again after the reset.
+            remaining = limit;
+            millisUntilReset = resource.windowMillis;
+        }
+        double secondsUntilReset = Math.max(1d, millisUntilReset / 1000d);
+        double rate = Math.max(remaining, 1) / secondsUntilReset;
+        resource.rateLimiter.setRate(rate);
+    }
+
+    /**
+     * Pauses all requests of a resource.
+     * @param resourceName The rate limit resource ("core", "search" or "graphql").
+     * @param millis The time to pause in milliseconds. Falls back to one minute if not positive.
+     */
+    public void pause(String resourceName, long millis) {
+        if (unlimited)
+            return;
+        Resource resource = getResource(resourceName);
+        long until = System.currentTimeMillis() + (millis > 0 ? millis : SECONDARY_LIMIT_PAUSE_MILLIS);
+        synchronized (resource) {
+            resource.pausedUntil = Math.max(resource.pausedUntil, until);
+        }
+        System.err.println("Rate limit of the " + resourceName + " resource reached. Pausing requests for "
+                + TimeUnit.MILLISECONDS.toSeconds(until - System.currentTimeMillis()) + " seconds.");
+    }
+
+    public double getRate(String resource) {
+        return getResource(resource).rateLimiter.getRate();
+    }
+
+    /**
+     * @param resource The rate limit resource ("core", "search" or "graphql").
+     * @return The estimated number of remaining requests. Integer.MAX_VALUE until the first response was received.
+     */
+    public int getRemaining(String resource) {
+        return getResource(resource).remaining.get();
+    }
+
+    /**
+     * @param resource The rate limit resource ("core", "search" or "graphql").
+     * @return The time in milliseconds since epoch until the resource is paused.
+     */
+    public long getPausedUntil(String resource) {
+        return getResource(resource).pausedUntil;
+    }
+
+    /**
+     * @param resource The rate limit resource ("core", "search" or "graphql").
+     * @return True if requests of the resource can be sent right now.
+     */
+    public boolean isAvailable(String resource) {
+        return !disabled && getPausedUntil(resource) <= System.currentTimeMillis();
+    }
+
+    /**
+     * Takes the scheduler out of rotation, i.e. when its OAuth token is invalid.
+     */
+    public void disable() {
+        disabled = true;
+    }
+
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    private Resource getResource(String resource) {
+        if (SEARCH.equals(resource))
+            return search;
+        if (GRAPHQL.equals(resource))
+            return graphql;
+        return core;
+    }
+
+    private boolean isHigherPriorityWaiting(int priority) {
+        for (int i = 0; i < priority; i++) {
+            if (waitingRequests[i] > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the resource isn't paused anymore, also if interrupted in between. The interrupt status is restored.
+     */
+    private void awaitPause(Resource resource) {
+        boolean interrupted = false;
+        long pausedUntil;
+        while ((pausedUntil = resource.pausedUntil) > System.currentTimeMillis()) {
+            try {
+                Thread.sleep(pausedUntil - System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (IllegalArgumentException e) {
+                // pause ended between the check and the sleep
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,153 @@
+package main;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Predicate;
+
+/**
+ * Fetches the result pages of a search query ahead of their enrichment.
+ *
+ * The pages are requested one after another on a thread of their own and handed over through a bounded queue of
+ * Config.SEARCHPREFETCHPAGES pages. Thus, the search requests wait for the search rate limit while the repositories
+ * of the previous pages are still checked, instead of holding up the enrichment once a page is done.
+ * With a queue size of 0 every page is requested on the calling thread when it is taken.
+ *
+ * @param <T> The type of a result page.
+ */
+public class SearchPagePrefetcher<T> {
+
+    /**
+     * Requests a single result page.
+     */
+    public interface PageFunction<T> {
+        /**
+         * @param page The page to request.
+         * @return The result page or null if the request failed.
+         */
+        T fetch(int page);
+    }
+
+    /**
+     * A page within the queue.
+     */
+    private static class Page<T> {
+        private final T result;
+        // Thrown by the page function, rethrown when the page is taken.
+        private final RuntimeException failure;
+
+        Page(T result, RuntimeException failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    private final PageFunction<T> pageFunction;
+    private final Predicate<T> isLastPage;
+    private final int lastPage;
+    private final BlockingQueue<Page<T>> pages;
+    private final Thread producer;
+    private volatile boolean closed;
+    private int nextPage;
+    private boolean finished;
+
+    /**
+     * Starts fetching the pages right away, unless queueSize is 0.
+     * @param name The name of the fetching thread.
+     * @param pageFunction Requests a single page.
+     * @param isLastPage True for a page after which no page is fetched anymore, i.e. an empty page.
+     * @param firstPage The first page to fetch.
+     * @param lastPage The last page to fetch.
+     * @param queueSize The number of pages that are fetched ahead.
+     */
+    public SearchPagePrefetcher(String name, PageFunction<T> pageFunction, Predicate<T> isLastPage, int firstPage,
+                                int lastPage, int queueSize) {
+        this.pageFunction = pageFunction;
+        this.isLastPage = isLastPage;
+        this.lastPage = lastPage;
+        this.nextPage = firstPage;
+        if (queueSize <= 0) {
+            this.pages = null;
+            this.producer = null;
+            return;
+        }
+        this.pages = new ArrayBlockingQueue<>(queueSize);
+        this.producer = new Thread(() -> produce(firstPage), name);
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    /**
+     * Takes the next page, waiting for its response if it wasn't fetched yet.
+     * @return The next page or null if the request of the page failed.
+     * @throws IllegalStateException If all pages were taken already (see hasNext).
+     */
+    public T next() {
+        if (!hasNext())
+            throw new IllegalStateException("All pages were taken already.");
+        T result;
+        if (pages == null) {
+            result = pageFunction.fetch(nextPage);
+        } else {
+            Page<T> page;
+            try {
+                page = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                finished = true;
+                return null;
+            }
+            if (page.failure != null) {
+                finished = true;
+                throw page.failure;
+            }
+            result = page.result;
+        }
+        if (result == null || isLastPage.test(result))
+            finished = true;
+        nextPage++;
+        return result;
+    }
+
+    /**
+     * @return True if there is a page left to take.
+     */
+    public boolean hasNext() {
+        return !finished && nextPage <= lastPage;
+    }
+
+    /**
+     * @return The number of the page that is taken next.
+     */
+    public int getNextPage() {
+        return nextPage;
+    }
+
+    /**
+     * Stops fetching. Pages that were fetched but not taken are dropped.
+     */
+    public void close() {
+        closed = true;
+        if (producer != null)
+            producer.interrupt();
+    }
+
+    private void produce(int firstPage) {
+        try {
+            for (int page = firstPage; page <= lastPage && !closed; page++) {
+                T result;
+                try {
+                    result = pageFunction.fetch(page);
+                } catch (RuntimeException e) {
+                    pages.put(new Page<>(null, e));
+                    return;
+                }
+                pages.put(new Page<>(result, null));
+                if (result == null || isLastPage.test(result))
+                    return;
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package main;
+
+import Models.SearchResult;
+import Models.SearchWindow;
+import utils.HttpArchive;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the search space into disjoint windows with at most 1000 results each.
+ *
+ * The search API returns at most 1000 results per query. Instead of lowering the maximum stars count query by query,
+ * the planner asks for the total_count of a window and recursively halves its stars range, or its creation date range
+ * once the window holds a single stars count, until every window fits into the 1000 results.
+ * Crawling all windows covers the whole search space and fetches no page twice.
+ *
+ * Windows are never split by their pushed date. Unlike the creation date, the pushed date of a repository changes
+ * while the windows are crawled, so a repository pushed in between would move from a window that is not crawled yet
+ * into one that is already crawled and be missed. The pushed qualifier only bounds the whole search space, see
+ * lastPushedDate.
+ */
+public class SearchPlanner {
+
+    /**
+     * The maximum number of results the search API returns for a single query.
+     */
+    public static final int MAX_RESULTS = 1000;
+    // Repositories can't be created before GitHub launched.
+    private static final LocalDate FIRST_CREATED_DATE = LocalDate.of(2008, 1, 1);
+
+    /**
+     * Sends a search request with the given qualifiers.
+     */
+    public interface SearchFunction {
+        SearchResult search(Map<String, String> qualifiers, int page, int perPage);
+    }
+
+    private final SearchFunction searchFunction;
+
+    public SearchPlanner(SearchFunction searchFunction) {
+        this.searchFunction = searchFunction;
+    }
+
+    /**
+     * Plans the windows of the whole search space, starting at the stars count of the most popular repository.
+     * @param baseQuery The search qualifiers shared by all windows, i.e. language and pushed date.
+     * @return The windows sorted from the highest to the lowest stars count.
+     */
+    public List<SearchWindow> plan(Map<String, String> baseQuery) {
+        SearchResult mostPopular = searchFunction.search(baseQuery, 1, 1);
+        if (mostPopular == null || mostPopular.getItems().isEmpty())
+            return new ArrayList<>();
+        int maxStars = mostPopular.getItems().get(0).getWatchers();
+        return plan(baseQuery, new SearchWindow(0, maxStars, FIRST_CREATED_DATE, HttpArchive.getInstance().today()));
+    }
+
+    /**
+     * Plans the windows of the given part of the search space.
+     * @param baseQuery The search qualifiers shared by all windows, i.e. language and pushed date.
+     * @param root The part of the search space to split.
+     * @return The windows sorted from the highest to the lowest stars count.
+     */
+    public List<SearchWindow> plan(Map<String, String> baseQuery, SearchWindow root) {
+        List<SearchWindow> windows = new ArrayList<>();
+        Deque<SearchWindow> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            SearchWindow window = pending.pop();
+            SearchResult result = searchFunction.search(window.toQualifiers(baseQuery), 1, 1);
+            if (result == null || result.getTotalCount() == 0)
+                continue;
+            window.setTotalCount(result.getTotalCount());
+            if (window.getTotalCount() <= MAX_RESULTS) {
+                windows.add(window);
+                System.out.println("Planned search window " + window);
+                continue;
+            }
+            SearchWindow[] halves;
+            if (window.canSplitStars()) {
+                halves = window.splitStars();
+            } else if (window.canSplitCreated()) {
+                halves = window.splitCreated();
+            } else {
+                System.err.println("Search window " + window + " can't be split any further. Only the first "
+                        + MAX_RESULTS + " repositories are crawled.");
+                windows.add(window);
+                continue;
+            }
+            // Push the second half first, so that the first half (higher stars or earlier dates) is planned first.
+            pending.push(halves[1]);
+            pending.push(halves[0]);
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,172 @@
+package main;
+
+import Models.RequestType;
+import org.eclipse.egit.github.core.SearchRepository;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the results of a single search query of the maxStars decrement loop, page by page.
+ *
+ * The search API returns at most 10 pages of 100 repositories for a query. The repositories of a page are checked
+ * concurrently (see RepositoryChecker), the next page is only checked after all repositories of the current page were
+ * checked, so that maxStars progresses exactly as if they were checked one after another. The pages are fetched ahead
+ * of their check, and once the last page of a query is known, the first pages of the query that is expected to follow.
+ */
+public class SearchQueryCrawler {
+
+    /**
+     * The number of pages the search API returns for a single query.
+     */
+    public static final int MAX_PAGES = 10;
+
+    /**
+     * Called once all repositories of a page were checked.
+     */
+    public interface PageListener {
+        /**
+         * @param page The checked page.
+         * @param stars The stars count of every repository in the order of the page. Null for repositories that
+         *              couldn't be checked.
+         */
+        void onPageChecked(int page, List<Integer> stars);
+    }
+
+    private final TokenPool tokenPool;
+    private final RequestExecutor requestExecutor;
+    private final RepositoryChecker repositoryChecker;
+    private final String language;
+    private final PageListener pageListener;
+    // The query that is expected to follow the current one, and its prefetched pages. Started as soon as the last page
+    // of the current query was fetched, see prefetchNextQuery.
+    private Map<String, String> nextQuery;
+    private SearchPagePrefetcher<List<SearchRepository>> nextQueryPages;
+
+    /**
+     * @param tokenPool The OAuth tokens the requests are distributed on.
+     * @param requestExecutor Sends the requests and retries them on failure.
+     * @param repositoryChecker Checks the repositories of every page.
+     * @param language The searched language.
+     * @param pageListener Called after every page, i.e. to store the crawl frontier.
+     */
+    public SearchQueryCrawler(TokenPool tokenPool, RequestExecutor requestExecutor, RepositoryChecker repositoryChecker,
+                              String language, PageListener pageListener) {
+        this.tokenPool = tokenPool;
+        this.requestExecutor = requestExecutor;
+        this.repositoryChecker = repositoryChecker;
+        this.language = language;
+        this.pageListener = pageListener;
+    }
+
+    /**
+     * Function that searches for repository matches by iterating over the array response from the search query.
+     * I.e. by checking its root contents for the specified files within the config.properties file.
+     * If a matching is found all required metadata is collected and stored into the repositories.json file.
+     * @param searchQuery The search query to send.
+     * @param firstPage The first page to query. Greater 1 when an interrupted query is resumed.
+     * @return False if a page held no repositories, i.e. the whole search space was crawled.
+     * @throws UncheckedIOException If a search request failed, even after all retries, or the thread was interrupted
+     * while waiting for a page.
+     */
+    public boolean crawl(Map<String, String> searchQuery, int firstPage) {
+        SearchPagePrefetcher<List<SearchRepository>> pages = takeNextQueryPages(searchQuery, firstPage);
+        if (pages == null) {
+            pages = new SearchPagePrefetcher<>("search-prefetch", page -> queryRepositoriesAhead(searchQuery, page),
+                    List::isEmpty, firstPage, MAX_PAGES, Config.SEARCHPREFETCHPAGES);
+        }
+
+        for (int page = firstPage; page <= MAX_PAGES; page++) {
+            List<SearchRepository> searchRepositoryResponse = pages.next();
+            if (searchRepositoryResponse == null) {
+                // Only returned if interrupted while waiting for the prefetched page.
+                throw new UncheckedIOException(new InterruptedIOException(
+                        "Interrupted while waiting for the search response of page " + page + "."));
+            }
+            if (searchRepositoryResponse.isEmpty()) { // If we reached a page number that returns no repositories (empty list) in the query.
+                System.out.println("Found " + searchRepositoryResponse.size() + " Repos by search at page " + page);
+                return false;
+            }
+
+            System.out.println("Query Response:\nNumber Repos: " + searchRepositoryResponse.size() + "\nOn page " + page + ".\n");
+            pageListener.onPageChecked(page, repositoryChecker.checkRepositories(searchRepositoryResponse, language));
+        }
+        System.out.println("Maximum number of 1000 repositories were processed within one search query.\nSkipping others due to limitation.");
+        return true;
+    }
+
+    /**
+     * Function that sends the search request.
+     * @param searchQuery The search query qualifiers.
+     * @param page The 0-10 pages to query.
+     * @return A List of SearchRepository objects containing metadata.
+     * @throws UncheckedIOException If the request failed, even after all retries.
+     */
+    private List<SearchRepository> queryRepositories(Map<String, String> searchQuery, int page){
+        try {
+            return requestExecutor.execute(RequestType.SEARCH, "Search request of page " + page, () -> {
+                //search requests have their own rate limit and do not count against the core rate limit.
+                GitHubToken token = tokenPool.acquireSearch();
+                return token.getRepositoryService().searchRepositories(searchQuery, page);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends the search request of a page ahead of its enrichment. Once the last page of the query is known, the first
+     * pages of the next query are fetched as well.
+     * @param searchQuery The search query qualifiers.
+     * @param page The 1-10 page to query.
+     * @return A List of SearchRepository objects containing metadata.
+     */
+    private List<SearchRepository> queryRepositoriesAhead(Map<String, String> searchQuery, int page) {
+        List<SearchRepository> searchRepositories = queryRepositories(searchQuery, page);
+        if (page == MAX_PAGES && !searchRepositories.isEmpty())
+            prefetchNextQuery(searchQuery, searchRepositories.get(searchRepositories.size() - 1).getWatchers());
+        return searchRepositories;
+    }
+
+    /**
+     * Starts fetching the query that follows the current one if a repository is found within the current one
+     * (see GitHubCrawler.buildSearchQuery). The lowest stars count of the current query is known with its last page
+     * already, so the pages of the next query don't have to wait until all repositories of the current query were
+     * checked.
+     * @param searchQuery The current query.
+     * @param lowestStars The stars count of the last repository of the current query.
+     */
+    private synchronized void prefetchNextQuery(Map<String, String> searchQuery, int lowestStars) {
+        if (Config.SEARCHPREFETCHPAGES <= 0 || lowestStars <= 1)
+            return;
+        Map<String, String> query = new HashMap<>(searchQuery);
+        query.put("stars", "<=" + (lowestStars - 1));
+        if (nextQueryPages != null)
+            nextQueryPages.close();
+        nextQuery = query;
+        nextQueryPages = new SearchPagePrefetcher<>("search-prefetch", page -> queryRepositoriesAhead(query, page),
+                List::isEmpty, 1, MAX_PAGES, Config.SEARCHPREFETCHPAGES);
+    }
+
+    /**
+     * Hands out the pages of prefetchNextQuery if the query was predicted right. Wrongly predicted pages are dropped.
+     * @param searchQuery The query that is crawled next.
+     * @param firstPage The first page to query.
+     * @return The prefetched pages or null if they don't belong to the query.
+     */
+    private synchronized SearchPagePrefetcher<List<SearchRepository>> takeNextQueryPages(Map<String, String> searchQuery, int firstPage) {
+        SearchPagePrefetcher<List<SearchRepository>> pages = nextQueryPages;
+        boolean predicted = pages != null && firstPage == 1 && searchQuery.equals(nextQuery);
+        nextQuery = null;
+        nextQueryPages = null;
+        if (pages != null && !predicted) {
+            pages.close();
+            return null;
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,316 @@
+package main;
+
+import Models.CrawlCheckpoint;
+import Models.RequestType;
+import Models.SearchResult;
+import Models.SearchWindow;
+import Models.WindowLease;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import utils.LeaseDirectory;
+import utils.RepositoryMerger;
+import utils.RepositoryRouter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Crawls the disjoint search windows of the SearchPlanner, either all of them on this node or, within a distributed
+ * crawl, the windows this node claims from the lease folder shared with the other nodes (see LeaseDirectory).
+ *
+ * The windows are independent of each other and are crawled in parallel, one window per OAuth token. The crawl
+ * frontier is stored after every page of a window, so that a restarted crawler resumes every window where it stopped.
+ */
+public class SearchWindowCrawler {
+
+    static final int SEARCH_PAGE_SIZE = 100;
+
+    private final List<String> searchLanguages;
+    // The search qualifiers shared by all search queries of a language.
+    private final Function<String, Map<String, String>> baseQuery;
+    private final TokenPool tokenPool;
+    private final RequestExecutor requestExecutor;
+    private final RepositoryChecker repositoryChecker;
+    private final RepositoryRouter outputRouter;
+    /**
+     * The lease folder shared with the other nodes of a distributed crawl, null on a single node.
+     */
+    private final LeaseDirectory leaseDirectory;
+    // Stores the crawl frontier, including the remaining windows.
+    private final Runnable checkpointSaver;
+    // The search windows that were not crawled completely yet.
+    private final List<SearchWindow> remainingWindows = new ArrayList<>();
+
+    /**
+     * @param searchLanguages The searched languages, each language is planned on its own.
+     * @param baseQuery The search qualifiers shared by all search queries of a language.
+     * @param tokenPool The OAuth tokens the requests are distributed on.
+     * @param requestExecutor Sends the requests and retries them on failure.
+     * @param repositoryChecker Checks the repositories of every page.
+     * @param outputRouter The outputs of every language and build system.
+     * @param leaseDirectory The lease folder of a distributed crawl, null on a single node.
+     * @param checkpointSaver Stores the crawl frontier, called after every page.
+     */
+    public SearchWindowCrawler(List<String> searchLanguages, Function<String, Map<String, String>> baseQuery,
+                               TokenPool tokenPool, RequestExecutor requestExecutor, RepositoryChecker repositoryChecker,
+                               RepositoryRouter outputRouter, LeaseDirectory leaseDirectory, Runnable checkpointSaver) {
+        this.searchLanguages = searchLanguages;
+        this.baseQuery = baseQuery;
+        this.tokenPool = tokenPool;
+        this.requestExecutor = requestExecutor;
+        this.repositoryChecker = repositoryChecker;
+        this.outputRouter = outputRouter;
+        this.leaseDirectory = leaseDirectory;
+        this.checkpointSaver = checkpointSaver;
+    }
+
+    /**
+     * @return The search windows that were not crawled completely yet, each with its next page.
+     */
+    public List<SearchWindow> getRemainingWindows() {
+        synchronized (remainingWindows) {
+            return new ArrayList<>(remainingWindows);
+        }
+    }
+
+    /**
+     * Plans disjoint search windows with at most 1000 results each (see SearchPlanner) and crawls all of them.
+     * Every language is planned on its own, a repository only has a single language, so the windows of all languages
+     * are disjoint as well.
+     * @param checkpoint The checkpoint of an interrupted crawl, whose remaining windows are resumed. Null for a new crawl.
+     */
+    public void crawlSearchWindows(CrawlCheckpoint checkpoint) {
+        List<SearchWindow> windows;
+        if(checkpoint != null && !checkpoint.getRemainingWindows().isEmpty()) {
+            windows = checkpoint.getRemainingWindows();
+            System.out.println("Resuming " + windows.size() + " search windows.");
+        } else {
+            windows = planSearchWindows();
+        }
+        synchronized (remainingWindows) {
+            remainingWindows.addAll(windows);
+        }
+        checkpointSaver.run();
+
+        ExecutorService windowExecutor = Executors.newFixedThreadPool(Math.max(1, tokenPool.getTokens().size()));
+        List<Future<?>> crawledWindows = new ArrayList<>();
+        for (SearchWindow window : windows)
+            crawledWindows.add(windowExecutor.submit(() -> crawlSearchWindow(window, null)));
+        for (Future<?> crawledWindow : crawledWindows)
+            awaitCompletion(crawledWindow);
+        windowExecutor.shutdown();
+    }
+
+    /**
+     * @return The planned search windows of all languages.
+     */
+    private List<SearchWindow> planSearchWindows() {
+        List<SearchWindow> windows = new ArrayList<>();
+        SearchPlanner searchPlanner = new SearchPlanner(this::searchRepositories);
+        for (String language : searchLanguages) {
+            List<SearchWindow> languageWindows;
+            try {
+                languageWindows = searchPlanner.plan(baseQuery.apply(language));
+            } catch (UncheckedIOException e) {
+                System.err.println("The search windows of " + language + " couldn't be planned.\nShutting down.");
+                System.exit(1);
+                return windows;
+            }
+            for (SearchWindow window : languageWindows)
+                window.setLanguage(language);
+            windows.addAll(languageWindows);
+        }
+        System.out.println("Planned " + windows.size() + " search windows.");
+        return windows;
+    }
+
+    /**
+     * Crawls the search windows of a distributed crawl (see LeaseDirectory). Every OAuth token crawls one claimed
+     * window at a time until all windows were crawled by any of the nodes.
+     */
+    public void crawlLeasedWindows() {
+        List<SearchWindow> windows;
+        try {
+            windows = leaseDirectory.loadOrPlanWindows(this::planSearchWindows);
+        } catch (IOException e) {
+            System.err.println("Couldn't load the search windows of the lease folder at: " + leaseDirectory.getDir() + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("Crawling " + windows.size() + " search windows together with the other nodes ("
+                + leaseDirectory.getFinishedWindows() + " crawled already).");
+        int workers = Math.max(1, tokenPool.getTokens().size());
+        ExecutorService windowExecutor = Executors.newFixedThreadPool(workers);
+        List<Future<?>> crawledWindows = new ArrayList<>();
+        for (int i = 0; i < workers; i++)
+            crawledWindows.add(windowExecutor.submit(this::crawlClaimedWindows));
+        for (Future<?> crawledWindow : crawledWindows)
+            awaitCompletion(crawledWindow);
+        windowExecutor.shutdown();
+    }
+
+    /**
+     * Claims and crawls windows until all windows are crawled. While the other nodes hold the leases of all unfinished
+     * windows, their leases are watched, so that the windows of a node that died are taken over once they expired.
+     * Stops at the first window that can't be crawled, the window is released to the other nodes.
+     */
+    private void crawlClaimedWindows() {
+        while (!leaseDirectory.isFinished()) {
+            WindowLease lease = leaseDirectory.claim();
+            if (lease == null) {
+                try {
+                    Thread.sleep(Math.max(100, Math.min(1000, Config.LEASEMILLIS / 4)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            if (crawlSearchWindow(lease.getWindow(), lease)) {
+                leaseDirectory.complete(lease);
+            } else if (!lease.isLost()) {
+                leaseDirectory.release(lease);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Merges the outputs of all nodes into the merged folder of the lease folder. The merge is leased to one node at a
+     * time, a node that finishes while another node merges waits for it and merges its own complete output again.
+     */
+    public void mergeOutputs() {
+        Path mergedDir = leaseDirectory.getMergedDir();
+        outputRouter.flush();
+        WindowLease mergeLease = leaseDirectory.lockMerge();
+        try {
+            for (Map.Entry<String, List<Path>> output : leaseDirectory.getOutputs().entrySet()) {
+                Path mergedPath = mergedDir.resolve(output.getKey());
+                long repositories = RepositoryMerger.merge(output.getValue(), mergedPath);
+                System.out.println("Merged " + repositories + " repositories of " + output.getValue().size()
+                        + " nodes into: " + mergedPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't merge the outputs of the nodes. Merge them with utils.RepositoryMerger instead.");
+            System.err.println(e.getMessage());
+        } finally {
+            leaseDirectory.unlockMerge(mergeLease);
+            leaseDirectory.close();
+        }
+    }
+
+    /**
+     * Crawls all result pages of a single search window, starting at the next page stored within the window.
+     * The number of pages is known from the planned total count, so no empty page is requested.
+     * @param window The window to crawl.
+     * @param lease The lease of the window within a distributed crawl, null on a single node.
+     * @return True if all pages of the window were crawled.
+     */
+    private boolean crawlSearchWindow(SearchWindow window, WindowLease lease) {
+        // Windows of older checkpoints were planned for a single language.
+        String language = window.getLanguage() != null ? window.getLanguage() : searchLanguages.get(0);
+        Map<String, String> qualifiers = window.toQualifiers(baseQuery.apply(language));
+        int pages = (Math.min(window.getTotalCount(), SearchPlanner.MAX_RESULTS) + SEARCH_PAGE_SIZE - 1) / SEARCH_PAGE_SIZE;
+        SearchPagePrefetcher<SearchResult> prefetcher = new SearchPagePrefetcher<>("search-prefetch",
+                page -> searchRepositories(qualifiers, page, SEARCH_PAGE_SIZE), result -> result.getItems().isEmpty(),
+                window.getNextPage(), pages, Config.SEARCHPREFETCHPAGES);
+        try {
+            while (prefetcher.hasNext()) {
+                int page = prefetcher.getNextPage();
+                SearchResult result;
+                try {
+                    result = prefetcher.next();
+                } catch (UncheckedIOException e) {
+                    // The window stays within the checkpoint and is resumed at this page by the next crawl.
+                    System.err.println("Stopped crawling search window " + window + " at page " + page + ".");
+                    return false;
+                }
+                if (result == null) {
+                    // Interrupted while waiting for the page, the window is resumed at this page as well.
+                    System.err.println("Interrupted while crawling search window " + window + " at page " + page + ".");
+                    return false;
+                }
+                if (result.getItems().isEmpty())
+                    break;
+                repositoryChecker.checkRepositories(result.toSearchRepositories(), language);
+                synchronized (remainingWindows) {
+                    window.setNextPage(page + 1);
+                }
+                checkpointSaver.run();
+                if (lease != null) {
+                    leaseDirectory.progress(lease, page + 1);
+                    if (lease.isLost()) {
+                        System.err.println("Stopped crawling search window " + window + " at page " + page
+                                + ", it was taken over by another node.");
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            prefetcher.close();
+        }
+        synchronized (remainingWindows) {
+            remainingWindows.remove(window);
+        }
+        checkpointSaver.run();
+        System.out.println("Crawled search window " + window);
+        return true;
+    }
+
+    /**
+     * Sends a request to the search API, which also reports the total number of results of the query.
+     * @param qualifiers The search query qualifiers.
+     * @param page The page to query.
+     * @param perPage The number of results per page, at most 100.
+     * @return The search result.
+     * @throws UncheckedIOException If the request failed, even after all retries.
+     */
+    private SearchResult searchRepositories(Map<String, String> qualifiers, int page, int perPage) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> qualifier : qualifiers.entrySet())
+            query.append(qualifier.getKey()).append(':').append(qualifier.getValue()).append(' ');
+        Map<String, String> params = new HashMap<>();
+        params.put("q", query.toString().trim());
+        params.put("sort", "stars");
+        params.put("order", "desc");
+        params.put("page", String.valueOf(page));
+        params.put("per_page", String.valueOf(perPage));
+        GitHubRequest request = new GitHubRequest();
+        request.setUri("/search/repositories");
+        request.setParams(params);
+        request.setType(SearchResult.class);
+        try {
+            return requestExecutor.execute(RequestType.SEARCH, "Search request of page " + page + " of " + qualifiers, () -> {
+                GitHubToken token = tokenPool.acquireSearch();
+                return (SearchResult) token.getClient().get(request).getBody();
+            });
+        } catch (IOException e) {
+            System.err.println("Something went wrong while performing the repository search request of page " + page + " of " + qualifiers + ".");
+            System.err.println(e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void awaitCompletion(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted while crawling the search windows.\nShutting down.");
+            System.exit(1);
+        } catch (ExecutionException e) {
+            System.err.println("Something went wrong while crawling a search window.");
+            System.err.println(e.getCause().getMessage());
+        }
+    }
+}
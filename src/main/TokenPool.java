@@ -0,0 +1,126 @@
+package main;
+
+import Models.RequestType;
+import utils.Metrics;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pool of OAuth tokens the requests are distributed on.
+ *
+ * Every token has its own client and quota tracking (see GitHubToken). A request is sent with the token that has the
+ * most remaining requests for the rate limit resource of the request. Tokens that are exhausted are skipped until their
+ * limit resets, invalid tokens are taken out of rotation for good. Thus, the throughput scales with the number of tokens.
+ */
+public class TokenPool {
+
+    private final List<GitHubToken> tokens = new ArrayList<>();
+
+    /**
+     * @param oAuthTokens The Github OAuth tokens. Unauthenticated requests are sent if the list is empty.
+     * @param apiUrl The base URL of the API.
+     */
+    public TokenPool(List<String> oAuthTokens, String apiUrl) {
+        if (oAuthTokens.isEmpty()) {
+            tokens.add(new GitHubToken("unauthenticated client", "", apiUrl));
+        } else {
+            for (int i = 0; i < oAuthTokens.size(); i++)
+                tokens.add(new GitHubToken("token #" + (i + 1), oAuthTokens.get(i), apiUrl));
+        }
+    }
+
+    /**
+     * Selects the token with the most remaining requests and blocks until the request may be sent with it.
+     * @param requestType The type of the request to send.
+     * @return The token to send the request with.
+     */
+    public GitHubToken acquire(RequestType requestType) {
+        return acquire(requestType, 1);
+    }
+
+    /**
+     * Selects the token with the most remaining requests and blocks until the request may be sent with it.
+     * @param requestType The type of the request to send.
+     * @param permits The expected cost of the request, i.e. the points of a GraphQL query.
+     * @return The token to send the request with.
+     */
+    public GitHubToken acquire(RequestType requestType, int permits) {
+        GitHubToken token = select(requestType.getResource());
+        long start = System.nanoTime();
+        token.getRequestScheduler().acquire(requestType, permits);
+        Metrics.getInstance().recordLimiterWait(requestType, System.nanoTime() - start);
+        return token;
+    }
+
+    /**
+     * Waits for the search rate limit. A SearchPagePrefetcher that is closed interrupts its thread, which the
+     * RequestScheduler only passes on as the interrupt status, so the request of a dropped page isn't sent anymore.
+     * @return The token to send the search request with.
+     * @throws InterruptedIOException If the thread was interrupted while waiting.
+     */
+    public GitHubToken acquireSearch() throws InterruptedIOException {
+        GitHubToken token = acquire(RequestType.SEARCH);
+        if (Thread.currentThread().isInterrupted())
+            throw new InterruptedIOException("Interrupted while waiting for the search rate limit.");
+        return token;
+    }
+
+    /**
+     * @return All tokens that are not taken out of rotation.
+     */
+    public List<GitHubToken> getTokens() {
+        List<GitHubToken> activeTokens = new ArrayList<>();
+        for (GitHubToken token : tokens) {
+            if (!token.getRequestScheduler().isDisabled())
+                activeTokens.add(token);
+        }
+        return Collections.unmodifiableList(activeTokens);
+    }
+
+    /**
+     * @return The sum of the remaining core requests of all active tokens as reported by GitHub.
+     */
+    public int getRemainingRequests() {
+        int remaining = 0;
+        for (GitHubToken token : getTokens())
+            remaining += Math.max(0, token.getClient().getRemainingRequests());
+        return remaining;
+    }
+
+    /**
+     * @return The sum of the request rates of all active tokens.
+     */
+    public double getRate(String resource) {
+        double rate = 0;
+        for (GitHubToken token : getTokens())
+            rate += token.getRequestScheduler().getRate(resource);
+        return rate;
+    }
+
+    private GitHubToken select(String resource) {
+        GitHubToken best = null;
+        GitHubToken earliestAvailable = null;
+        for (GitHubToken token : tokens) {
+            RequestScheduler scheduler = token.getRequestScheduler();
+            if (scheduler.isDisabled())
+                continue;
+            if (scheduler.isAvailable(resource)
+                    && (best == null || scheduler.getRemaining(resource) > best.getRequestScheduler().getRemaining(resource)))
+                best = token;
+            if (earliestAvailable == null
+                    || scheduler.getPausedUntil(resource) < earliestAvailable.getRequestScheduler().getPausedUntil(resource))
+                earliestAvailable = token;
+        }
+        if (best != null)
+            return best;
+        if (earliestAvailable == null) {
+            System.err.println("All OAuth tokens were rejected by GitHub.\nShutting down.");
+            System.exit(1);
+        }
+        // All tokens are exhausted. The scheduler of the token that resets first blocks until its limit reset.
+        return earliestAvailable;
+    }
+}
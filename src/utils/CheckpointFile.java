@@ -0,0 +1,74 @@
+package utils;
+
+import Models.CrawlCheckpoint;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Simple crawl checkpoint file. The checkpoint is written to a temporary file first and then renamed,
+ * so a crash while saving never leaves a broken checkpoint behind.
+ */
+public class CheckpointFile {
+
+    private final Path checkpointPath;
+    private final Path tempPath;
+    private final Gson gson;
+
+    public CheckpointFile(String pathAndName) {
+        this.checkpointPath = Paths.get(pathAndName);
+        this.tempPath = Paths.get(pathAndName + ".tmp");
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+    }
+
+    /**
+     * @return The stored checkpoint or null if there is none.
+     */
+    public CrawlCheckpoint load() {
+        if (!Files.exists(checkpointPath))
+            return null;
+        try (FileReader reader = new FileReader(checkpointPath.toFile())) {
+            return gson.fromJson(reader, CrawlCheckpoint.class);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Couldn't read the checkpoint file at: " + checkpointPath + ". Starting a new crawl.");
+            System.err.println(e.getMessage());
+        }
+        return null;
+    }
+
+    public synchronized void save(CrawlCheckpoint checkpoint) {
+        try (FileWriter file = new FileWriter(tempPath.toFile())) {
+            gson.toJson(checkpoint, file);
+            file.flush();
+        } catch (IOException e) {
+            System.err.println("Couldn't write the checkpoint file.");
+            System.err.println(e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tempPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Couldn't write the checkpoint file.");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the checkpoint after the crawl finished.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(checkpointPath);
+        } catch (IOException e) {
+            System.err.println("Couldn't delete the checkpoint file at: " + checkpointPath + ".");
+        }
+    }
+}
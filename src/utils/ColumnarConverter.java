@@ -0,0 +1,74 @@
+package utils;
+
+import Models.RMetaData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts an existing repositories.json file into the columnar output of the ColumnarWriter.
+ *
+ * The json array is streamed repository by repository, so files of any size can be converted.
+ * Usage: java -cp crawler-1.0-SNAPSHOT-all.jar utils.ColumnarConverter repositories.json [repositories.columns]
+ */
+public class ColumnarConverter {
+
+    private static final int BATCH_SIZE = 10000;
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ColumnarConverter <repositories.json> [<columns folder>]");
+            System.exit(1);
+        }
+        Path jsonPath = Paths.get(args[0]);
+        Path columnsDir = args.length == 2 ? Paths.get(args[1]) : defaultColumnsDir(jsonPath);
+        try {
+            long repositories = convert(jsonPath, columnsDir);
+            System.out.println("Converted " + repositories + " repositories to: " + columnsDir);
+        } catch (IOException e) {
+            System.err.println("Couldn't convert " + jsonPath + ". " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param jsonPath The json file to convert.
+     * @param columnsDir The folder of the columnar output. It must not hold any repositories yet.
+     * @return The number of converted repositories.
+     * @throws IOException If the json file can't be read or the columnar output can't be written.
+     */
+    public static long convert(Path jsonPath, Path columnsDir) throws IOException {
+        if (Files.exists(columnsDir.resolve(ColumnarManifest.FILE_NAME)) && new ColumnarReader(columnsDir).getRows() > 0)
+            throw new IOException(columnsDir + " holds repositories already.");
+        // The dates are parsed in the same default format they were written in by the JsonWriter.
+        Gson gson = new GsonBuilder().create();
+        ColumnarWriter writer = new ColumnarWriter(columnsDir, BATCH_SIZE);
+        long repositories = 0;
+        try (BufferedReader reader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8);
+             com.google.gson.stream.JsonReader json = new com.google.gson.stream.JsonReader(reader)) {
+            json.beginArray();
+            while (json.hasNext()) {
+                RMetaData repository = gson.fromJson(json, RMetaData.class);
+                writer.writeRepository(repository);
+                repositories++;
+            }
+            json.endArray();
+        } finally {
+            writer.close();
+        }
+        return repositories;
+    }
+
+    private static Path defaultColumnsDir(Path jsonPath) {
+        String fileName = jsonPath.getFileName().toString();
+        if (fileName.endsWith(".json"))
+            fileName = fileName.substring(0, fileName.length() - ".json".length());
+        return jsonPath.resolveSibling(fileName + ".columns");
+    }
+}
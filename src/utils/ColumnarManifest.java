@@ -0,0 +1,96 @@
+package utils;
+
+import Models.RepositoryColumn;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Manifest of the columnar output. It holds the number of committed rows and the committed length of every column and
+ * dictionary file. Bytes behind the committed length belong to a batch that was cut off by a crash and are ignored.
+ * The manifest is replaced atomically after every batch, so the columns always fit each other.
+ */
+class ColumnarManifest {
+
+    static final String FILE_NAME = "manifest";
+    private static final int MAGIC = 0x434f4c53; // "COLS"
+    private static final int VERSION = 1;
+
+    long rows;
+    long lastWrittenId;
+    final Map<RepositoryColumn, Long> dataLengths = new EnumMap<>(RepositoryColumn.class);
+    final Map<RepositoryColumn, Long> dictionaryLengths = new EnumMap<>(RepositoryColumn.class);
+
+    long getDataLength(RepositoryColumn column) {
+        return dataLengths.getOrDefault(column, 0L);
+    }
+
+    long getDictionaryLength(RepositoryColumn column) {
+        return dictionaryLengths.getOrDefault(column, 0L);
+    }
+
+    /**
+     * @param dir The folder of the columnar output.
+     * @return The manifest or an empty manifest if the folder doesn't hold one yet.
+     * @throws IOException If the manifest can't be read or belongs to another format version.
+     */
+    static ColumnarManifest read(Path dir) throws IOException {
+        ColumnarManifest manifest = new ColumnarManifest();
+        Path path = dir.resolve(FILE_NAME);
+        if (!Files.exists(path))
+            return manifest;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("The manifest at " + path + " is broken or of another version.");
+            manifest.rows = in.readLong();
+            manifest.lastWrittenId = in.readLong();
+            int columns = in.readInt();
+            for (int i = 0; i < columns; i++) {
+                String name = in.readUTF();
+                long dataLength = in.readLong();
+                long dictionaryLength = in.readLong();
+                for (RepositoryColumn column : RepositoryColumn.values()) {
+                    if (column.toString().equals(name)) {
+                        manifest.dataLengths.put(column, dataLength);
+                        manifest.dictionaryLengths.put(column, dictionaryLength);
+                    }
+                }
+            }
+        }
+        return manifest;
+    }
+
+    void write(Path dir) throws IOException {
+        Path path = dir.resolve(FILE_NAME);
+        Path tempPath = dir.resolve(FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(rows);
+            out.writeLong(lastWrittenId);
+            out.writeInt(RepositoryColumn.values().length);
+            for (RepositoryColumn column : RepositoryColumn.values()) {
+                out.writeUTF(column.toString());
+                out.writeLong(getDataLength(column));
+                out.writeLong(getDictionaryLength(column));
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Path dataPath(Path dir, RepositoryColumn column) {
+        return dir.resolve(column + ".col");
+    }
+
+    static Path dictionaryPath(Path dir, RepositoryColumn column) {
+        return dir.resolve(column + ".dict");
+    }
+}
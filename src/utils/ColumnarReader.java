@@ -0,0 +1,253 @@
+package utils;
+
+import Models.RMetaData;
+import Models.RepositoryColumn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the columnar output of the ColumnarWriter.
+ *
+ * Every column is read on its own, only up to the length committed in the manifest. Scans over a few columns, i.e.
+ * the stars per build system (see sumPerValue), don't decode any other field of the repositories.
+ */
+public class ColumnarReader {
+
+    private final Path dir;
+    private final ColumnarManifest manifest;
+
+    /**
+     * @param dir The folder of the columnar output, i.e. repositories.columns.
+     * @throws IOException If the manifest can't be read.
+     */
+    public ColumnarReader(Path dir) throws IOException {
+        this.dir = dir;
+        if (!Files.exists(dir.resolve(ColumnarManifest.FILE_NAME)))
+            throw new IOException("There is no columnar output at: " + dir);
+        this.manifest = ColumnarManifest.read(dir);
+        if (manifest.rows > Integer.MAX_VALUE)
+            throw new IOException("The columnar output at " + dir + " holds more rows than an array can.");
+    }
+
+    /**
+     * @return The number of repositories.
+     */
+    public int getRows() {
+        return (int) manifest.rows;
+    }
+
+    /**
+     * @param column A LONG or DATE column. Dates are epoch milliseconds, Long.MIN_VALUE for null.
+     * @return The values of all rows.
+     */
+    public long[] readLongs(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.LONG, RepositoryColumn.Type.DATE);
+        long[] values = new long[getRows()];
+        read(column, Long.BYTES).asLongBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * @param column An INT or DICTIONARY column. The values of a DICTIONARY column are the indexes within its
+     *               dictionary (see readDictionary), -1 for null.
+     * @return The values of all rows.
+     */
+    public int[] readInts(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.INT, RepositoryColumn.Type.DICTIONARY);
+        int[] values = new int[getRows()];
+        read(column, Integer.BYTES).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * @param column A BOOLEAN column.
+     * @return The values of all rows.
+     */
+    public boolean[] readBooleans(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.BOOLEAN);
+        ByteBuffer buffer = read(column, 1);
+        boolean[] values = new boolean[getRows()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = buffer.get() != 0;
+        return values;
+    }
+
+    /**
+     * @param column A DICTIONARY column.
+     * @return The distinct values of the column, the position within the list is the index stored in the column.
+     */
+    public List<String> readDictionary(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.DICTIONARY);
+        return readDictionary(ColumnarManifest.dictionaryPath(dir, column), manifest.getDictionaryLength(column));
+    }
+
+    /**
+     * @param column A STRING or DICTIONARY column.
+     * @return The values of all rows.
+     */
+    public String[] readStrings(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.STRING, RepositoryColumn.Type.DICTIONARY);
+        String[] values = new String[getRows()];
+        if (column.getType() == RepositoryColumn.Type.DICTIONARY) {
+            List<String> dictionary = readDictionary(column);
+            int[] indexes = readInts(column);
+            for (int i = 0; i < values.length; i++)
+                values[i] = indexes[i] < 0 ? null : dictionary.get(indexes[i]);
+            return values;
+        }
+        ByteBuffer buffer = read(column, 0);
+        for (int i = 0; i < values.length; i++)
+            values[i] = readString(buffer);
+        return values;
+    }
+
+    /**
+     * @param column A STRING_LIST column.
+     * @return The values of all rows.
+     */
+    public List<List<String>> readStringLists(RepositoryColumn column) throws IOException {
+        checkType(column, RepositoryColumn.Type.STRING_LIST);
+        ByteBuffer buffer = read(column, 0);
+        List<List<String>> values = new ArrayList<>(getRows());
+        for (int i = 0; i < getRows(); i++) {
+            int size = buffer.getInt();
+            List<String> value = size < 0 ? null : new ArrayList<>(size);
+            for (int j = 0; j < size; j++)
+                value.add(readString(buffer));
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Sums up an int column per value of a dictionary column, i.e. the stars per build system.
+     * Reads nothing but the two columns and the dictionary.
+     * @param intColumn The INT column to sum up, i.e. STARGAZERSCOUNT.
+     * @param dictionaryColumn The DICTIONARY column to group by, i.e. BUILDSYSTEM.
+     * @return The sum per value of the dictionary column in the order of the dictionary. Null values are summed up
+     * under the null key.
+     */
+    public Map<String, Long> sumPerValue(RepositoryColumn intColumn, RepositoryColumn dictionaryColumn) throws IOException {
+        checkType(intColumn, RepositoryColumn.Type.INT);
+        List<String> dictionary = readDictionary(dictionaryColumn);
+        int[] keys = readInts(dictionaryColumn);
+        int[] values = readInts(intColumn);
+        long[] sums = new long[dictionary.size() + 1]; // the last one sums up the null values
+        for (int i = 0; i < keys.length; i++)
+            sums[keys[i] < 0 ? dictionary.size() : keys[i]] += values[i];
+        Map<String, Long> sumPerValue = new LinkedHashMap<>();
+        for (int i = 0; i < dictionary.size(); i++)
+            sumPerValue.put(dictionary.get(i), sums[i]);
+        if (sums[dictionary.size()] != 0)
+            sumPerValue.put(null, sums[dictionary.size()]);
+        return sumPerValue;
+    }
+
+    /**
+     * Decodes all columns into whole repositories, i.e. to convert them back to json.
+     * @return All repositories in the order they were written.
+     */
+    public List<RMetaData> readRepositories() throws IOException {
+        List<RMetaData> repositories = new ArrayList<>(getRows());
+        for (int i = 0; i < getRows(); i++)
+            repositories.add(new RMetaData());
+        for (RepositoryColumn column : RepositoryColumn.values()) {
+            switch (column.getType()) {
+                case LONG:
+                    long[] longs = readLongs(column);
+                    for (int i = 0; i < longs.length; i++)
+                        column.set(repositories.get(i), longs[i]);
+                    break;
+                case DATE:
+                    long[] dates = readLongs(column);
+                    for (int i = 0; i < dates.length; i++)
+                        column.set(repositories.get(i), dates[i] == Long.MIN_VALUE ? null : new Date(dates[i]));
+                    break;
+                case INT:
+                    int[] ints = readInts(column);
+                    for (int i = 0; i < ints.length; i++)
+                        column.set(repositories.get(i), ints[i]);
+                    break;
+                case BOOLEAN:
+                    boolean[] booleans = readBooleans(column);
+                    for (int i = 0; i < booleans.length; i++)
+                        column.set(repositories.get(i), booleans[i]);
+                    break;
+                case DICTIONARY:
+                case STRING:
+                    String[] strings = readStrings(column);
+                    for (int i = 0; i < strings.length; i++)
+                        column.set(repositories.get(i), strings[i]);
+                    break;
+                case STRING_LIST:
+                    List<List<String>> lists = readStringLists(column);
+                    for (int i = 0; i < lists.size(); i++)
+                        column.set(repositories.get(i), lists.get(i));
+                    break;
+            }
+        }
+        return repositories;
+    }
+
+    /**
+     * Reads the committed part of a column file.
+     * @param width The width of a value of a fixed width column, 0 for variable width columns.
+     */
+    private ByteBuffer read(RepositoryColumn column, int width) throws IOException {
+        long length = manifest.getDataLength(column);
+        if (width > 0 && length != (long) width * manifest.rows)
+            throw new IOException("The " + column + " column holds " + length + " bytes instead of " + width * manifest.rows + ".");
+        return read(ColumnarManifest.dataPath(dir, column), length);
+    }
+
+    static List<String> readDictionary(Path path, long length) throws IOException {
+        List<String> dictionary = new ArrayList<>();
+        if (length == 0)
+            return dictionary;
+        ByteBuffer buffer = read(path, length);
+        while (buffer.hasRemaining())
+            dictionary.add(readString(buffer));
+        return dictionary;
+    }
+
+    private static ByteBuffer read(Path path, long length) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException(path + " is too large to be read at once.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < length)
+                throw new IOException(path + " is shorter than committed in the manifest.");
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                // read until the committed length
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void checkType(RepositoryColumn column, RepositoryColumn.Type... types) {
+        if (!Arrays.asList(types).contains(column.getType()))
+            throw new IllegalArgumentException("The " + column + " column is of type " + column.getType() + ", not " + Arrays.toString(types) + ".");
+    }
+}
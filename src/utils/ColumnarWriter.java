@@ -0,0 +1,311 @@
+package utils;
+
+import Models.RMetaData;
+import Models.RepositoryColumn;
+import main.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar alternative to the repositories.json file.
+ *
+ * Every field of RMetaData is appended to its own file within the repositories.columns folder (see RepositoryColumn
+ * for the encodings). Dates are stored as epoch milliseconds, counts as primitive ints, and strings with only a few
+ * distinct values, such as the language or the build system, as indexes into a dictionary file of the column. Thus,
+ * a scan over a single column, i.e. the stars per build system, reads only the files of the columns it needs
+ * (see ColumnarReader).
+ *
+ * Like the JsonWriter, the repositories are collected in a batch that is appended to all files and synced to disk
+ * (group commit) as soon as it holds Config.FLUSHEVERYRECORDS repositories or Config.FLUSHINTERVALMILLIS milliseconds
+ * have passed. The manifest is replaced after every batch. Bytes of a batch that was cut off by a crash are behind the
+ * committed lengths of the manifest and are dropped when the folder is opened again.
+ */
+public class ColumnarWriter implements RepositorySink {
+
+    // static variable single_instance of type Singleton
+    private static ColumnarWriter single_instance = null;
+
+    private final Path dir;
+    private final ColumnarManifest manifest;
+    private final Map<RepositoryColumn, FileChannel> dataChannels = new EnumMap<>(RepositoryColumn.class);
+    private final Map<RepositoryColumn, FileChannel> dictionaryChannels = new EnumMap<>(RepositoryColumn.class);
+    private final Map<RepositoryColumn, ByteArrayOutputStream> dataBatches = new EnumMap<>(RepositoryColumn.class);
+    private final Map<RepositoryColumn, ByteArrayOutputStream> dictionaryBatches = new EnumMap<>(RepositoryColumn.class);
+    // Index of every string within the dictionary of its column, including the strings of the current batch.
+    private final Map<RepositoryColumn, Map<String, Integer>> dictionaries = new EnumMap<>(RepositoryColumn.class);
+    private final int flushEveryRecords;
+    private int batchSize;
+    private long lastBatchId;
+    private volatile long lostRepositories;
+    private ScheduledExecutorService flushScheduler;
+
+    /**
+     * Opens the columnar output in the given folder. Rows that are already stored in it are kept.
+     * @param dir The folder of the columnar output. It is created if it doesn't exist.
+     * @param flushEveryRecords The number of repositories that are written as one batch.
+     * @throws IOException If the folder can't be opened.
+     */
+    public ColumnarWriter(Path dir, int flushEveryRecords) throws IOException {
+        this.dir = dir;
+        this.flushEveryRecords = Math.max(1, flushEveryRecords);
+        Files.createDirectories(dir);
+        this.manifest = ColumnarManifest.read(dir);
+        for (RepositoryColumn column : RepositoryColumn.values()) {
+            dataChannels.put(column, open(ColumnarManifest.dataPath(dir, column), manifest.getDataLength(column)));
+            dataBatches.put(column, new ByteArrayOutputStream());
+            if (column.getType() == RepositoryColumn.Type.DICTIONARY) {
+                dictionaryChannels.put(column, open(ColumnarManifest.dictionaryPath(dir, column), manifest.getDictionaryLength(column)));
+                dictionaryBatches.put(column, new ByteArrayOutputStream());
+                dictionaries.put(column, readDictionary(column));
+            }
+        }
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized ColumnarWriter getInstance()
+    {
+        if (single_instance == null)
+            single_instance = open(FileHelper.getRepositoriesColumnsDirPath());
+
+        return single_instance;
+    }
+
+    /**
+     * Opens a columnar output that is flushed on its own, i.e. the output of a single language and build system.
+     * @param dirPath The folder of the columnar output.
+     * @return The columnar output. Shuts down if it can't be opened.
+     */
+    public static ColumnarWriter open(String dirPath) {
+        ColumnarWriter writer = null;
+        try {
+            writer = new ColumnarWriter(Paths.get(dirPath), Config.FLUSHEVERYRECORDS);
+        } catch (IOException e) {
+            System.err.println("Couldn't open the columnar output at: " + dirPath + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        writer.startFlushScheduler();
+        return writer;
+    }
+
+    @Override
+    public synchronized void writeRepository(RMetaData repository) {
+        try {
+            for (RepositoryColumn column : RepositoryColumn.values())
+                encode(column, column.get(repository), new DataOutputStream(dataBatches.get(column)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory streams don't throw
+        }
+        batchSize++;
+        lastBatchId = repository.getId();
+        if (batchSize >= flushEveryRecords)
+            flush();
+    }
+
+    /**
+     * Appends the current batch to all column files, syncs them to disk and commits the batch in the manifest.
+     */
+    @Override
+    public synchronized void flush() {
+        if (batchSize == 0 || dataChannels.isEmpty())
+            return;
+        Map<RepositoryColumn, Long> dataLengths = new EnumMap<>(RepositoryColumn.class);
+        Map<RepositoryColumn, Long> dictionaryLengths = new EnumMap<>(RepositoryColumn.class);
+        try {
+            for (RepositoryColumn column : RepositoryColumn.values()) {
+                dataLengths.put(column, append(dataChannels.get(column), manifest.getDataLength(column), dataBatches.get(column)));
+                if (dictionaryChannels.containsKey(column))
+                    dictionaryLengths.put(column, append(dictionaryChannels.get(column), manifest.getDictionaryLength(column), dictionaryBatches.get(column)));
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't append repositories to the columnar output. " + batchSize + " repositories are lost.");
+            lostRepositories += batchSize;
+            System.err.println(e.getMessage());
+            rollback();
+            clearBatch();
+            return;
+        }
+        long writtenBytes = 0;
+        for (RepositoryColumn column : dataLengths.keySet())
+            writtenBytes += dataLengths.get(column) - manifest.getDataLength(column);
+        for (RepositoryColumn column : dictionaryLengths.keySet())
+            writtenBytes += dictionaryLengths.get(column) - manifest.getDictionaryLength(column);
+        manifest.dataLengths.putAll(dataLengths);
+        manifest.dictionaryLengths.putAll(dictionaryLengths);
+        manifest.rows += batchSize;
+        manifest.lastWrittenId = lastBatchId;
+        try {
+            manifest.write(dir);
+        } catch (IOException e) {
+            // The batch is synced to disk already, it is committed together with the next batch.
+            System.err.println("Couldn't write the manifest of the columnar output. " + e.getMessage());
+        }
+        Metrics.getInstance().countOutputBytes(writtenBytes);
+        clearBatch();
+    }
+
+    private void clearBatch() {
+        for (ByteArrayOutputStream batch : dataBatches.values())
+            batch.reset();
+        for (ByteArrayOutputStream batch : dictionaryBatches.values())
+            batch.reset();
+        batchSize = 0;
+    }
+
+    @Override
+    public synchronized long getLastWrittenId() {
+        return manifest.lastWrittenId;
+    }
+
+    @Override
+    public long getLostRepositories() {
+        return lostRepositories;
+    }
+
+    /**
+     * @return The number of repositories that were written and synced to disk.
+     */
+    public synchronized long getRows() {
+        return manifest.rows;
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        if (flushScheduler != null)
+            flushScheduler.shutdown();
+        for (FileChannel channel : dataChannels.values())
+            closeChannel(channel);
+        for (FileChannel channel : dictionaryChannels.values())
+            closeChannel(channel);
+        dataChannels.clear();
+        dictionaryChannels.clear();
+    }
+
+    private void startFlushScheduler() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "columnar-writer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, Config.FLUSHINTERVALMILLIS, Config.FLUSHINTERVALMILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    private void encode(RepositoryColumn column, Object value, DataOutputStream out) throws IOException {
+        switch (column.getType()) {
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case INT:
+                out.writeInt((Integer) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case DATE:
+                out.writeLong(value == null ? Long.MIN_VALUE : ((Date) value).getTime());
+                break;
+            case DICTIONARY:
+                out.writeInt(value == null ? -1 : dictionaryIndex(column, (String) value));
+                break;
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case STRING_LIST:
+                @SuppressWarnings("unchecked")
+                List<String> values = (List<String>) value;
+                out.writeInt(values == null ? -1 : values.size());
+                if (values != null) {
+                    for (String entry : values)
+                        writeString(out, entry);
+                }
+                break;
+        }
+    }
+
+    private int dictionaryIndex(RepositoryColumn column, String value) throws IOException {
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(value, index);
+            writeString(new DataOutputStream(dictionaryBatches.get(column)), value);
+        }
+        return index;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Drops the strings of a lost batch from the dictionaries.
+     */
+    private void rollback() {
+        for (RepositoryColumn column : dictionaries.keySet()) {
+            try {
+                dictionaries.put(column, readDictionary(column));
+            } catch (IOException e) {
+                System.err.println("Couldn't read the dictionary of the " + column + " column.\nShutting down.");
+                System.exit(1);
+            }
+        }
+    }
+
+    private Map<String, Integer> readDictionary(RepositoryColumn column) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (String value : ColumnarReader.readDictionary(ColumnarManifest.dictionaryPath(dir, column), manifest.getDictionaryLength(column)))
+            dictionary.put(value, dictionary.size());
+        return dictionary;
+    }
+
+    /**
+     * Opens a column file and drops everything behind its committed length.
+     */
+    private static FileChannel open(Path path, long committedLength) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > committedLength)
+            channel.truncate(committedLength);
+        return channel;
+    }
+
+    private static long append(FileChannel channel, long position, ByteArrayOutputStream batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        channel.force(false);
+        return position;
+    }
+
+    private static void closeChannel(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package utils;
+
+import Models.DeadLetter;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Json lines file of the repositories that couldn't be checked (see DeadLetter). Every dead letter is appended and
+ * flushed right away, so none is lost if the crawler is killed.
+ *
+ * The dead letters are re-driven by moving the file aside first (see takeAll). Repositories that fail again are
+ * appended to a new file, and the moved file is only removed once all of its repositories were checked.
+ */
+public class DeadLetterFile {
+
+    private final Path deadLetterPath;
+    private final Path redrivePath;
+    private final Gson gson = new Gson();
+
+    public DeadLetterFile(String pathAndName) {
+        this.deadLetterPath = Paths.get(pathAndName);
+        this.redrivePath = Paths.get(pathAndName + ".redrive");
+    }
+
+    public synchronized void add(DeadLetter deadLetter) {
+        try (Writer writer = Files.newBufferedWriter(deadLetterPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(gson.toJson(deadLetter));
+            writer.write('\n');
+        } catch (IOException e) {
+            System.err.println("Couldn't write the dead letter of " + deadLetter.getOwner() + "/" + deadLetter.getName()
+                    + " to: " + deadLetterPath);
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Moves all dead letters aside for a re-drive, including those of an interrupted re-drive.
+     * @return The dead letters, at most one per repository.
+     */
+    public synchronized List<DeadLetter> takeAll() {
+        Map<String, DeadLetter> deadLetters = new LinkedHashMap<>();
+        read(redrivePath, deadLetters);
+        read(deadLetterPath, deadLetters);
+        try {
+            if (Files.exists(deadLetterPath) || !deadLetters.isEmpty()) {
+                try (Writer writer = Files.newBufferedWriter(redrivePath, StandardCharsets.UTF_8)) {
+                    for (DeadLetter deadLetter : deadLetters.values()) {
+                        writer.write(gson.toJson(deadLetter));
+                        writer.write('\n');
+                    }
+                }
+                Files.deleteIfExists(deadLetterPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't move the dead letters aside. They are re-driven once more on the next start.");
+            System.err.println(e.getMessage());
+        }
+        return new ArrayList<>(deadLetters.values());
+    }
+
+    /**
+     * Removes the dead letters of takeAll after all of them were re-driven.
+     */
+    public synchronized void finishRedrive() {
+        try {
+            Files.deleteIfExists(redrivePath);
+        } catch (IOException e) {
+            System.err.println("Couldn't delete the re-driven dead letters at: " + redrivePath + ".");
+        }
+    }
+
+    public Path getPath() {
+        return deadLetterPath;
+    }
+
+    private void read(Path path, Map<String, DeadLetter> deadLetters) {
+        if (!Files.exists(path))
+            return;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                try {
+                    DeadLetter deadLetter = gson.fromJson(line, DeadLetter.class);
+                    deadLetters.put(deadLetter.getOwner() + "/" + deadLetter.getName(), deadLetter);
+                } catch (JsonParseException e) {
+                    // The last line of a crawler that was killed while writing it.
+                    System.err.println("Skipping a broken dead letter of: " + path + ".");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't read all dead letters of: " + path + ".");
+            System.err.println(e.getMessage());
+        }
+    }
+}
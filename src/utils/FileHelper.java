@@ -1,12 +1,17 @@
 package utils;
 
+import Models.BuildSystem;
 import main.Config;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -38,6 +43,91 @@ public class FileHelper {
         }
     }
 
+    /**
+     * The output of a single language and build system of a crawl over several of them,
+     * i.e. repositories-cpp-cmake.json for the language CPP and the build system CMAKE.
+     * @param language The language as set within the language property.
+     * @param buildSystem The build system.
+     * @return The json file of the combination.
+     */
+    public static String getRepositoriesJsonFilePath(String language, BuildSystem buildSystem) {
+        String jsonFilePath = getRepositoriesJsonFilePath();
+        String fileLanguage = language.toLowerCase(Locale.ROOT).replace("+", "p").replace("#", "sharp")
+                .replaceAll("[^a-z0-9]+", "-");
+        return jsonFilePath.substring(0, jsonFilePath.length() - ".json".length()) + "-" + fileLanguage + "-"
+                + buildSystem.toString().toLowerCase(Locale.ROOT) + ".json";
+    }
+
+    public static String getRepositoriesColumnsDirPath() {
+        return getRepositoriesColumnsDirPath(getRepositoriesJsonFilePath());
+    }
+
+    public static String getRepositoriesColumnsDirPath(String jsonFilePath) {
+        return jsonFilePath.substring(0, jsonFilePath.length() - ".json".length()) + ".columns";
+    }
+
+    public static String getRepositoriesShardsDirPath() {
+        return getRepositoriesShardsDirPath(getRepositoriesJsonFilePath());
+    }
+
+    public static String getRepositoriesShardsDirPath(String jsonFilePath) {
+        return jsonFilePath.substring(0, jsonFilePath.length() - ".json".length()) + ".shards";
+    }
+
+    public static String getCheckpointFilePath() {
+        return getRepositoriesJsonFilePath() + ".checkpoint";
+    }
+
+    public static String getLastCrawlFilePath() {
+        return getRepositoriesJsonFilePath() + ".lastcrawl";
+    }
+
+    public static String getDeadLetterFilePath() {
+        return getRepositoriesJsonFilePath() + ".deadletters";
+    }
+
+    public static String getHttpCacheDirPath() {
+        if (Config.FILEPATH.isEmpty()) {
+            return System.getProperty("user.dir") + "/http-cache";
+        } else {
+            return Config.FILEPATH + "/http-cache";
+        }
+    }
+
+    public static String getHttpArchiveFilePath() {
+        if (!Config.HTTPARCHIVEFILE.isEmpty())
+            return Config.HTTPARCHIVEFILE;
+        if (Config.FILEPATH.isEmpty()) {
+            return System.getProperty("user.dir") + "/http-archive.gz";
+        } else {
+            return Config.FILEPATH + "/http-archive.gz";
+        }
+    }
+
+    /**
+     * @param path The file to hash.
+     * @return The hex encoded SHA-256 checksum of the file.
+     * @throws IOException If the file can't be read.
+     */
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
     public static List<String> getAllFileNamesOfDir(String dir) {
         try (Stream<Path> walk = Files.walk(Paths.get(dir))) {
 
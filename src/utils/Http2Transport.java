@@ -0,0 +1,136 @@
+package utils;
+
+import main.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HttpTransport on top of the java.net.http client.
+ *
+ * All requests share a single client, so they are multiplexed over one HTTP/2 connection per host. Servers without
+ * HTTP/2 are served over a pool of HTTP/1.1 keep-alive connections, which holds up to Config.CONCURRENTREQUESTS idle
+ * connections. Responses are requested gzip compressed and inflated before they are handed out. Requests in flight
+ * don't hold any thread, the client completes them on its own small thread pool.
+ */
+public class Http2Transport implements HttpTransport {
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+    // Seconds an idle connection is kept open. The JDK default of 20 minutes outlives most idle timeouts of proxies.
+    private static final String KEEP_ALIVE_TIMEOUT_SECONDS = "120";
+    // The client sets these headers itself, see jdk.httpclient.allowRestrictedHeaders.
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList("connection", "content-length",
+            "expect", "host", "upgrade"));
+
+    // static variable single_instance of type Singleton
+    private static Http2Transport single_instance = null;
+
+    private final HttpClient client;
+
+    private Http2Transport() {
+        // Both properties are read once when the first client is created. Values given on the command line win.
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null)
+            System.setProperty("jdk.httpclient.keepalive.timeout", KEEP_ALIVE_TIMEOUT_SECONDS);
+        if (System.getProperty("jdk.httpclient.connectionPoolSize") == null)
+            System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(Math.max(1, Config.CONCURRENTREQUESTS)));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(CONNECT_TIMEOUT_SECONDS))
+                .build();
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized Http2Transport getInstance()
+    {
+        if (single_instance == null)
+            single_instance = new Http2Transport();
+
+        return single_instance;
+    }
+
+    @Override
+    public String getName() {
+        return "HTTP/2";
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(String method, URL url, Map<String, List<String>> headers, byte[] body, int timeoutMillis) {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(url.toURI());
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(new IOException("Invalid URL: " + url, e));
+        }
+        boolean acceptsEncoding = false;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey() == null || RESTRICTED_HEADERS.contains(header.getKey().toLowerCase()))
+                continue;
+            acceptsEncoding |= header.getKey().equalsIgnoreCase(HEADER_ACCEPT_ENCODING);
+            for (String value : header.getValue())
+                request.header(header.getKey(), value);
+        }
+        if (!acceptsEncoding)
+            request.header(HEADER_ACCEPT_ENCODING, "gzip");
+        if (timeoutMillis > 0)
+            request.timeout(Duration.ofMillis(timeoutMillis));
+        request.method(method, body.length > 0 ? HttpRequest.BodyPublishers.ofByteArray(body) : HttpRequest.BodyPublishers.noBody());
+
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(Http2Transport::toResponse)
+                .exceptionally(e -> {
+                    throw new CompletionException(HttpTransport.unwrap(e));
+                });
+    }
+
+    private static Response toResponse(HttpResponse<byte[]> response) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            if (!header.getKey().startsWith(":")) // HTTP/2 pseudo headers
+                headers.put(header.getKey(), header.getValue());
+        }
+        byte[] body = response.body();
+        List<String> encoding = headers.get(HEADER_CONTENT_ENCODING);
+        if (encoding != null && encoding.contains("gzip")) {
+            try {
+                body = inflate(body);
+            } catch (IOException e) {
+                throw new CompletionException(new IOException("Couldn't inflate the response of " + response.uri() + ". " + e.getMessage(), e));
+            }
+            headers.remove(HEADER_CONTENT_ENCODING);
+            headers.remove(HEADER_CONTENT_LENGTH);
+        }
+        return new Response(response.statusCode(), "", headers, body);
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package utils;
+
+import Models.HttpArchiveMode;
+import main.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the responses of all API requests to a compressed archive file and replays them later on without any network
+ * access, so that a whole crawl can be repeated deterministically, i.e. to profile or compare changes of the crawler.
+ *
+ * Requests are identified by their method, URL and the hash of their body (GraphQL queries), not by their token.
+ * A request that was sent several times is answered with its recorded responses in the order they were recorded, the
+ * last one is repeated once all were served. Every recording is written to a file of its own next to the archive (i.e.
+ * http-archive.1.gz for the second one) and a replay loads all of them in order, so an interrupted and resumed crawl is
+ * recorded completely.
+ * The search windows are planned up to the day of the recording instead of today (see today()). The rate limits of the
+ * recording are either replayed relative to the time of the replay or switched off (see Config.REPLAYRATELIMITS).
+ *
+ * Every file is a single gzip member that holds the records one after another. Every record is flushed right away, so a
+ * recording of a killed crawler can be replayed up to its last record. Its file is never appended to, the unterminated
+ * gzip member would hide all later recordings from the replay.
+ */
+public class HttpArchive {
+
+    private static final int MAGIC = 0x48415243; // "HARC"
+    private static final String HEADER_RESET = "X-RateLimit-Reset";
+
+    // static variable single_instance of type Singleton
+    private static HttpArchive single_instance = null;
+
+    /**
+     * A recorded response.
+     */
+    private static class Response {
+        private final long recordedAt;
+        private final int code;
+        private final String message;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        Response(long recordedAt, int code, String message, Map<String, List<String>> headers, byte[] body) {
+            this.recordedAt = recordedAt;
+            this.code = code;
+            this.message = message;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+        }
+
+        /**
+         * @return A copy of this response with the X-RateLimit-Reset header moved by the time that passed since the
+         * recording.
+         */
+        Response shiftedTo(long now) {
+            String reset = getHeader(HEADER_RESET);
+            if (reset == null)
+                return this;
+            Map<String, List<String>> shiftedHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            shiftedHeaders.putAll(headers);
+            try {
+                long shiftedReset = Long.parseLong(reset.trim()) + (now - recordedAt) / 1000;
+                shiftedHeaders.put(HEADER_RESET, Collections.singletonList(String.valueOf(shiftedReset)));
+            } catch (NumberFormatException e) {
+                return this;
+            }
+            return new Response(recordedAt, code, message, shiftedHeaders, body);
+        }
+    }
+
+    private final HttpArchiveMode mode;
+    private final Path archivePath;
+    // Responses of the replayed archive by their request key, in the order they were recorded.
+    private final Map<String, Deque<Response>> responses = new ConcurrentHashMap<>();
+    private long firstRecordedAt = Long.MAX_VALUE;
+    private DataOutputStream out;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+
+    private HttpArchive() {
+        this.mode = Config.HTTPARCHIVE;
+        this.archivePath = Paths.get(FileHelper.getHttpArchiveFilePath());
+        if (mode == HttpArchiveMode.REPLAY)
+            load();
+        else if (mode == HttpArchiveMode.RECORD)
+            open();
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized HttpArchive getInstance()
+    {
+        if (single_instance == null)
+            single_instance = new HttpArchive();
+
+        return single_instance;
+    }
+
+    public boolean isEnabled() {
+        return isRecording() || isReplaying();
+    }
+
+    public boolean isRecording() {
+        return mode == HttpArchiveMode.RECORD;
+    }
+
+    public boolean isReplaying() {
+        return mode == HttpArchiveMode.REPLAY;
+    }
+
+    public Path getArchivePath() {
+        return archivePath;
+    }
+
+    /**
+     * @return The day the replayed archive was recorded on, today otherwise.
+     */
+    public LocalDate today() {
+        if (isReplaying() && firstRecordedAt != Long.MAX_VALUE)
+            return Instant.ofEpochMilli(firstRecordedAt).atZone(ZoneId.systemDefault()).toLocalDate();
+        return LocalDate.now();
+    }
+
+    /**
+     * Wraps a connection to the API, so that its response is appended to the archive once it was received.
+     * @param connection The connection that is not connected yet.
+     * @return The recording connection.
+     */
+    public HttpURLConnection record(HttpURLConnection connection) {
+        return new RecordingConnection(connection);
+    }
+
+    /**
+     * Creates a connection that is answered from the archive.
+     * @param url The URL of the request.
+     * @return The replaying connection. It throws an IOException on connect if no response of the request was recorded.
+     */
+    public HttpURLConnection replay(URL url) {
+        return new ReplayingConnection(url);
+    }
+
+    /**
+     * @return The number of responses appended to the archive.
+     */
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    /**
+     * @return The number of requests answered from the archive.
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    /**
+     * @return The number of requests without any recorded response.
+     */
+    public long getMissing() {
+        return missing.get();
+    }
+
+    /**
+     * Flushes and closes the archive file of a recording.
+     */
+    public synchronized void close() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Couldn't close the http archive at: " + archivePath);
+        }
+        out = null;
+    }
+
+    /**
+     * @param recording The number of the recording, starting at 0.
+     * @return The file of the recording. The archive path for the first one, i.e. http-archive.2.gz for the third one.
+     */
+    private Path getRecordingPath(int recording) {
+        if (recording == 0)
+            return archivePath;
+        String fileName = archivePath.getFileName().toString();
+        int extension = fileName.endsWith(".gz") ? fileName.length() - ".gz".length() : fileName.length();
+        return archivePath.resolveSibling(fileName.substring(0, extension) + "." + recording + fileName.substring(extension));
+    }
+
+    private void open() {
+        Path recordingPath = archivePath;
+        try {
+            if (archivePath.getParent() != null)
+                Files.createDirectories(archivePath.getParent());
+            int recording = 0;
+            while (Files.exists(getRecordingPath(recording)))
+                recording++;
+            recordingPath = getRecordingPath(recording);
+            OutputStream file = Files.newOutputStream(recordingPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(file), true));
+            if (recording > 0)
+                System.out.println("Recording " + (recording + 1) + " of the http archive is written to: " + recordingPath);
+        } catch (IOException e) {
+            System.err.println("Couldn't open the http archive at: " + recordingPath + "\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    private synchronized void append(String key, Response response) {
+        if (out == null)
+            return;
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(response.recordedAt);
+            out.writeUTF(key);
+            out.writeInt(response.code);
+            out.writeUTF(response.message == null ? "" : response.message);
+            int headerCount = 0;
+            for (List<String> values : response.headers.values())
+                headerCount += values.size();
+            out.writeInt(headerCount);
+            for (Map.Entry<String, List<String>> header : response.headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    out.writeUTF(header.getKey());
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(response.body.length);
+            out.write(response.body);
+            out.flush();
+            recorded.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Couldn't append the response of " + key + " to the http archive.");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(archivePath)) {
+            System.err.println("Can't find the http archive to replay at: " + archivePath + "\nShutting down.");
+            System.exit(1);
+        }
+        long records = 0;
+        for (int recording = 0; Files.isRegularFile(getRecordingPath(recording)); recording++)
+            records += load(getRecordingPath(recording));
+        System.out.println("Http archive holds " + records + " responses of " + responses.size() + " requests.");
+    }
+
+    /**
+     * Loads the records of a single recording.
+     * @return The number of loaded records.
+     */
+    private long load(Path recordingPath) {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(recordingPath)))))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (magic != MAGIC)
+                    throw new IOException("Record " + records + " is broken.");
+                long recordedAt = in.readLong();
+                String key = in.readUTF();
+                int code = in.readInt();
+                String message = in.readUTF();
+                Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                int headerCount = in.readInt();
+                for (int i = 0; i < headerCount; i++)
+                    headers.computeIfAbsent(in.readUTF(), name -> new ArrayList<>()).add(in.readUTF());
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                responses.computeIfAbsent(key, k -> new ArrayDeque<>())
+                        .add(new Response(recordedAt, code, message, headers, body));
+                firstRecordedAt = Math.min(firstRecordedAt, recordedAt);
+                records++;
+            }
+        } catch (IOException e) {
+            // The recording of a killed crawler isn't complete.
+            System.err.println("The http archive at " + recordingPath + " ends after " + records + " complete records. " + e.getMessage());
+        }
+        return records;
+    }
+
+    private Response next(String key) {
+        Deque<Response> recordedResponses = responses.get(key);
+        if (recordedResponses == null) {
+            missing.incrementAndGet();
+            return null;
+        }
+        Response response;
+        synchronized (recordedResponses) {
+            response = recordedResponses.size() > 1 ? recordedResponses.poll() : recordedResponses.peek();
+        }
+        replayed.incrementAndGet();
+        return Config.REPLAYRATELIMITS ? response.shiftedTo(System.currentTimeMillis()) : response;
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        if (stream == null)
+            return new byte[0];
+        try (InputStream in = stream) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                bytes.write(buffer, 0, read);
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Connection that serves a Response from memory. The request is exchanged on the first access of the response.
+     */
+    private abstract static class ArchivedConnection extends HttpURLConnection {
+
+        private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        private Response response;
+
+        ArchivedConnection(URL url) {
+            super(url);
+        }
+
+        /**
+         * Exchanges the request.
+         * @param key The key of the request within the archive.
+         * @param requestBody The body that was written to the output stream of this connection.
+         */
+        abstract Response exchange(String key, byte[] requestBody) throws IOException;
+
+        private Response getResponse() throws IOException {
+            if (response == null) {
+                byte[] body = requestBody.toByteArray();
+                String key = getRequestMethod() + " " + url + (body.length > 0 ? " " + HttpResponseCache.hash(new String(body, StandardCharsets.UTF_8)) : "");
+                response = exchange(key, body);
+                connected = true;
+            }
+            return response;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            getResponse();
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            if (!doOutput)
+                throw new ProtocolException("The connection doesn't allow output.");
+            return requestBody;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return getResponse().code;
+        }
+
+        @Override
+        public String getResponseMessage() throws IOException {
+            return getResponse().message;
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            try {
+                return getResponse().getHeader(name);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            try {
+                return Collections.unmodifiableMap(getResponse().headers);
+            } catch (IOException e) {
+                return Collections.emptyMap();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (getResponse().code >= HTTP_BAD_REQUEST)
+                throw new FileNotFoundException(url.toString());
+            return new ByteArrayInputStream(response.body);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            if (response == null || response.code < HTTP_BAD_REQUEST)
+                return null;
+            return new ByteArrayInputStream(response.body);
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+
+    /**
+     * Forwards the request to the wrapped connection and appends its response to the archive.
+     */
+    private class RecordingConnection extends ArchivedConnection {
+
+        private final HttpURLConnection connection;
+
+        RecordingConnection(HttpURLConnection connection) {
+            super(connection.getURL());
+            this.connection = connection;
+        }
+
+        @Override
+        Response exchange(String key, byte[] requestBody) throws IOException {
+            if (getDoOutput()) {
+                try (OutputStream body = connection.getOutputStream()) {
+                    body.write(requestBody);
+                }
+            }
+            int code = connection.getResponseCode();
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null) // the status line
+                    headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+            byte[] body = readFully(code >= HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream());
+            Response response = new Response(System.currentTimeMillis(), code, connection.getResponseMessage(), headers, body);
+            append(key, response);
+            return response;
+        }
+
+        @Override
+        public void setRequestMethod(String method) throws ProtocolException {
+            super.setRequestMethod(method);
+            connection.setRequestMethod(method);
+        }
+
+        @Override
+        public void setRequestProperty(String key, String value) {
+            super.setRequestProperty(key, value);
+            connection.setRequestProperty(key, value);
+        }
+
+        @Override
+        public void addRequestProperty(String key, String value) {
+            super.addRequestProperty(key, value);
+            connection.addRequestProperty(key, value);
+        }
+
+        @Override
+        public void setDoOutput(boolean doOutput) {
+            super.setDoOutput(doOutput);
+            connection.setDoOutput(doOutput);
+        }
+
+        @Override
+        public void setFixedLengthStreamingMode(int contentLength) {
+            super.setFixedLengthStreamingMode(contentLength);
+            connection.setFixedLengthStreamingMode(contentLength);
+        }
+
+        @Override
+        public void setConnectTimeout(int timeout) {
+            super.setConnectTimeout(timeout);
+            connection.setConnectTimeout(timeout);
+        }
+
+        @Override
+        public void setReadTimeout(int timeout) {
+            super.setReadTimeout(timeout);
+            connection.setReadTimeout(timeout);
+        }
+
+        @Override
+        public void disconnect() {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Thrown when a request is replayed that wasn't recorded. Such a request is never retried.
+     */
+    public static class MissingResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MissingResponseException(String key) {
+            super("The http archive holds no response of " + key);
+        }
+    }
+
+    /**
+     * Answers the request with the next recorded response.
+     */
+    private class ReplayingConnection extends ArchivedConnection {
+
+        ReplayingConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        Response exchange(String key, byte[] requestBody) throws IOException {
+            Response response = next(key);
+            if (response == null)
+                throw new MissingResponseException(key);
+            return response;
+        }
+    }
+}
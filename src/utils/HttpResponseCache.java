@@ -0,0 +1,271 @@
+package utils;
+
+import main.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed cache of API responses for conditional requests.
+ *
+ * The body of every response with an ETag or Last-Modified header is stored in its own file within the http-cache
+ * folder next to the repositories.json file. The next request of the same URL with the same token sends the
+ * If-None-Match and If-Modified-Since headers, and a "304 Not Modified" response, which doesn't count against the
+ * rate limit, is answered with the cached body.
+ * The cache is bounded by Config.HTTPCACHEMEGABYTES, the least recently used responses are evicted first.
+ * The modification time of the files keeps the order of use across crawls.
+ */
+public class HttpResponseCache {
+
+    private static final int MAGIC = 0x48545450; // "HTTP"
+
+    // static variable single_instance of type Singleton
+    private static HttpResponseCache single_instance = null;
+
+    /**
+     * A cached response.
+     */
+    public static class Entry {
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] body;
+
+        Entry(String eTag, String lastModified, byte[] body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    // File names of all cached responses with their size, in order of use (least recently used first).
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    private HttpResponseCache() {
+        this.cacheDir = Paths.get(FileHelper.getHttpCacheDirPath());
+        this.maxBytes = Config.HTTPCACHEMEGABYTES * 1024L * 1024L;
+        if (isEnabled())
+            loadEntries();
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized HttpResponseCache getInstance()
+    {
+        if (single_instance == null)
+            single_instance = new HttpResponseCache();
+
+        return single_instance;
+    }
+
+    /**
+     * @return False if the cache is switched off within the config file.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Looks up the cached response of a request and counts the lookup as a miss or a revalidation.
+     * @param key The URL of the request together with the token it is sent with.
+     * @return The cached response or null if there is none.
+     */
+    public Entry get(String key) {
+        String fileName = hash(key);
+        synchronized (this) {
+            if (entries.get(fileName) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        Path path = pathOf(fileName);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key))
+                throw new IOException("Cache entry " + fileName + " is broken.");
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            revalidations.incrementAndGet();
+            return new Entry(eTag.isEmpty() ? null : eTag, lastModified.isEmpty() ? null : lastModified, body);
+        } catch (IOException e) {
+            // Evicted in the meantime or broken, the response is requested again.
+            remove(fileName);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores a response and evicts the least recently used responses if the cache grows beyond its size budget.
+     * @param key The URL of the request together with the token it was sent with.
+     * @param eTag The ETag header of the response or null.
+     * @param lastModified The Last-Modified header of the response or null.
+     * @param body The body of the response.
+     */
+    public void put(String key, String eTag, String lastModified, byte[] body) {
+        String fileName = hash(key);
+        Path path = pathOf(fileName);
+        Path tempPath = Paths.get(path + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(key);
+                out.writeUTF(eTag == null ? "" : eTag);
+                out.writeUTF(lastModified == null ? "" : lastModified);
+                out.writeInt(body.length);
+                out.write(body);
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            add(fileName, Files.size(path));
+        } catch (IOException e) {
+            System.err.println("Couldn't write the response of " + key + " to the http cache.");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Counts a "304 Not Modified" response that was answered from the cache.
+     */
+    public void countNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    /**
+     * @return The number of requests without a cached response.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of conditional requests sent for a cached response.
+     */
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return The number of conditional requests that were answered with "304 Not Modified".
+     */
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    private synchronized void add(String fileName, long size) {
+        Long previousSize = entries.put(fileName, size);
+        totalBytes += size - (previousSize == null ? 0 : previousSize);
+        Iterator<Map.Entry<String, Long>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Map.Entry<String, Long> eldest = leastRecentlyUsed.next();
+            if (eldest.getKey().equals(fileName))
+                continue;
+            leastRecentlyUsed.remove();
+            totalBytes -= eldest.getValue();
+            delete(eldest.getKey());
+        }
+    }
+
+    private synchronized void remove(String fileName) {
+        Long size = entries.remove(fileName);
+        if (size != null)
+            totalBytes -= size;
+        delete(fileName);
+    }
+
+    private void delete(String fileName) {
+        try {
+            Files.deleteIfExists(pathOf(fileName));
+        } catch (IOException e) {
+            System.err.println("Couldn't delete the http cache entry " + fileName + ".");
+        }
+    }
+
+    /**
+     * Rebuilds the LRU order of the cached responses from the modification time of their files.
+     */
+    private void loadEntries() {
+        if (!Files.isDirectory(cacheDir))
+            return;
+        try (Stream<Path> walk = Files.walk(cacheDir)) {
+            List<Path> files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+            files.sort(Comparator.comparingLong(this::lastModifiedMillis));
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(".tmp"))
+                    Files.deleteIfExists(file); // left behind by an interrupted write
+                else
+                    add(file.getFileName().toString(), Files.size(file));
+            }
+        } catch (IOException e) {
+            System.err.println("Couldn't read the http cache at: " + cacheDir + ". Continuing with an empty cache.");
+            System.err.println(e.getMessage());
+        }
+        System.out.println("Http cache holds " + entries.size() + " responses (" + totalBytes / (1024 * 1024) + " MB).");
+    }
+
+    private long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path pathOf(String fileName) {
+        // Two levels, so that no single folder holds all responses.
+        return cacheDir.resolve(fileName.substring(0, 2)).resolve(fileName);
+    }
+
+    /**
+     * @param value The value to hash, i.e. a cache key or an OAuth token.
+     * @return The hex encoded SHA-256 hash of the value.
+     */
+    public static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest)
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+    }
+}
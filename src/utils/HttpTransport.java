@@ -0,0 +1,99 @@
+package utils;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport all API requests are sent with, either the java.net.http client (see Http2Transport) or the blocking
+ * HttpURLConnection (see UrlConnectionTransport).
+ *
+ * The egit services expect an HttpURLConnection, open(URL) hands out a TransportConnection that sends its request
+ * with this transport. Callers that don't want to block use sendAsync of the connection instead.
+ */
+public interface HttpTransport {
+
+    /**
+     * A response whose body was read completely.
+     */
+    class Response {
+        private final int code;
+        private final String message;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        /**
+         * @param headers The response headers. Their names are looked up case-insensitively.
+         */
+        public Response(int code, String message, Map<String, List<String>> headers, byte[] body) {
+            this.code = code;
+            this.message = message;
+            this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            this.headers.putAll(headers);
+            this.body = body;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return Collections.unmodifiableMap(headers);
+        }
+
+        public String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Sends a request without blocking the calling thread.
+     * @param method The request method, i.e. GET.
+     * @param url The URL of the request.
+     * @param headers The request headers.
+     * @param body The request body, empty for none.
+     * @param timeoutMillis The time to wait for the response, 0 to wait forever.
+     * @return The response. Completes exceptionally with an IOException if no response was received.
+     */
+    CompletableFuture<Response> sendAsync(String method, URL url, Map<String, List<String>> headers, byte[] body, int timeoutMillis);
+
+    /**
+     * @return A short description for the log, i.e. "HTTP/2".
+     */
+    String getName();
+
+    /**
+     * Creates a connection whose request is sent with this transport.
+     * @param url The URL of the request.
+     * @return The connection that is not connected yet.
+     */
+    default HttpURLConnection open(URL url) {
+        return new TransportConnection(url, this);
+    }
+
+    /**
+     * Unwraps the IOException an asynchronous request failed with.
+     * @param throwable The exception a future of sendAsync completed with.
+     * @return The IOException.
+     */
+    static IOException unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null && !(cause instanceof IOException))
+            cause = cause.getCause();
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,101 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streaming scanner for json array files like the repositories.json file.
+ * Reports the byte range of every top level array element without building a Gson tree.
+ */
+public class JsonArrayScanner {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Callback for every complete top level element of the json array.
+     */
+    public interface ElementListener {
+        /**
+         * @param start Byte offset of the first character of the element.
+         * @param end Byte offset directly behind the last character of the element.
+         */
+        void onElement(long start, long end);
+    }
+
+    private JsonArrayScanner() {
+    }
+
+    /**
+     * Scans the file from the given position on and reports every complete top level element.
+     *
+     * @param channel The channel of the json file.
+     * @param position The position to start from. Either the start of the file or the end of an already scanned element.
+     * @param insideArray True if position lies behind the opening bracket of the json array.
+     * @param listener The listener notified for every complete element.
+     * @return The position directly behind the last complete element, or the given position if none was found.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static long scan(FileChannel channel, long position, boolean insideArray, ElementListener listener) throws IOException {
+        return scan(channel, position, insideArray, listener, new long[1]);
+    }
+
+    /**
+     * Scans the whole file for the closing bracket of the json array. Unlike a look at the last byte, this tells a
+     * closed array apart from one that was cut off right behind a nested array, i.e. behind "errorMessage":[].
+     *
+     * @param channel The channel of the json file.
+     * @return The byte offset of the closing bracket of the json array, or -1 if the array isn't closed.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static long findClosingBracket(FileChannel channel) throws IOException {
+        long[] closingBracket = {-1};
+        scan(channel, 0, false, (start, end) -> { }, closingBracket);
+        return closingBracket[0];
+    }
+
+    private static long scan(FileChannel channel, long position, boolean insideArray, ElementListener listener,
+                             long[] closingBracket) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int depth = insideArray ? 1 : 0;
+        boolean inString = false;
+        boolean escaped = false;
+        long elementStart = -1;
+        long lastElementEnd = position;
+        long offset = position;
+
+        while (channel.read(buffer, offset) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (inString) {
+                    if (escaped)
+                        escaped = false;
+                    else if (b == '\\')
+                        escaped = true;
+                    else if (b == '"')
+                        inString = false;
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    if (depth == 1)
+                        elementStart = offset;
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 1 && elementStart >= 0) {
+                        lastElementEnd = offset + 1;
+                        listener.onElement(elementStart, lastElementEnd);
+                        elementStart = -1;
+                    } else if (depth == 0) {
+                        closingBracket[0] = offset;
+                        return lastElementEnd; // closing bracket of the json array
+                    }
+                }
+                offset++;
+            }
+            buffer.clear();
+        }
+        return lastElementEnd;
+    }
+}
@@ -0,0 +1,192 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Persistent side-index of the byte offsets of all repositories within a json array file.
+ *
+ * The index is built in one streaming pass over the json file and stored next to it (i.e. repositories.json.idx).
+ * Index file layout: magic number, length of the file key, file key of the indexed json file, followed by one
+ * (start, end) pair of longs per repository.
+ * When the json file grows, only the appended part is scanned and the new offsets are appended to the index file.
+ * When the json file was replaced (new file key) or shrank, the index is rebuilt from scratch.
+ * A refresh of an unchanged json file (same size and file key) costs a single stat of the file. The repositories are
+ * read through a single channel that is kept open for the lifetime of the index and only reopened for a new file.
+ */
+public class JsonIndex {
+
+    private static final int MAGIC = 0x4A534958; // "JSIX"
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+    private final Path jsonPath;
+    private final Path indexPath;
+    private long[] starts = new long[1024];
+    private long[] ends = new long[1024];
+    private int size;
+    private String fileKey;
+    // Size and file key of the json file at the last refresh.
+    private long refreshedLength = -1;
+    private String refreshedFileKey;
+    private FileChannel readChannel;
+
+    public JsonIndex(String jsonPathAndName) {
+        this.jsonPath = Paths.get(jsonPathAndName);
+        this.indexPath = Paths.get(jsonPathAndName + ".idx");
+        loadIndexFile();
+    }
+
+    /**
+     * @return The number of indexed repositories.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Brings the index up to date with the json file. Only the part of the file behind the last indexed
+     * repository is scanned, unless the json file was replaced.
+     * @throws IOException If the json or index file couldn't be accessed.
+     */
+    public synchronized void refresh() throws IOException {
+        if (!Files.exists(jsonPath))
+            return;
+        BasicFileAttributes attributes = Files.readAttributes(jsonPath, BasicFileAttributes.class);
+        String currentFileKey = attributes.fileKey() == null ? "" : attributes.fileKey().toString();
+        if (attributes.size() == refreshedLength && currentFileKey.equals(refreshedFileKey))
+            return;
+        if (readChannel != null && !currentFileKey.equals(refreshedFileKey)) {
+            readChannel.close();
+            readChannel = null;
+        }
+        refreshedLength = -1; // set once the refresh succeeded
+        refreshedFileKey = currentFileKey;
+        FileChannel channel = getReadChannel();
+        long lastEnd = size > 0 ? ends[size - 1] : 0;
+        if (!currentFileKey.equals(fileKey) || channel.size() < lastEnd || (size > 0 && !isValidEntry(channel, size - 1))) {
+            size = 0;
+            lastEnd = 0;
+            fileKey = currentFileKey;
+            writeIndexHeader();
+        }
+        long length = channel.size();
+        if (length != lastEnd) {
+            int previousSize = size;
+            JsonArrayScanner.scan(channel, lastEnd, size > 0, this::add);
+            appendToIndexFile(previousSize);
+        }
+        refreshedLength = length;
+    }
+
+    /**
+     * Reads the raw json string of a single repository by a positioned read of only its bytes.
+     * @param arrayIndex The index of the repository within the json array.
+     * @return The json string of the repository.
+     * @throws IOException If the json file couldn't be read.
+     */
+    public String readRepository(int arrayIndex) throws IOException {
+        long start;
+        long end;
+        FileChannel channel;
+        synchronized (this) {
+            start = starts[arrayIndex];
+            end = ends[arrayIndex];
+            channel = getReadChannel();
+        }
+        // Positioned reads don't move the position of the channel, all threads share it.
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        long position = start;
+        while (buffer.hasRemaining() && channel.read(buffer, position) > 0)
+            position = start + buffer.position();
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private void add(long start, long end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    private boolean isValidEntry(FileChannel channel, int entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, starts[entry]);
+        if (buffer.get(0) != '{')
+            return false;
+        buffer.clear();
+        channel.read(buffer, ends[entry] - 1);
+        return buffer.get(0) == '}';
+    }
+
+    private FileChannel getReadChannel() throws IOException {
+        if (readChannel == null || !readChannel.isOpen())
+            readChannel = FileChannel.open(jsonPath, StandardOpenOption.READ);
+        return readChannel;
+    }
+
+    private int headerSize() {
+        return Integer.BYTES + Integer.BYTES + fileKey.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private void loadIndexFile() {
+        if (!Files.exists(indexPath))
+            return;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 2 * Integer.BYTES || header.getInt() != MAGIC)
+                return;
+            int keyLength = header.getInt();
+            // A damaged header must not allocate a negative or huge buffer, the index is rebuilt instead.
+            if (keyLength < 0 || keyLength > channel.size() - 2 * Integer.BYTES)
+                throw new IOException("The header of the json index file is damaged.");
+            ByteBuffer key = ByteBuffer.allocate(keyLength);
+            channel.read(key, 2 * Integer.BYTES);
+            fileKey = new String(key.array(), StandardCharsets.UTF_8);
+
+            long entries = (channel.size() - headerSize()) / ENTRY_SIZE;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, headerSize(), entries * ENTRY_SIZE);
+            for (long i = 0; i < entries; i++)
+                add(buffer.getLong(), buffer.getLong());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Couldn't read the json index file. Rebuilding it.");
+            fileKey = null;
+            size = 0;
+        }
+    }
+
+    private void writeIndexHeader() throws IOException {
+        byte[] key = fileKey.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES + key.length);
+        header.putInt(MAGIC).putInt(key.length).put(key).flip();
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+        }
+    }
+
+    private void appendToIndexFile(int fromEntry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((size - fromEntry) * ENTRY_SIZE);
+        for (int i = fromEntry; i < size; i++)
+            buffer.putLong(starts[i]).putLong(ends[i]);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            long position = headerSize() + (long) fromEntry * ENTRY_SIZE;
+            channel.truncate(position);
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        }
+    }
+}
@@ -8,6 +8,9 @@ import java.io.*;
 /**
  * Simple Json file reader.
  *
+ * Single repositories are served through a persistent side-index of their byte offsets (see JsonIndex), so a lookup
+ * only reads the bytes of the requested repository instead of parsing the whole repositories.json file.
+ *
  * @author Daniel Braun
  */
 public class JsonReader {
@@ -16,19 +19,20 @@ public class JsonReader {
     // static variable single_instance of type Singleton
     private static JsonReader single_instance = null;
     private Gson gson;
-    private boolean isNewFile;
     private JsonArray repositoriesJsonArray;
+    private JsonIndex repositoriesIndex;
 
     private JsonReader()  {
         gson = new Gson();
         repositoriesJsonPathAndName = FileHelper.getRepositoriesJsonFilePath();
 
-        isNewFile = FileHelper.fileExistsOrCreate(repositoriesJsonPathAndName);
-        repositoriesJsonArray = readJsonArrayFromFile(repositoriesJsonPathAndName);
+        FileHelper.fileExistsOrCreate(repositoriesJsonPathAndName);
+        repositoriesIndex = new JsonIndex(repositoriesJsonPathAndName);
+        refreshIndex();
     }
 
     // static method to create instance of Singleton class
-    public static JsonReader getInstance()
+    public static synchronized JsonReader getInstance()
     {
         if (single_instance == null)
             single_instance = new JsonReader();
@@ -38,7 +42,7 @@ public class JsonReader {
 
     public JsonArray readJsonArrayFromFile(String pathToJsonFile) {
         //JSON parser object to parse read file
-        if (!isNewFile) {
+        if (new File(pathToJsonFile).length() > 0) { // new files are still empty
             JsonParser jsonParser = new JsonParser();
 
             try (FileReader reader = new FileReader(pathToJsonFile)) {
@@ -63,50 +67,73 @@ public class JsonReader {
     }
 
     public RMetaData deserializeRepositoryFromJsonArray(int arrayIndex){
-        if(repositoriesJsonArray.size() > arrayIndex) {
-            JsonElement jsonElement = repositoriesJsonArray.get(arrayIndex);
-            if(!jsonElement.isJsonNull())
-                return gson.fromJson(jsonElement.toString(), RMetaData.class);
-        }
-        System.err.println("Array index out of bound of JsonArray.");
+        String repositoryString = getRepositoryStringFromJsonArray(arrayIndex);
+        if(repositoryString != null)
+            return gson.fromJson(repositoryString, RMetaData.class);
         return null;
     }
 
     public String getRepositoryStringFromJsonArray(int arrayIndex) {
-        reloadJsonArrayFromFile();
-        if(repositoriesJsonArray.size() > arrayIndex) {
-            JsonElement jsonElement = repositoriesJsonArray.get(arrayIndex);
-            if(!jsonElement.isJsonNull())
-                return jsonElement.toString();
+        refreshIndex();
+        if(arrayIndex >= 0 && repositoriesIndex.size() > arrayIndex) {
+            try {
+                return repositoriesIndex.readRepository(arrayIndex);
+            } catch (IOException e) {
+                System.err.println("Couldn't read the repository at index " + arrayIndex + " from the json file.");
+                System.err.println(e.getMessage());
+                return null;
+            }
         }
         System.err.println("Array index out of bound of JsonArray.");
         return null;
     }
 
     public JsonObject getRepositoryJsonObjectFromJsonArray(int arrayIndex) {
-        reloadJsonArrayFromFile();
-        if(repositoriesJsonArray.size() > arrayIndex) {
-            JsonObject jsonObject = repositoriesJsonArray.get(arrayIndex).getAsJsonObject();
-            if(!jsonObject.isJsonNull())
-                return jsonObject;
+        String repositoryString = getRepositoryStringFromJsonArray(arrayIndex);
+        if(repositoryString != null) {
+            JsonElement jsonElement = new JsonParser().parse(repositoryString);
+            if(jsonElement.isJsonObject())
+                return jsonElement.getAsJsonObject();
         }
-        System.err.println("Array index out of bound of JsonArray.");
         return null;
     }
 
+    /**
+     * Parses the whole repositories.json file. Prefer the index based accessors for single repositories.
+     * @return The current json array of the repositories.json file.
+     */
     public JsonArray getJsonArray(){
+        reloadJsonArrayFromFile();
         return repositoriesJsonArray;
     }
 
+    /**
+     * @return The number of repositories within the repositories.json file.
+     */
+    public int getRepositoryCount() {
+        refreshIndex();
+        return repositoriesIndex.size();
+    }
+
     public void checkArgInRange(int arrayIndex) {
-        if(arrayIndex > repositoriesJsonArray.size()) {
+        int repositoryCount = getRepositoryCount();
+        if(arrayIndex > repositoryCount) {
             System.err.println("ERROR: Index out of bounds.\nThe repositories.json maximum array size is "
-                    + repositoriesJsonArray.size()+ ".\nThe provided number '"
+                    + repositoryCount + ".\nThe provided number '"
                     + arrayIndex +"' is out of bounds.\nAborting.");
             System.exit(1);
         }
     }
 
+    private void refreshIndex() {
+        try {
+            repositoriesIndex.refresh();
+        } catch (IOException e) {
+            System.err.println("Couldn't index the json file at: " + repositoriesJsonPathAndName + ".");
+            System.err.println(e.getMessage());
+        }
+    }
+
     private void reloadJsonArrayFromFile() {
         repositoriesJsonArray = readJsonArrayFromFile(repositoriesJsonPathAndName);
     }
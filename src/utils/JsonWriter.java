@@ -4,34 +4,100 @@ import Models.RMetaData;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import main.Config;
 
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple Json file writer.
  *
+ * New repositories are appended to the json array of the repositories.json file instead of rewriting the whole file.
+ * The serialized repositories are collected in a batch that overwrites the closing bracket of the json array and
+ * closes the array again. A batch is written and synced to disk (group commit) as soon as it holds
+ * Config.FLUSHEVERYRECORDS repositories or Config.FLUSHINTERVALMILLIS milliseconds have passed.
+ * Thus, the write cost per repository stays flat and an interrupted crawl loses at most the last batch.
+ *
  * @author Daniel Braun
  */
-public class JsonWriter {
+public class JsonWriter implements RepositorySink {
 
     private final String repositoriesJsonPathAndName;
 
     // static variable single_instance of type Singleton
     private static JsonWriter single_instance = null;
     private Gson gson;
-    private boolean isNewFile;
+    private FileChannel channel;
+    // Position of the closing bracket of the json array within the repositories.json file.
+    private long closingBracketPosition;
+    private boolean isEmptyArray;
+    private StringBuilder batch;
+    private int batchSize;
+    private long lastBatchId;
+    private volatile long lastWrittenId;
+    private volatile long lostRepositories;
+    private final int flushEveryRecords;
+    private ScheduledExecutorService flushScheduler;
 
 
     private JsonWriter()  {
+        this(FileHelper.getRepositoriesJsonFilePath(), Config.FLUSHEVERYRECORDS);
+        startFlushScheduler();
+    }
+
+    /**
+     * Opens a json file that is flushed on its own, i.e. the output of a single language and build system.
+     * @param pathAndName The json file. It is created if it doesn't exist.
+     * @return The json writer.
+     */
+    public static JsonWriter open(String pathAndName) {
+        JsonWriter writer = new JsonWriter(pathAndName, Config.FLUSHEVERYRECORDS);
+        writer.startFlushScheduler();
+        return writer;
+    }
+
+    private void startFlushScheduler() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "json-writer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, Config.FLUSHINTERVALMILLIS, Config.FLUSHINTERVALMILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Opens a json file for appending without a flush timer, i.e. a shard of the ShardedJsonWriter, which flushes its
+     * shards itself.
+     * @param pathAndName The json file. It is created if it doesn't exist.
+     * @param flushEveryRecords The number of repositories that are written as one batch.
+     */
+    JsonWriter(String pathAndName, int flushEveryRecords) {
         gson = new GsonBuilder().create();
-        repositoriesJsonPathAndName = FileHelper.getRepositoriesJsonFilePath();
-        isNewFile = FileHelper.fileExistsOrCreate(repositoriesJsonPathAndName);
+        repositoriesJsonPathAndName = pathAndName;
+        this.flushEveryRecords = Math.max(1, flushEveryRecords);
+        FileHelper.fileExistsOrCreate(repositoriesJsonPathAndName);
+        batch = new StringBuilder();
+        openForAppend();
     }
 
     // static method to create instance of Singleton class
-    public static JsonWriter getInstance()
+    public static synchronized JsonWriter getInstance()
     {
         if (single_instance == null)
             single_instance = new JsonWriter();
@@ -39,33 +105,240 @@ public class JsonWriter {
         return single_instance;
     }
 
-    public void writeRepositoryToJson(RMetaData repoObject){
-        if(isNewFile){// Create a new json array and append the current repoObject
-            JsonArray jsonArray = new JsonArray();
-            jsonArray.add(gson.toJsonTree(repoObject, RMetaData.class));
-            writeToFile(jsonArray);
-            isNewFile = false;
-        } else {// Read the existing json file and append current object
-            JsonArray jsonArray = JsonReader.getInstance().getJsonArray();
-            jsonArray.add(gson.toJsonTree(repoObject, RMetaData.class));
-            writeToFile(jsonArray);
+    @Override
+    public void writeRepository(RMetaData repository) {
+        writeRepositoryToJson(repository);
+    }
+
+    public synchronized void writeRepositoryToJson(RMetaData repoObject){
+        if(!isEmptyArray || batchSize > 0)
+            batch.append(',');
+        batch.append(gson.toJson(repoObject, RMetaData.class));
+        batchSize++;
+        lastBatchId = repoObject.getId();
+        if(batchSize >= flushEveryRecords)
+            flush();
+    }
+
+    /**
+     * Appends the current batch to the json array and syncs the file to disk.
+     */
+    @Override
+    public synchronized void flush() {
+        if(batchSize == 0 || channel == null)
+            return;
+        try {
+            batch.append(']');
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            long position = closingBracketPosition;
+            while (buffer.hasRemaining())
+                position += channel.write(buffer, position);
+            Metrics.getInstance().countOutputBytes(position - closingBracketPosition);
+            channel.truncate(position);
+            channel.force(false);
+
+            closingBracketPosition = position - 1;
+            isEmptyArray = false;
+            lastWrittenId = lastBatchId;
+        } catch (IOException e) {
+            System.err.println("Couldn't append repositories to the json file. " + batchSize + " repositories are lost.");
+            lostRepositories += batchSize;
+            System.err.println(e.getMessage());
         }
+        batch.setLength(0);
+        batchSize = 0;
+    }
+
+    /**
+     * @return The id of the last repository that was written and synced to disk.
+     */
+    @Override
+    public long getLastWrittenId() {
+        return lastWrittenId;
+    }
+
+    @Override
+    public long getLostRepositories() {
+        return lostRepositories;
+    }
+
+    /**
+     * @return The approximate size of the json file in bytes once the current batch is written.
+     */
+    public synchronized long getSizeBytes() {
+        return closingBracketPosition + 1 + batch.length();
+    }
+
+    /**
+     * Writes the last batch and closes the repositories.json file.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        if(flushScheduler != null)
+            flushScheduler.shutdown();
+        closeChannel();
     }
 
     private void writeToFile(JsonArray jsonArray){
-        try (FileWriter file = new FileWriter(repositoriesJsonPathAndName)) {
+        // Write to a temporary file first, so that the existing repositories are not lost on a crash.
+        Path path = Paths.get(repositoriesJsonPathAndName);
+        Path tempPath = Paths.get(repositoriesJsonPathAndName + ".tmp");
+        try (FileWriter file = new FileWriter(tempPath.toFile())) {
 
             file.write(jsonArray.toString());
             file.flush();
 
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    public void updateRepositoryInJsonArray (RMetaData rMetaData, int arrayIndex){
-        JsonArray jsonArray = JsonReader.getInstance().getJsonArray();
+    public synchronized void updateRepositoryInJsonArray (RMetaData rMetaData, int arrayIndex){
+        flush();
+        closeChannel();
+        JsonArray jsonArray;
+        try (FileReader reader = new FileReader(repositoriesJsonPathAndName)) {
+            jsonArray = new JsonParser().parse(reader).getAsJsonArray();
+        } catch (IOException e) {
+            System.err.println("Couldn't read the json file to update the repository at index " + arrayIndex + ".");
+            System.err.println(e.getMessage());
+            openForAppend();
+            return;
+        }
         jsonArray.set(arrayIndex, gson.toJsonTree(rMetaData, RMetaData.class));
         writeToFile(jsonArray);
+        openForAppend();
+    }
+
+    /**
+     * Replaces single repositories of the json array in one streaming pass, i.e. the repositories refreshed by an
+     * incremental crawl. All other repositories are copied byte by byte, without parsing them. The new file replaces
+     * the json file atomically, so a crash keeps the old repositories.
+     * @param repositories The new repositories by their index within the json array.
+     * @return The number of replaced repositories.
+     */
+    public synchronized int updateRepositories(Map<Integer, RMetaData> repositories) {
+        if (repositories.isEmpty())
+            return 0;
+        flush();
+        closeChannel();
+        Path path = Paths.get(repositoriesJsonPathAndName);
+        Path tempPath = Paths.get(repositoriesJsonPathAndName + ".tmp");
+        int replaced = 0;
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The byte ranges of the replaced repositories, in the order of the json array.
+            TreeMap<Long, long[]> ranges = new TreeMap<>();
+            int[] arrayIndex = {0};
+            JsonArrayScanner.scan(source, 0, false, (start, end) -> {
+                if (repositories.containsKey(arrayIndex[0]))
+                    ranges.put(start, new long[]{end, arrayIndex[0]});
+                arrayIndex[0]++;
+            });
+            long position = 0;
+            for (Map.Entry<Long, long[]> range : ranges.entrySet()) {
+                transfer(source, position, range.getKey(), target);
+                ByteBuffer buffer = ByteBuffer.wrap(gson.toJson(repositories.get((int) range.getValue()[1]), RMetaData.class)
+                        .getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining())
+                    target.write(buffer);
+                position = range.getValue()[0];
+                replaced++;
+            }
+            transfer(source, position, source.size(), target);
+            target.force(false);
+        } catch (IOException e) {
+            System.err.println("Couldn't update the repositories within the json file. The refreshed repositories are lost.");
+            System.err.println(e.getMessage());
+            openForAppend();
+            return 0;
+        }
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Couldn't replace the json file with the refreshed repositories.");
+            System.err.println(e.getMessage());
+            replaced = 0;
+        }
+        openForAppend();
+        return replaced;
+    }
+
+    private static void transfer(FileChannel source, long from, long to, FileChannel target) throws IOException {
+        while (from < to)
+            from += source.transferTo(from, to - from, target);
+    }
+
+    /**
+     * Opens the repositories.json file and locates the closing bracket of its json array.
+     * A new file is initialized with an empty json array. A file that was cut off by a crash is repaired by
+     * dropping the incomplete trailing repository.
+     */
+    private void openForAppend() {
+        try {
+            channel = FileChannel.open(Paths.get(repositoriesJsonPathAndName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if(channel.size() == 0) {
+                channel.write(ByteBuffer.wrap("[]".getBytes(StandardCharsets.UTF_8)), 0);
+                channel.force(false);
+            }
+            // A batch cut off within a repository may end with the bracket of a nested array, so the last byte alone
+            // doesn't tell whether the json array is closed.
+            closingBracketPosition = JsonArrayScanner.findClosingBracket(channel);
+            if(closingBracketPosition < 0 || closingBracketPosition != lastNonWhitespacePosition(channel.size() - 1)) {
+                repairTruncatedArray();
+            }
+            long previous = lastNonWhitespacePosition(closingBracketPosition - 1);
+            isEmptyArray = previous < 0 || readByte(previous) == '[';
+        } catch (IOException e) {
+            System.err.println("Couldn't open the json file at: " + repositoriesJsonPathAndName + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void repairTruncatedArray() throws IOException {
+        long lastElementEnd = JsonArrayScanner.scan(channel, 0, false, (start, end) -> { });
+        if(lastElementEnd == 0) { // not even a single complete repository, start a new json array
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap("[]".getBytes(StandardCharsets.UTF_8)), 0);
+            closingBracketPosition = 1;
+        } else {
+            channel.write(ByteBuffer.wrap("]".getBytes(StandardCharsets.UTF_8)), lastElementEnd);
+            channel.truncate(lastElementEnd + 1);
+            closingBracketPosition = lastElementEnd;
+        }
+        channel.force(false);
+        System.err.println("The json file was not closed properly. Incomplete repositories at its end were removed.");
+    }
+
+    private long lastNonWhitespacePosition(long position) throws IOException {
+        while(position >= 0 && Character.isWhitespace(readByte(position)))
+            position--;
+        return position;
+    }
+
+    private char readByte(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return (char) buffer.get(0);
+    }
+
+    private void closeChannel() {
+        if(channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
     }
 }
@@ -0,0 +1,99 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets in the style of an HdrHistogram.
+ *
+ * Latencies are recorded in microseconds. Every power of two is split into 32 linear sub-buckets, so a percentile is
+ * reported with a relative error below 1/32 (~3%) over the whole range from 1 microsecond up to several days,
+ * with a fixed footprint of about 10 KB per histogram.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Latencies above 2^MAX_EXPONENT microseconds (~12 days) are counted in the highest bucket.
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos The latency to record in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, nanos / 1000));
+        counts.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of all recorded latencies in seconds.
+     */
+    public double getSumSeconds() {
+        return sumMicros.sum() / 1e6;
+    }
+
+    /**
+     * @return The highest recorded latency in seconds.
+     */
+    public double getMaxSeconds() {
+        return maxMicros.get() / 1e6;
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100, i.e. 99 for the p99 latency.
+     * @return The latency in seconds that the given percentage of all recorded latencies is lower than or equal to.
+     * 0 if nothing was recorded.
+     */
+    public double getPercentileSeconds(double percentile) {
+        // The buckets are read one by one while other threads keep recording, the total is taken from them as well.
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValueOf(i), maxMicros.get()) / 1e6;
+        }
+        return maxMicros.get() / 1e6;
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return The highest latency in microseconds that is counted in the given bucket.
+     */
+    private static long highestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS)
+            return bucketIndex;
+        int shift = bucketIndex / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucketIndex % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
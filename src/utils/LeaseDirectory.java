@@ -0,0 +1,443 @@
+package utils;
+
+import Models.SearchWindow;
+import Models.WindowLease;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coordinates the crawler nodes of a distributed crawl over a shared folder, i.e. on a single machine or a network
+ * file system, without a coordinator process.
+ *
+ * The first node plans the search windows and stores them within the windows.json file, all nodes crawl the same plan.
+ * A node claims a window by creating its window-<id>.lease file and renews the lease while it crawls the window.
+ * A finished window is marked by its window-<id>.done file. A lease that wasn't renewed in time, i.e. of a node that
+ * died, is taken over by another node, which resumes the window at the last page stored within the lease.
+ *
+ * Lease files are only ever created by a hard link to a complete temporary file, which fails if the lease exists, so
+ * two nodes never claim a free window both. Taking over an expired lease may race with another node, in which case
+ * both crawl the window. That only costs requests, the merge of the outputs removes the duplicates.
+ * The planning and the merge of the outputs are leased the same way, to a single node at a time.
+ */
+public class LeaseDirectory {
+
+    public static final String WINDOWS_FILE_NAME = "windows.json";
+    private static final String PLAN_LEASE_FILE_NAME = "plan.lease";
+    private static final String MERGE_LEASE_FILE_NAME = "merge.lease";
+    private static final String NODES_DIR_NAME = "nodes";
+    private static final String MERGED_DIR_NAME = "merged";
+    private static final int PLAN_LEASE_ID = -1;
+    private static final int MERGE_LEASE_ID = -2;
+
+    private final Path dir;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final Gson gson = new GsonBuilder().create();
+    private final Map<Path, WindowLease> heldLeases = new ConcurrentHashMap<>();
+    private final Set<Integer> doneWindows = new HashSet<>();
+    private final ScheduledExecutorService heartbeat;
+    private List<SearchWindow> windows = Collections.emptyList();
+
+    /**
+     * @param dir The folder shared by all nodes. It is created if it doesn't exist.
+     * @param nodeId The unique name of this node.
+     * @param leaseMillis The time a lease is valid for without being renewed. It is renewed every third of that.
+     * @throws IOException If the folder can't be created.
+     */
+    public LeaseDirectory(Path dir, String nodeId, long leaseMillis) throws IOException {
+        this.dir = dir;
+        this.nodeId = nodeId;
+        this.leaseMillis = leaseMillis;
+        Files.createDirectories(dir.resolve(NODES_DIR_NAME));
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return The folder the merged outputs are written to.
+     */
+    public Path getMergedDir() {
+        return dir.resolve(MERGED_DIR_NAME);
+    }
+
+    /**
+     * Loads the planned search windows. If there is no plan yet, either this node plans the windows or it waits for
+     * the node that does. A node that died while planning is replaced once its lease expired.
+     * @param planner Plans the search windows, only called on a single node.
+     * @return The planned search windows, the index of a window is its id.
+     * @throws IOException If the plan can't be read or written.
+     */
+    public List<SearchWindow> loadOrPlanWindows(Supplier<List<SearchWindow>> planner) throws IOException {
+        Path windowsPath = dir.resolve(WINDOWS_FILE_NAME);
+        Path planLeasePath = dir.resolve(PLAN_LEASE_FILE_NAME);
+        while (!Files.exists(windowsPath)) {
+            WindowLease planLease = acquire(planLeasePath, PLAN_LEASE_ID, 1);
+            if (planLease == null) {
+                sleep();
+                continue;
+            }
+            try {
+                if (!Files.exists(windowsPath)) // planned by another node meanwhile
+                    writeAtomically(windowsPath, planner.get());
+            } finally {
+                remove(planLeasePath, planLease);
+            }
+        }
+        try (Reader reader = Files.newBufferedReader(windowsPath, StandardCharsets.UTF_8)) {
+            List<SearchWindow> planned = gson.fromJson(reader, new TypeToken<List<SearchWindow>>() { }.getType());
+            windows = planned != null ? planned : Collections.emptyList();
+        } catch (JsonParseException e) {
+            throw new IOException("The search windows at " + windowsPath + " are not valid json. " + e.getMessage());
+        }
+        return windows;
+    }
+
+    /**
+     * Claims the next window that is neither finished nor leased by another node.
+     * @return The lease of the window, its window is set to resume at the stored next page. Null if every unfinished
+     * window is leased right now.
+     */
+    public synchronized WindowLease claim() {
+        for (int windowId = 0; windowId < windows.size(); windowId++) {
+            if (isDone(windowId))
+                continue;
+            Path leasePath = leasePath(windowId);
+            WindowLease lease = acquire(leasePath, windowId, windows.get(windowId).getNextPage());
+            if (lease == null)
+                continue;
+            // The window may have been finished between the check and the claim.
+            if (isDone(windowId)) {
+                remove(leasePath, lease);
+                continue;
+            }
+            SearchWindow window = windows.get(windowId);
+            window.setNextPage(lease.getNextPage());
+            lease.setWindow(window);
+            return lease;
+        }
+        return null;
+    }
+
+    /**
+     * Stores the progress of a window with the next renewal of its lease.
+     * @param lease A lease of this node.
+     * @param nextPage The next page of the window to crawl.
+     */
+    public void progress(WindowLease lease, int nextPage) {
+        lease.setNextPage(nextPage);
+    }
+
+    /**
+     * Marks the window of the lease as finished and removes the lease.
+     * @param lease A lease of this node.
+     */
+    public synchronized void complete(WindowLease lease) {
+        Path leasePath = leasePath(lease.getWindowId());
+        try {
+            Files.write(dir.resolve("window-" + lease.getWindowId() + ".done"), nodeId.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Couldn't mark search window " + lease.getWindowId() + " as finished. It is crawled again by the next node that claims it.");
+            System.err.println(e.getMessage());
+        }
+        doneWindows.add(lease.getWindowId());
+        remove(leasePath, lease);
+    }
+
+    /**
+     * Gives up the lease on an unfinished window, so that another node resumes it at the stored next page right away.
+     * @param lease A lease of this node.
+     */
+    public synchronized void release(WindowLease lease) {
+        Path leasePath = leasePath(lease.getWindowId());
+        heldLeases.remove(leasePath);
+        if (!isOwned(leasePath, lease))
+            return;
+        lease.setExpiresAt(0);
+        try {
+            writeAtomically(leasePath, lease);
+        } catch (IOException e) {
+            System.err.println("Couldn't release the lease on search window " + lease.getWindowId() + ". It is taken over once it expired.");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * @return True if every planned window was finished by any of the nodes.
+     */
+    public synchronized boolean isFinished() {
+        for (int windowId = 0; windowId < windows.size(); windowId++) {
+            if (!isDone(windowId))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of windows finished by any of the nodes.
+     */
+    public synchronized int getFinishedWindows() {
+        int finished = 0;
+        for (int windowId = 0; windowId < windows.size(); windowId++) {
+            if (isDone(windowId))
+                finished++;
+        }
+        return finished;
+    }
+
+    /**
+     * Stores the outputs of this node, so that they are merged even if this node dies.
+     * @param outputs The json files or the folders of sharded json files this node writes to.
+     * @throws IOException If the outputs can't be stored.
+     */
+    public void registerOutputs(List<Path> outputs) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (Path output : outputs)
+            paths.add(output.toAbsolutePath().toString());
+        writeAtomically(dir.resolve(NODES_DIR_NAME).resolve(nodeId + ".json"), paths);
+    }
+
+    /**
+     * @return The registered outputs of all nodes by their file name, i.e. repositories.json.
+     * @throws IOException If the outputs can't be read.
+     */
+    public Map<String, List<Path>> getOutputs() throws IOException {
+        // Sorted by node, so that every merge reads the outputs in the same order.
+        Map<String, List<String>> nodeOutputs = new TreeMap<>();
+        try (DirectoryStream<Path> nodeFiles = Files.newDirectoryStream(dir.resolve(NODES_DIR_NAME), "*.json")) {
+            for (Path nodeFile : nodeFiles) {
+                try (Reader reader = Files.newBufferedReader(nodeFile, StandardCharsets.UTF_8)) {
+                    nodeOutputs.put(nodeFile.getFileName().toString(),
+                            gson.fromJson(reader, new TypeToken<List<String>>() { }.getType()));
+                } catch (JsonParseException e) {
+                    throw new IOException("The outputs of " + nodeFile + " are not valid json. " + e.getMessage());
+                }
+            }
+        }
+        Map<String, List<Path>> outputs = new LinkedHashMap<>();
+        for (List<String> paths : nodeOutputs.values()) {
+            for (String path : paths) {
+                Path output = Paths.get(path);
+                outputs.computeIfAbsent(RepositoryMerger.getOutputName(output), name -> new ArrayList<>()).add(output);
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Waits until no other node merges the outputs and leases the merge to this node. The lease of a node that died
+     * while merging is taken over once it expired.
+     * @return The lease of the merge, to be passed on to unlockMerge once the merged outputs are complete.
+     */
+    public WindowLease lockMerge() {
+        Path mergeLeasePath = dir.resolve(MERGE_LEASE_FILE_NAME);
+        WindowLease mergeLease;
+        while ((mergeLease = acquire(mergeLeasePath, MERGE_LEASE_ID, 1)) == null)
+            sleep();
+        return mergeLease;
+    }
+
+    /**
+     * Removes the lease of the merge, so that a node that finishes later or a later crawl over this folder merges again.
+     * @param mergeLease The lease returned by lockMerge.
+     */
+    public void unlockMerge(WindowLease mergeLease) {
+        remove(dir.resolve(MERGE_LEASE_FILE_NAME), mergeLease);
+    }
+
+    /**
+     * Stops renewing the leases of this node.
+     */
+    public void close() {
+        heartbeat.shutdown();
+    }
+
+    private boolean isDone(int windowId) {
+        if (doneWindows.contains(windowId))
+            return true;
+        if (!Files.exists(dir.resolve("window-" + windowId + ".done")))
+            return false;
+        doneWindows.add(windowId);
+        return true;
+    }
+
+    /**
+     * Creates the lease file, or takes it over if it expired or was held by an earlier process of this node.
+     * @return The lease or null if another node holds it.
+     */
+    private synchronized WindowLease acquire(Path leasePath, int windowId, int firstPage) {
+        if (heldLeases.containsKey(leasePath))
+            return null; // crawled by another thread of this node
+        int nextPage = firstPage;
+        if (Files.exists(leasePath)) {
+            WindowLease current = read(leasePath);
+            if (current == null || (current.getExpiresAt() > System.currentTimeMillis() && !nodeId.equals(current.getNodeId())))
+                return null; // held, or it is being replaced right now
+            if (!takeOver(leasePath, current))
+                return null;
+            nextPage = Math.max(firstPage, current.getNextPage());
+            if (windowId == MERGE_LEASE_ID)
+                System.out.println("Took over the merge from node " + current.getNodeId() + ", its lease expired.");
+            else if (windowId != PLAN_LEASE_ID)
+                System.out.println("Took over search window " + windowId + " from node " + current.getNodeId()
+                        + ", its lease expired. Resuming at page " + nextPage + ".");
+        }
+        WindowLease lease = new WindowLease(windowId, nodeId, System.currentTimeMillis() + leaseMillis, nextPage);
+        Path tempPath = leasePath.resolveSibling(leasePath.getFileName() + "." + nodeId + ".tmp");
+        try {
+            write(tempPath, lease);
+            Files.createLink(leasePath, tempPath);
+        } catch (FileAlreadyExistsException e) {
+            return null; // claimed by another node
+        } catch (IOException e) {
+            System.err.println("Couldn't create the lease at: " + leasePath + ". " + e.getMessage());
+            return null;
+        } finally {
+            deleteQuietly(tempPath);
+        }
+        heldLeases.put(leasePath, lease);
+        return lease;
+    }
+
+    /**
+     * Moves an expired lease out of the way. If another node replaced the lease in the meantime, its lease is put back.
+     * @return True if the expired lease was removed.
+     */
+    private boolean takeOver(Path leasePath, WindowLease expired) {
+        Path stalePath = leasePath.resolveSibling(leasePath.getFileName() + "." + nodeId + ".stale");
+        try {
+            Files.move(leasePath, stalePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            return false; // taken over by another node
+        } catch (IOException e) {
+            System.err.println("Couldn't take over the expired lease at: " + leasePath + ". " + e.getMessage());
+            return false;
+        }
+        WindowLease moved = read(stalePath);
+        if (moved == null || moved.getExpiresAt() != expired.getExpiresAt() || !moved.getNodeId().equals(expired.getNodeId())) {
+            try {
+                Files.createLink(leasePath, stalePath);
+            } catch (IOException e) {
+                // Claimed by a third node, this window is crawled twice.
+            }
+            deleteQuietly(stalePath);
+            return false;
+        }
+        deleteQuietly(stalePath);
+        return true;
+    }
+
+    /**
+     * Renews all leases of this node. A lease that was taken over by another node is marked as lost.
+     */
+    private synchronized void renewLeases() {
+        for (Map.Entry<Path, WindowLease> held : heldLeases.entrySet()) {
+            Path leasePath = held.getKey();
+            WindowLease lease = held.getValue();
+            if (!isOwned(leasePath, lease)) {
+                System.err.println("The lease on search window " + lease.getWindowId() + " was taken over by another node.");
+                lease.setLost(true);
+                heldLeases.remove(leasePath);
+                continue;
+            }
+            long expiresAt = lease.getExpiresAt();
+            lease.setExpiresAt(System.currentTimeMillis() + leaseMillis);
+            try {
+                writeAtomically(leasePath, lease);
+            } catch (IOException e) {
+                lease.setExpiresAt(expiresAt);
+                System.err.println("Couldn't renew the lease on search window " + lease.getWindowId() + ". " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isOwned(Path leasePath, WindowLease lease) {
+        WindowLease current = read(leasePath);
+        return current != null && nodeId.equals(current.getNodeId()) && current.getExpiresAt() == lease.getExpiresAt();
+    }
+
+    private synchronized void remove(Path leasePath, WindowLease lease) {
+        heldLeases.remove(leasePath);
+        if (isOwned(leasePath, lease))
+            deleteQuietly(leasePath);
+    }
+
+    private Path leasePath(int windowId) {
+        return dir.resolve("window-" + windowId + ".lease");
+    }
+
+    private WindowLease read(Path leasePath) {
+        try (Reader reader = Files.newBufferedReader(leasePath, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, WindowLease.class);
+        } catch (IOException | JsonParseException e) {
+            return null;
+        }
+    }
+
+    private void write(Path path, Object value) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            gson.toJson(value, writer);
+        }
+    }
+
+    private void writeAtomically(Path path, Object value) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + "." + nodeId + ".tmp");
+        write(tempPath, value);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(Math.max(100, Math.min(1000, leaseMillis / 4)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for another node.");
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Couldn't delete: " + path + ". " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package utils;
+
+import Models.CrawlCheckpoint;
+import Models.RequestType;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the running crawl: the requests, errors, retries and latency percentiles of every endpoint, the time spent
+ * waiting for the rate limiters, the checked, matching and dead lettered repositories and the bytes written to the json
+ * file.
+ *
+ * All metrics are lock-free counters and histograms (see LatencyHistogram), so recording them doesn't slow down the
+ * enrichment threads. They are exposed over JMX as "Crawler:type=Metrics" and in the Prometheus text format
+ * (see PrometheusEndpoint), so a crawl that runs for days can be watched while it is running.
+ */
+public class Metrics {
+
+    public static final String OBJECT_NAME = "Crawler:type=Metrics";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"P50", "P90", "P99", "P999"};
+
+    // static variable single_instance of type Singleton
+    private static Metrics single_instance = null;
+
+    private final RequestType[] requestTypes = RequestType.values();
+    // Indexed by the ordinal of the RequestType. The last index counts all other requests, i.e. the token verification.
+    private final LatencyHistogram[] requestLatencies = new LatencyHistogram[requestTypes.length + 1];
+    private final LongAdder[] requestErrors = new LongAdder[requestTypes.length + 1];
+    private final LatencyHistogram[] limiterWaits = new LatencyHistogram[requestTypes.length];
+    // Failed requests that were sent again by the RequestExecutor and the times its circuit breakers opened.
+    private final LongAdder[] requestRetries = new LongAdder[requestTypes.length];
+    private final LongAdder[] circuitBreakerOpens = new LongAdder[requestTypes.length];
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    // Requests sent before the crawl was resumed from a checkpoint.
+    private final AtomicLongArray restoredRequests = new AtomicLongArray(requestTypes.length);
+    private final AtomicLong checkedRepositories = new AtomicLong();
+    private final AtomicLong matchingRepositories = new AtomicLong();
+    private volatile long restoredMatchingRepositories;
+    private final LongAdder outputBytes = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    private Metrics() {
+        for (int i = 0; i < requestLatencies.length; i++) {
+            requestLatencies[i] = new LatencyHistogram();
+            requestErrors[i] = new LongAdder();
+        }
+        for (int i = 0; i < limiterWaits.length; i++) {
+            limiterWaits[i] = new LatencyHistogram();
+            requestRetries[i] = new LongAdder();
+            circuitBreakerOpens[i] = new LongAdder();
+        }
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized Metrics getInstance()
+    {
+        if (single_instance == null)
+            single_instance = new Metrics();
+
+        return single_instance;
+    }
+
+    /**
+     * Registers the metrics as MBean, so that they can be read with JConsole or any other JMX client.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Couldn't register the metrics as MBean. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a request that was sent to the API.
+     * @param requestType The type of the request or null if it isn't sent by the crawl itself.
+     * @param nanos The time from sending the request until its response was read.
+     * @param failed True if the request failed or was answered with an error status.
+     */
+    public void recordRequest(RequestType requestType, long nanos, boolean failed) {
+        int index = requestType == null ? requestTypes.length : requestType.ordinal();
+        requestLatencies[index].record(nanos);
+        if (failed)
+            requestErrors[index].increment();
+    }
+
+    /**
+     * Records the time a request was blocked by the RequestScheduler before it could be sent.
+     * @param requestType The type of the request.
+     * @param nanos The time spent waiting.
+     */
+    public void recordLimiterWait(RequestType requestType, long nanos) {
+        limiterWaits[requestType.ordinal()].record(nanos);
+    }
+
+    public void countRetry(RequestType requestType) {
+        requestRetries[requestType.ordinal()].increment();
+    }
+
+    public void countCircuitBreakerOpen(RequestType requestType) {
+        circuitBreakerOpens[requestType.ordinal()].increment();
+    }
+
+    public void countHedgedRequest() {
+        hedgedRequests.increment();
+    }
+
+    public void countDeadLetter() {
+        deadLetters.increment();
+    }
+
+    /**
+     * @return The number of checked repositories including this one.
+     */
+    public long countCheckedRepository() {
+        return checkedRepositories.incrementAndGet();
+    }
+
+    /**
+     * @return The number of matching repositories including this one.
+     */
+    public long countMatchingRepository() {
+        return matchingRepositories.incrementAndGet();
+    }
+
+    public void countOutputBytes(long bytes) {
+        outputBytes.add(bytes);
+    }
+
+    /**
+     * @param requestType The type of the requests.
+     * @return The number of requests of the given type sent by the whole crawl, including the crawl before a resume.
+     */
+    public long getRequests(RequestType requestType) {
+        return restoredRequests.get(requestType.ordinal()) + requestLatencies[requestType.ordinal()].getCount();
+    }
+
+    /**
+     * @return The number of requests sent by the whole crawl, without the token verifications.
+     */
+    public long getTotalRequests() {
+        long total = 0;
+        for (RequestType requestType : requestTypes)
+            total += getRequests(requestType);
+        return total;
+    }
+
+    public long getRetries(RequestType requestType) {
+        return requestRetries[requestType.ordinal()].sum();
+    }
+
+    public long getCircuitBreakerOpens(RequestType requestType) {
+        return circuitBreakerOpens[requestType.ordinal()].sum();
+    }
+
+    public long getHedgedRequests() {
+        return hedgedRequests.sum();
+    }
+
+    public long getDeadLetters() {
+        return deadLetters.sum();
+    }
+
+    public long getCheckedRepositories() {
+        return checkedRepositories.get();
+    }
+
+    public long getMatchingRepositories() {
+        return matchingRepositories.get();
+    }
+
+    /**
+     * @return The matching repositories found per hour since the crawler was started.
+     */
+    public double getMatchesPerHour() {
+        double hours = (System.nanoTime() - startNanos) / (double) TimeUnit.HOURS.toNanos(1);
+        return (matchingRepositories.get() - restoredMatchingRepositories) / hours;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    /**
+     * Continues the counters of an interrupted crawl.
+     * @param checkpoint The checkpoint of the interrupted crawl.
+     */
+    public void restore(CrawlCheckpoint checkpoint) {
+        checkedRepositories.set(checkpoint.getCheckedRepos());
+        matchingRepositories.set(checkpoint.getMatchingRepos());
+        restoredMatchingRepositories = checkpoint.getMatchingRepos();
+        restoredRequests.set(RequestType.SEARCH.ordinal(), checkpoint.getCounterSearchRequests());
+        restoredRequests.set(RequestType.REPOSITORY.ordinal(), checkpoint.getCounterRepositoryRequests());
+        restoredRequests.set(RequestType.CONTENTS.ordinal(), checkpoint.getCounterContentRequests());
+        restoredRequests.set(RequestType.COMMITS.ordinal(), checkpoint.getCounterCommitRequests());
+    }
+
+    /**
+     * Stores the counters in a checkpoint.
+     * @param checkpoint The checkpoint to store the counters in.
+     */
+    public void save(CrawlCheckpoint checkpoint) {
+        checkpoint.setCheckedRepos((int) checkedRepositories.get());
+        checkpoint.setMatchingRepos((int) matchingRepositories.get());
+        checkpoint.setCounterSearchRequests((int) getRequests(RequestType.SEARCH));
+        checkpoint.setCounterRepositoryRequests((int) getRequests(RequestType.REPOSITORY));
+        checkpoint.setCounterContentRequests((int) getRequests(RequestType.CONTENTS));
+        checkpoint.setCounterCommitRequests((int) getRequests(RequestType.COMMITS));
+    }
+
+    /**
+     * @return All metrics in the Prometheus text exposition format.
+     * SEE: https://prometheus.io/docs/instrumenting/exposition_formats/
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        header(text, "crawler_requests_total", "counter", "Requests sent to the GitHub API.");
+        for (int i = 0; i < requestLatencies.length; i++) {
+            long requests = requestLatencies[i].getCount() + (i < requestTypes.length ? restoredRequests.get(i) : 0);
+            sample(text, "crawler_requests_total", endpointLabel(i), requests);
+        }
+        header(text, "crawler_request_errors_total", "counter", "Requests that failed or were answered with an error status.");
+        for (int i = 0; i < requestErrors.length; i++)
+            sample(text, "crawler_request_errors_total", endpointLabel(i), requestErrors[i].sum());
+        header(text, "crawler_request_retries_total", "counter", "Failed requests that were sent again.");
+        for (int i = 0; i < requestRetries.length; i++)
+            sample(text, "crawler_request_retries_total", endpointLabel(i), requestRetries[i].sum());
+        header(text, "crawler_circuit_breaker_opens_total", "counter", "Times the circuit breaker of an endpoint opened.");
+        for (int i = 0; i < circuitBreakerOpens.length; i++)
+            sample(text, "crawler_circuit_breaker_opens_total", endpointLabel(i), circuitBreakerOpens[i].sum());
+        header(text, "crawler_hedged_requests_total", "counter", "Slow requests that were sent a second time.");
+        sample(text, "crawler_hedged_requests_total", "", hedgedRequests.sum());
+        header(text, "crawler_request_duration_seconds", "summary", "Latency of the requests.");
+        for (int i = 0; i < requestLatencies.length; i++)
+            summary(text, "crawler_request_duration_seconds", endpointLabel(i), requestLatencies[i]);
+        header(text, "crawler_rate_limiter_wait_seconds", "summary", "Time requests were blocked by the rate limiters.");
+        for (int i = 0; i < limiterWaits.length; i++)
+            summary(text, "crawler_rate_limiter_wait_seconds", endpointLabel(i), limiterWaits[i]);
+        header(text, "crawler_checked_repositories_total", "counter", "Repositories checked for the build system.");
+        sample(text, "crawler_checked_repositories_total", "", checkedRepositories.get());
+        header(text, "crawler_matching_repositories_total", "counter", "Repositories that use the build system.");
+        sample(text, "crawler_matching_repositories_total", "", matchingRepositories.get());
+        header(text, "crawler_dead_letters_total", "counter", "Repositories that couldn't be checked and were dead lettered.");
+        sample(text, "crawler_dead_letters_total", "", deadLetters.sum());
+        header(text, "crawler_matches_per_hour", "gauge", "Matching repositories per hour since the start.");
+        sample(text, "crawler_matches_per_hour", "", getMatchesPerHour());
+        header(text, "crawler_output_bytes_total", "counter", "Bytes written to the json file.");
+        sample(text, "crawler_output_bytes_total", "", outputBytes.sum());
+        return text.toString();
+    }
+
+    private String endpointLabel(int index) {
+        String endpoint = index < requestTypes.length ? requestTypes[index].name().toLowerCase(Locale.ROOT) : "other";
+        return "endpoint=\"" + endpoint + "\"";
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, Number value) {
+        text.append(name);
+        if (!labels.isEmpty())
+            text.append('{').append(labels).append('}');
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES)
+            sample(text, name, labels + ",quantile=\"" + quantile + "\"", histogram.getPercentileSeconds(quantile * 100));
+        sample(text, name + "_sum", labels, histogram.getSumSeconds());
+        sample(text, name + "_count", labels, histogram.getCount());
+    }
+
+    /**
+     * @return All metrics by their JMX attribute name, i.e. "SearchRequests" or "SearchLatencyP99Seconds".
+     */
+    private Map<String, Object> getAttributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < requestLatencies.length; i++) {
+            String endpoint = i < requestTypes.length ? capitalize(requestTypes[i].name()) : "Other";
+            attributes.put(endpoint + "Requests", requestLatencies[i].getCount() + (i < requestTypes.length ? restoredRequests.get(i) : 0));
+            attributes.put(endpoint + "Errors", requestErrors[i].sum());
+            for (int q = 0; q < QUANTILES.length; q++)
+                attributes.put(endpoint + "Latency" + QUANTILE_NAMES[q] + "Seconds", requestLatencies[i].getPercentileSeconds(QUANTILES[q] * 100));
+            attributes.put(endpoint + "LatencyMaxSeconds", requestLatencies[i].getMaxSeconds());
+            if (i < limiterWaits.length) {
+                attributes.put(endpoint + "LimiterWaitSeconds", limiterWaits[i].getSumSeconds());
+                attributes.put(endpoint + "LimiterWaitP99Seconds", limiterWaits[i].getPercentileSeconds(99));
+                attributes.put(endpoint + "Retries", requestRetries[i].sum());
+                attributes.put(endpoint + "CircuitBreakerOpens", circuitBreakerOpens[i].sum());
+            }
+        }
+        attributes.put("CheckedRepositories", checkedRepositories.get());
+        attributes.put("MatchingRepositories", matchingRepositories.get());
+        attributes.put("HedgedRequests", hedgedRequests.sum());
+        attributes.put("DeadLetters", deadLetters.sum());
+        attributes.put("MatchesPerHour", getMatchesPerHour());
+        attributes.put("OutputBytes", outputBytes.sum());
+        return attributes;
+    }
+
+    private static String capitalize(String name) {
+        return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Read-only MBean with one attribute per metric.
+     */
+    private class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = Metrics.this.getAttributes().get(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("All metrics are read-only.");
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] names) {
+            Map<String, Object> attributes = Metrics.this.getAttributes();
+            AttributeList list = new AttributeList();
+            for (String name : names) {
+                if (attributes.containsKey(name))
+                    list.add(new Attribute(name, attributes.get(name)));
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Object> attributes = Metrics.this.getAttributes();
+            MBeanAttributeInfo[] infos = new MBeanAttributeInfo[attributes.size()];
+            int i = 0;
+            for (Map.Entry<String, Object> attribute : attributes.entrySet())
+                infos[i++] = new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+                        attribute.getKey(), true, false, false);
+            return new MBeanInfo(Metrics.class.getName(), "Metrics of the running crawl.", infos, null,
+                    new MBeanOperationInfo[0], null);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package utils;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP endpoint on localhost that serves the Metrics in the Prometheus text format at "/metrics".
+ */
+public class PrometheusEndpoint {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    /**
+     * Starts the endpoint on a daemon thread.
+     * @param port The port to listen on. Only connections from localhost are accepted.
+     * @throws IOException If the port can't be bound.
+     */
+    public PrometheusEndpoint(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = Metrics.getInstance().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // The single thread of the default executor is enough for a scrape every few seconds. Daemon, so that it
+        // doesn't keep the crawler alive after the crawl.
+        server.setExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+}
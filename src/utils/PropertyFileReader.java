@@ -6,6 +6,8 @@ import main.Config;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -53,4 +55,66 @@ public class PropertyFileReader {
         return prop.getProperty(config.toString());
     }
 
+    /**
+     * Reads an optional property. Missing or empty properties fall back to the given default value.
+     * @param config The property to read.
+     * @param defaultValue The value used when the property is not set.
+     * @return The trimmed property value or the default value.
+     */
+    public String getProperty(EConfig config, String defaultValue){
+        String value = prop.getProperty(config.toString());
+        if(value == null || value.trim().isEmpty())
+            return defaultValue;
+        return value.trim();
+    }
+
+    /**
+     * Reads an optional integer property. Shuts down if the property is set but not an integer.
+     * @param config The property to read.
+     * @param defaultValue The value used when the property is not set.
+     * @return The parsed property value or the default value.
+     */
+    public int getIntProperty(EConfig config, int defaultValue){
+        String value = getProperty(config, null);
+        if(value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println(config + " is not an integer. Config file not properly set up.\nShutting down.");
+            System.exit(1);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads an optional comma separated list property, i.e. "first, second".
+     * @param config The property to read.
+     * @return The trimmed, non empty list entries. An empty list if the property is not set.
+     */
+    public List<String> getListProperty(EConfig config){
+        List<String> values = new ArrayList<>();
+        String value = getProperty(config, null);
+        if(value == null)
+            return values;
+        for(String entry : value.split(",")) {
+            if(!entry.trim().isEmpty())
+                values.add(entry.trim());
+        }
+        return values;
+    }
+
+    /**
+     * Reads an optional boolean property ("true" or "false").
+     * @param config The property to read.
+     * @param defaultValue The value used when the property is not set.
+     * @return The parsed property value or the default value.
+     */
+    public boolean getBooleanProperty(EConfig config, boolean defaultValue){
+        String value = getProperty(config, null);
+        if(value == null)
+            return defaultValue;
+        return Boolean.parseBoolean(value);
+    }
+
 }
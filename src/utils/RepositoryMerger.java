@@ -0,0 +1,119 @@
+package utils;
+
+import Models.OutputShard;
+import Models.RMetaData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the outputs of the nodes of a distributed crawl (see LeaseDirectory) into a single json file.
+ *
+ * The outputs are streamed repository by repository in the given order and every repository is written once, the
+ * first record of a repository id is kept. A search window that was taken over from a node that died is partly crawled
+ * twice, so the same repository may be found by two nodes.
+ * Usage: java -cp crawler-1.0-SNAPSHOT-all.jar utils.RepositoryMerger merged.json node1/repositories.json node2/repositories.shards
+ */
+public class RepositoryMerger {
+
+    private static final int BATCH_SIZE = 10000;
+    private static final String SHARDS_DIR_SUFFIX = ".shards";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: RepositoryMerger <merged.json> <repositories.json or shards folder>...");
+            System.exit(1);
+        }
+        Path mergedPath = Paths.get(args[0]);
+        List<Path> outputs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+            outputs.add(Paths.get(args[i]));
+        try {
+            long repositories = merge(outputs, mergedPath);
+            System.out.println("Merged " + repositories + " repositories to: " + mergedPath);
+        } catch (IOException e) {
+            System.err.println("Couldn't merge the repositories to " + mergedPath + ". " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param outputs The json files or the folders of sharded json files to merge. Missing outputs are skipped.
+     * @param mergedPath The merged json file. An existing file is replaced once the merge is complete.
+     * @return The number of merged repositories.
+     * @throws IOException If an output can't be read or the merged file can't be written.
+     */
+    public static long merge(List<Path> outputs, Path mergedPath) throws IOException {
+        if (mergedPath.getParent() != null)
+            Files.createDirectories(mergedPath.getParent());
+        Path tempPath = mergedPath.resolveSibling(mergedPath.getFileName() + ".tmp");
+        Files.deleteIfExists(tempPath);
+        // The dates are parsed in the same default format they were written in by the JsonWriter.
+        Gson gson = new GsonBuilder().create();
+        Set<Long> mergedIds = new HashSet<>();
+        JsonWriter writer = new JsonWriter(tempPath.toString(), BATCH_SIZE);
+        try {
+            for (Path output : outputs) {
+                for (Path jsonFile : getJsonFiles(output)) {
+                    try (BufferedReader reader = Files.newBufferedReader(jsonFile, StandardCharsets.UTF_8);
+                         com.google.gson.stream.JsonReader json = new com.google.gson.stream.JsonReader(reader)) {
+                        if (json.peek() == JsonToken.END_DOCUMENT)
+                            continue; // a new, still empty file
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            RMetaData repository = gson.fromJson(json, RMetaData.class);
+                            if (mergedIds.add(repository.getId()))
+                                writer.writeRepositoryToJson(repository);
+                        }
+                    } catch (JsonParseException | IllegalStateException | MalformedJsonException | EOFException e) {
+                        // The output of a node that died may be cut off, the complete repositories are kept.
+                        System.err.println(jsonFile + " is not a complete json array. Only the repositories before the error are merged.");
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        Files.move(tempPath, mergedPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return mergedIds.size();
+    }
+
+    /**
+     * @param output A json file or a folder of sharded json files.
+     * @return The name of the merged json file of the output, i.e. repositories.json for repositories.shards.
+     */
+    public static String getOutputName(Path output) {
+        String fileName = output.getFileName().toString();
+        if (fileName.endsWith(SHARDS_DIR_SUFFIX))
+            return fileName.substring(0, fileName.length() - SHARDS_DIR_SUFFIX.length()) + ".json";
+        return fileName;
+    }
+
+    private static List<Path> getJsonFiles(Path output) throws IOException {
+        List<Path> jsonFiles = new ArrayList<>();
+        if (Files.isDirectory(output)) {
+            for (OutputShard shard : new ShardedJsonReader(output).getShards())
+                jsonFiles.add(output.resolve(shard.getFileName()));
+        } else if (Files.exists(output)) {
+            jsonFiles.add(output);
+        } else {
+            System.err.println("There is no output at: " + output + ". Skipping it.");
+        }
+        return jsonFiles;
+    }
+}
@@ -0,0 +1,102 @@
+package utils;
+
+import Models.BuildSystem;
+import Models.RMetaData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes the matching repositories of a crawl over several languages and build systems to the output of their
+ * combination (see Config.LANGUAGES and Config.BUILDSYSTEMS), so that a single crawl fills the outputs of all of them.
+ * A repository that matches several build systems is written to the output of each of them.
+ */
+public class RepositoryRouter {
+
+    private final Map<String, RepositorySink> sinks = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> writtenRepositories = new LinkedHashMap<>();
+
+    /**
+     * @param language The language as set within the language property.
+     * @param buildSystem The build system.
+     * @param sink The output of the combination.
+     */
+    public void addRoute(String language, BuildSystem buildSystem, RepositorySink sink) {
+        sinks.put(route(language, buildSystem), sink);
+        writtenRepositories.put(route(language, buildSystem), new AtomicLong());
+    }
+
+    /**
+     * @param language The language the repository was searched with.
+     * @param buildSystem The build system the repository matched.
+     * @param repository The repository to write.
+     */
+    public void writeRepository(String language, BuildSystem buildSystem, RMetaData repository) {
+        String route = route(language, buildSystem);
+        RepositorySink sink = sinks.get(route);
+        if (sink == null) {
+            System.err.println("There is no output for " + route + ". Skipping the repository " + repository.getOwner()
+                    + "/" + repository.getName() + ".");
+            return;
+        }
+        sink.writeRepository(repository);
+        writtenRepositories.get(route).incrementAndGet();
+    }
+
+    /**
+     * Writes the current batches of all outputs and syncs them to disk.
+     */
+    public void flush() {
+        for (RepositorySink sink : sinks.values())
+            sink.flush();
+    }
+
+    /**
+     * @return The highest id of all repositories that were written and synced to disk.
+     */
+    public long getLastWrittenId() {
+        long lastWrittenId = 0;
+        for (RepositorySink sink : sinks.values())
+            lastWrittenId = Math.max(lastWrittenId, sink.getLastWrittenId());
+        return lastWrittenId;
+    }
+
+    /**
+     * @return The number of repositories of all outputs that couldn't be written.
+     */
+    public long getLostRepositories() {
+        long lostRepositories = 0;
+        for (RepositorySink sink : sinks.values())
+            lostRepositories += sink.getLostRepositories();
+        return lostRepositories;
+    }
+
+    /**
+     * @return The routes in the order they were added, i.e. "CPP/CMAKE".
+     */
+    public List<String> getRoutes() {
+        return Collections.unmodifiableList(new ArrayList<>(sinks.keySet()));
+    }
+
+    /**
+     * @param route A route of getRoutes.
+     * @return The number of repositories written to the output of the route by this crawl.
+     */
+    public long getWrittenRepositories(String route) {
+        AtomicLong written = writtenRepositories.get(route);
+        return written == null ? 0 : written.get();
+    }
+
+    public void close() {
+        for (RepositorySink sink : sinks.values())
+            sink.close();
+    }
+
+    private static String route(String language, BuildSystem buildSystem) {
+        return language + "/" + buildSystem;
+    }
+}
@@ -0,0 +1,35 @@
+package utils;
+
+import Models.RMetaData;
+
+/**
+ * Output the matching repositories are written to, i.e. the JsonWriter or the ColumnarWriter.
+ */
+public interface RepositorySink {
+
+    /**
+     * Adds a repository to the current batch. The batch is written on its own once it is large enough.
+     * @param repository The repository to write.
+     */
+    void writeRepository(RMetaData repository);
+
+    /**
+     * Writes the current batch and syncs it to disk.
+     */
+    void flush();
+
+    /**
+     * @return The id of the last repository that was written and synced to disk.
+     */
+    long getLastWrittenId();
+
+    /**
+     * @return The number of repositories that couldn't be written, since the output was opened.
+     */
+    long getLostRepositories();
+
+    /**
+     * Writes the last batch and closes the output.
+     */
+    void close();
+}
@@ -0,0 +1,424 @@
+package utils;
+
+import Models.RepositoryColumn;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persistent index of all repositories that were already checked, so that overlapping search results and repeated
+ * crawls over an existing repositories.json file don't send any request for them again.
+ *
+ * The index is a memory-mapped open-addressing hash set of primitive longs (linear probing, load factor 0.5),
+ * stored next to the json file (i.e. repositories.json.seen). Each slot holds the 64-bit hash of the lowercase
+ * "owner/name" of a repository, whose lowest bit records whether the repository matched the searched build system.
+ * 0 marks an empty slot. An optional in-memory Bloom filter in front of the hash set answers most lookups of unseen
+ * repositories without touching the mapped file.
+ *
+ * Repositories are marked as checked in memory first and only written to the mapped file once they are published,
+ * after the records of the matching repositories were synced to disk (see beginPublish). A mapped write survives a
+ * kill of the crawler, a repository marked before its record was written would never be checked again.
+ *
+ * File layout: magic number, capacity, scope hash, size, followed by the slots.
+ * The scope hash covers the search configuration (language, build system), the index is cleared when it changes.
+ * An index that is missing, cleared or empty is seeded with the matching repositories of the stored output, either the
+ * json files or the columnar output.
+ */
+public class SeenRepositoryIndex {
+
+    public static final int NOT_SEEN = -1;
+    public static final int NOT_MATCHING = 0;
+    public static final int MATCHING = 1;
+
+    private static final int MAGIC = 0x5345454E; // "SEEN"
+    private static final int CAPACITY_OFFSET = Integer.BYTES;
+    private static final int SCOPE_OFFSET = 2 * Integer.BYTES;
+    private static final int SIZE_OFFSET = SCOPE_OFFSET + Long.BYTES;
+    private static final int HEADER_SIZE = SIZE_OFFSET + Long.BYTES;
+    private static final int MIN_CAPACITY = 1 << 14;
+    // A MappedByteBuffer is limited to 2GB, the slot offsets fit into an int.
+    private static final int MAX_CAPACITY = 1 << 27;
+    private static final long MATCH_BIT = 1L;
+
+    private final Path indexPath;
+    private final Path tempPath;
+    private final long scopeHash;
+    private final boolean useBloomFilter;
+    private FileChannel channel;
+    private MappedByteBuffer slots;
+    private int capacity;
+    private int size;
+    private long[] bloomBits;
+    // Checked repositories that aren't published yet, the value is true for a matching repository.
+    private final Map<Long, Boolean> pending = new HashMap<>();
+    private final Map<Long, Boolean> publishing = new HashMap<>();
+
+    /**
+     * Opens the index file, or creates it and seeds it with the matching repositories of the json file.
+     * @param jsonPathAndName The path of the repositories.json file.
+     * @param scope The search configuration the index belongs to.
+     * @param matchingBuildSystem The build system stored for matching repositories within the json file.
+     * @param useBloomFilter True to answer lookups of unseen repositories by a Bloom filter first.
+     */
+    public SeenRepositoryIndex(String jsonPathAndName, String scope, String matchingBuildSystem, boolean useBloomFilter) {
+        this(jsonPathAndName, Collections.singletonList(Paths.get(jsonPathAndName)), scope, matchingBuildSystem, useBloomFilter);
+    }
+
+    /**
+     * Opens the index file, or creates it and seeds it with the matching repositories of the given stored outputs,
+     * i.e. the shards of the ShardedJsonWriter or the folders of the ColumnarWriter.
+     * @param jsonPathAndName The path of the repositories.json file, the index is stored next to it.
+     * @param storedPaths The json files and columnar output folders holding the stored repositories.
+     */
+    public SeenRepositoryIndex(String jsonPathAndName, List<Path> storedPaths, String scope, String matchingBuildSystem, boolean useBloomFilter) {
+        this.indexPath = Paths.get(jsonPathAndName + ".seen");
+        this.tempPath = Paths.get(jsonPathAndName + ".seen.tmp");
+        this.scopeHash = hash(scope);
+        this.useBloomFilter = useBloomFilter;
+        try {
+            // The header decides, the json file is missing on every crawl with a columnar output only.
+            if (openIndexFile() && size > 0)
+                return;
+            // Either the first crawl with this configuration, or the index file was removed to start over.
+            if (channel != null)
+                channel.close();
+            createIndexFile(MIN_CAPACITY);
+            for (Path storedPath : storedPaths) {
+                if (Files.isDirectory(storedPath))
+                    seedColumnar(storedPath, matchingBuildSystem);
+                else if (Files.exists(storedPath) && Files.size(storedPath) > 0)
+                    seed(storedPath, matchingBuildSystem);
+            }
+            if (size > 0)
+                System.out.println("Indexed " + size + " already stored repositories.");
+        } catch (IOException e) {
+            System.err.println("Couldn't open the seen repositories index at: " + indexPath + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Computes the key of a repository.
+     * @param owner The login of the repository owner.
+     * @param name The name of the repository.
+     * @return The 64-bit hash of the lowercase "owner/name".
+     */
+    public static long key(String owner, String name) {
+        return hash((owner + "/" + name).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return The number of checked repositories that are published.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a repository.
+     * @param key The key of the repository, see key(String, String).
+     * @return NOT_SEEN, NOT_MATCHING or MATCHING.
+     */
+    public synchronized int lookup(long key) {
+        long slotKey = toSlotKey(key);
+        Boolean pendingMatching = pending.get(slotKey);
+        Boolean publishingMatching = publishing.get(slotKey);
+        if (Boolean.TRUE.equals(pendingMatching) || Boolean.TRUE.equals(publishingMatching))
+            return MATCHING;
+        int unpublished = pendingMatching != null || publishingMatching != null ? NOT_MATCHING : NOT_SEEN;
+        if (useBloomFilter && !bloomMightContain(slotKey))
+            return unpublished;
+        int slot = findSlot(slotKey);
+        long value = slots.getLong(slotOffset(slot));
+        if (value == 0)
+            return unpublished;
+        return (value & MATCH_BIT) != 0 ? MATCHING : NOT_MATCHING;
+    }
+
+    /**
+     * Marks a repository as checked. The mark is only kept in memory until it is published.
+     * @param key The key of the repository, see key(String, String).
+     * @param matching True if the repository matched the searched build system.
+     */
+    public synchronized void add(long key, boolean matching) {
+        pending.merge(toSlotKey(key), matching, Boolean::logicalOr);
+    }
+
+    /**
+     * Takes the repositories marked so far for the next publish. Call it before the outputs are flushed, so that the
+     * records of all taken matching repositories are part of the flush.
+     */
+    public synchronized void beginPublish() {
+        for (Map.Entry<Long, Boolean> entry : pending.entrySet())
+            publishing.merge(entry.getKey(), entry.getValue(), Boolean::logicalOr);
+        pending.clear();
+    }
+
+    /**
+     * Writes the repositories taken by beginPublish to the mapped file.
+     * @param written False if records were lost since the last publish, the taken repositories are then dropped
+     *                so that they are checked again.
+     */
+    public synchronized void publish(boolean written) {
+        if (written) {
+            for (Map.Entry<Long, Boolean> entry : publishing.entrySet())
+                put(entry.getKey(), entry.getValue());
+        }
+        publishing.clear();
+    }
+
+    private void put(long slotKey, boolean matching) {
+        int slot = findSlot(slotKey);
+        int offset = slotOffset(slot);
+        long value = slots.getLong(offset);
+        if (value == 0) {
+            size++;
+            slots.putLong(SIZE_OFFSET, size);
+            if (useBloomFilter)
+                bloomAdd(slotKey);
+        }
+        slots.putLong(offset, matching || (value & MATCH_BIT) != 0 ? slotKey | MATCH_BIT : slotKey);
+        if (2L * size > capacity)
+            grow();
+    }
+
+    /**
+     * Writes all changes of the mapped file to disk.
+     */
+    public synchronized void force() {
+        slots.force();
+    }
+
+    private boolean openIndexFile() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < HEADER_SIZE)
+            return false;
+        map(indexPath);
+        if (slots.getInt(0) != MAGIC || slots.getLong(SCOPE_OFFSET) != scopeHash
+                || slots.capacity() != HEADER_SIZE + (long) slots.getInt(CAPACITY_OFFSET) * Long.BYTES) {
+            channel.close();
+            return false;
+        }
+        capacity = slots.getInt(CAPACITY_OFFSET);
+        size = (int) slots.getLong(SIZE_OFFSET);
+        if (useBloomFilter) {
+            initBloomFilter();
+            for (int slot = 0; slot < capacity; slot++) {
+                long value = slots.getLong(slotOffset(slot));
+                if (value != 0)
+                    bloomAdd(value & ~MATCH_BIT);
+            }
+        }
+        return true;
+    }
+
+    private void createIndexFile(int newCapacity) throws IOException {
+        writeEmptyFile(tempPath, newCapacity);
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(indexPath);
+        capacity = newCapacity;
+        size = 0;
+        if (useBloomFilter)
+            initBloomFilter();
+    }
+
+    /**
+     * Doubles the capacity. The slots are rehashed into a temporary file, which then replaces the index file.
+     */
+    private void grow() {
+        if (capacity >= MAX_CAPACITY)
+            return; // Linear probing still works up to a full table, it only gets slower.
+        int newCapacity = capacity * 2;
+        try {
+            writeEmptyFile(tempPath, newCapacity);
+            MappedByteBuffer oldSlots = slots;
+            int oldCapacity = capacity;
+            FileChannel oldChannel = channel;
+            map(tempPath);
+            capacity = newCapacity;
+            if (useBloomFilter)
+                initBloomFilter();
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                long value = oldSlots.getLong(slotOffset(slot));
+                if (value == 0)
+                    continue;
+                slots.putLong(slotOffset(findSlot(value & ~MATCH_BIT)), value);
+                if (useBloomFilter)
+                    bloomAdd(value & ~MATCH_BIT);
+            }
+            slots.putLong(SIZE_OFFSET, size);
+            slots.force();
+            oldChannel.close();
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Couldn't grow the seen repositories index at: " + indexPath + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Adds the matching repositories of an existing json file. The file is read by a streaming reader,
+     * no Gson tree is built for the repositories.
+     */
+    private void seed(Path jsonPath, String matchingBuildSystem) throws IOException {
+        // Fully qualified, utils.JsonReader is the reader of the repositories.json file.
+        try (BufferedReader bufferedReader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8)) {
+            com.google.gson.stream.JsonReader reader = new com.google.gson.stream.JsonReader(bufferedReader);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String owner = null;
+                String name = null;
+                String buildSystem = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "owner":
+                            owner = nextStringOrNull(reader);
+                            break;
+                        case "name":
+                            name = nextStringOrNull(reader);
+                            break;
+                        case "buildSystem":
+                            buildSystem = nextStringOrNull(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (owner != null && name != null && (matchingBuildSystem == null || matchingBuildSystem.equals(buildSystem)))
+                    put(toSlotKey(key(owner, name)), true);
+            }
+        } catch (IllegalStateException | MalformedJsonException | EOFException e) {
+            // A json file that was cut off by a crash is repaired by the JsonWriter, the complete repositories are kept.
+            System.err.println("The json file is not a complete json array. Only the repositories before the error were indexed.");
+        }
+        force();
+    }
+
+    /**
+     * Seeds the index with the matching repositories of a columnar output, only its owner, name and build system
+     * columns are read.
+     */
+    private void seedColumnar(Path columnsDir, String matchingBuildSystem) throws IOException {
+        if (!Files.exists(columnsDir.resolve(ColumnarManifest.FILE_NAME)))
+            return;
+        ColumnarReader reader = new ColumnarReader(columnsDir);
+        String[] owners = reader.readStrings(RepositoryColumn.OWNER);
+        String[] names = reader.readStrings(RepositoryColumn.NAME);
+        String[] buildSystems = reader.readStrings(RepositoryColumn.BUILDSYSTEM);
+        for (int i = 0; i < owners.length; i++) {
+            if (owners[i] != null && names[i] != null && (matchingBuildSystem == null || matchingBuildSystem.equals(buildSystems[i])))
+                put(toSlotKey(key(owners[i], names[i])), true);
+        }
+        force();
+    }
+
+    private static String nextStringOrNull(com.google.gson.stream.JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING)
+            return reader.nextString();
+        reader.skipValue();
+        return null;
+    }
+
+    private void writeEmptyFile(Path path, int newCapacity) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * Long.BYTES);
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(SCOPE_OFFSET, scopeHash);
+            buffer.putInt(CAPACITY_OFFSET, newCapacity);
+            buffer.putLong(SIZE_OFFSET, 0);
+            buffer.force();
+        }
+    }
+
+    private void map(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot the key belongs to.
+     */
+    private int findSlot(long slotKey) {
+        int mask = capacity - 1;
+        int slot = (int) (slotKey >>> 1) & mask;
+        while (true) {
+            long value = slots.getLong(slotOffset(slot));
+            if (value == 0 || (value & ~MATCH_BIT) == slotKey)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * Long.BYTES;
+    }
+
+    private static long toSlotKey(long key) {
+        long slotKey = key & ~MATCH_BIT;
+        return slotKey == 0 ? 2 : slotKey; // 0 marks an empty slot
+    }
+
+    // Bloom filter with 8 bits per slot of the hash set and 3 hash functions derived from the key (double hashing).
+    private void initBloomFilter() {
+        bloomBits = new long[capacity / 8];
+    }
+
+    private void bloomAdd(long slotKey) {
+        long bits = (long) bloomBits.length * Long.SIZE;
+        long h1 = slotKey >>> 32;
+        long h2 = slotKey & 0xFFFFFFFFL;
+        for (int i = 0; i < 3; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            bloomBits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private boolean bloomMightContain(long slotKey) {
+        long bits = (long) bloomBits.length * Long.SIZE;
+        long h1 = slotKey >>> 32;
+        long h2 = slotKey & 0xFFFFFFFFL;
+        for (int i = 0; i < 3; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((bloomBits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash followed by the MurmurHash3 finalizer to spread the bits.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import Models.OutputShard;
+import Models.RMetaData;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads the shards of the ShardedJsonWriter.
+ *
+ * The shards are independent json arrays, so they can be read by several threads or processes at once. A shard that
+ * is still written is read up to the repositories listed within the manifest.
+ */
+public class ShardedJsonReader {
+
+    private final Path dir;
+    private final List<OutputShard> shards;
+    private final Gson gson = new GsonBuilder().create();
+
+    /**
+     * @param dir The folder of the shards, i.e. repositories.shards.
+     * @throws IOException If the manifest can't be read.
+     */
+    public ShardedJsonReader(Path dir) throws IOException {
+        this.dir = dir;
+        if (!Files.exists(dir.resolve(ShardedJsonWriter.MANIFEST_FILE_NAME)))
+            throw new IOException("There is no sharded output at: " + dir);
+        this.shards = Collections.unmodifiableList(ShardedJsonWriter.readManifest(dir).getShards());
+    }
+
+    /**
+     * @return All shards in the order they were written.
+     */
+    public List<OutputShard> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return The number of repositories of all shards.
+     */
+    public long getRecords() {
+        long records = 0;
+        for (OutputShard shard : shards)
+            records += shard.getRecords();
+        return records;
+    }
+
+    /**
+     * Reads all repositories of a shard.
+     * @param shard A shard of the manifest.
+     * @return The repositories in the order they were written.
+     * @throws IOException If the shard can't be read.
+     */
+    public List<RMetaData> readShard(OutputShard shard) throws IOException {
+        List<RMetaData> repositories = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(dir.resolve(shard.getFileName()), StandardCharsets.UTF_8);
+             com.google.gson.stream.JsonReader json = new com.google.gson.stream.JsonReader(reader)) {
+            json.beginArray();
+            // Repositories behind the manifest entry belong to a batch that is still written.
+            while (repositories.size() < shard.getRecords() && json.hasNext())
+                repositories.add(gson.fromJson(json, RMetaData.class));
+        } catch (JsonParseException e) {
+            throw new IOException("The shard " + shard.getFileName() + " is broken. " + e.getMessage());
+        }
+        return repositories;
+    }
+
+    /**
+     * Streams the repositories of all shards, reading the shards in parallel.
+     * @return The repositories of all shards, unordered.
+     * @throws UncheckedIOException If a shard can't be read.
+     */
+    public Stream<RMetaData> parallelStream() {
+        return shards.parallelStream().flatMap(shard -> {
+            try {
+                return readShard(shard).stream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Checks a finished shard against the checksum of the manifest, i.e. after it was copied.
+     * @param shard A shard of the manifest.
+     * @return True if the shard is finished and its file matches the checksum.
+     * @throws IOException If the shard can't be read.
+     */
+    public boolean verify(OutputShard shard) throws IOException {
+        return shard.isFinished() && shard.getSha256() != null
+                && shard.getSha256().equals(FileHelper.sha256(dir.resolve(shard.getFileName())));
+    }
+}
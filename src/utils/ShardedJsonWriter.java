@@ -0,0 +1,285 @@
+package utils;
+
+import Models.OutputShard;
+import Models.RMetaData;
+import Models.ShardManifest;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import main.Config;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the repositories into numbered json shards instead of a single repositories.json file.
+ *
+ * Every shard is a json array of its own, written by a JsonWriter. A shard is finished as soon as it holds
+ * Config.SHARDMAXRECORDS repositories or Config.SHARDMAXMEGABYTES megabytes, and on close. Finished shards are never
+ * touched again, so they can be copied or processed while the crawl continues. The manifest.json file lists every
+ * shard with its record range, id range, size and, once finished, its SHA-256 checksum. It is replaced atomically
+ * after every batch. A shard that was left unfinished by a crash is continued on the next start.
+ * SEE: ShardedJsonReader
+ */
+public class ShardedJsonWriter implements RepositorySink {
+
+    static final String MANIFEST_FILE_NAME = "manifest.json";
+
+    // static variable single_instance of type Singleton
+    private static ShardedJsonWriter single_instance = null;
+
+    private final Path dir;
+    private final long maxRecords;
+    private final long maxBytes;
+    private final int flushEveryRecords;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final ShardManifest manifest;
+    private OutputShard currentShard;
+    private JsonWriter currentWriter;
+    // The last id written to a finished shard.
+    private long lastFinishedId;
+    private long finishedLostRepositories;
+    private ScheduledExecutorService flushScheduler;
+
+    /**
+     * Opens the sharded output in the given folder. Shards that are already stored in it are kept.
+     * @param dir The folder of the shards and the manifest. It is created if it doesn't exist.
+     * @param maxRecords The number of repositories a shard is finished at, 0 for no limit.
+     * @param maxBytes The size in bytes a shard is finished at, 0 for no limit.
+     * @param flushEveryRecords The number of repositories that are written as one batch.
+     * @throws IOException If the folder or its manifest can't be read.
+     */
+    public ShardedJsonWriter(Path dir, long maxRecords, long maxBytes, int flushEveryRecords) throws IOException {
+        this.dir = dir;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.flushEveryRecords = flushEveryRecords;
+        Files.createDirectories(dir);
+        this.manifest = readManifest(dir);
+        List<OutputShard> shards = manifest.getShards();
+        OutputShard last = shards.isEmpty() ? null : shards.get(shards.size() - 1);
+        if (last != null && !last.isFinished()) {
+            currentShard = last;
+            currentWriter = new JsonWriter(dir.resolve(last.getFileName()).toString(), flushEveryRecords);
+            recount(last);
+        } else {
+            openShard(last);
+        }
+        writeManifest();
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized ShardedJsonWriter getInstance()
+    {
+        if (single_instance == null)
+            single_instance = open(FileHelper.getRepositoriesShardsDirPath());
+
+        return single_instance;
+    }
+
+    /**
+     * Opens a sharded output with the configured shard sizes that is flushed on its own, i.e. the output of a single
+     * language and build system.
+     * @param dirPath The folder of the shards and the manifest.
+     * @return The sharded output. Shuts down if it can't be opened.
+     */
+    public static ShardedJsonWriter open(String dirPath) {
+        ShardedJsonWriter writer = null;
+        try {
+            writer = new ShardedJsonWriter(Paths.get(dirPath), Config.SHARDMAXRECORDS,
+                    Config.SHARDMAXMEGABYTES * 1024L * 1024L, Config.FLUSHEVERYRECORDS);
+        } catch (IOException e) {
+            System.err.println("Couldn't open the sharded output at: " + dirPath + ".\nShutting down.");
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        writer.startFlushScheduler();
+        return writer;
+    }
+
+    @Override
+    public synchronized void writeRepository(RMetaData repository) {
+        if (currentWriter == null)
+            return;
+        currentWriter.writeRepositoryToJson(repository);
+        if (currentShard.getRecords() == 0 || repository.getId() < currentShard.getMinId())
+            currentShard.setMinId(repository.getId());
+        if (currentShard.getRecords() == 0 || repository.getId() > currentShard.getMaxId())
+            currentShard.setMaxId(repository.getId());
+        currentShard.setRecords(currentShard.getRecords() + 1);
+        if ((maxRecords > 0 && currentShard.getRecords() >= maxRecords)
+                || (maxBytes > 0 && currentWriter.getSizeBytes() >= maxBytes)) {
+            finishShard();
+            openShard(currentShard);
+            writeManifest();
+        }
+    }
+
+    /**
+     * Writes the current batch into the current shard and updates its entry within the manifest.
+     */
+    @Override
+    public synchronized void flush() {
+        if (currentWriter == null)
+            return;
+        currentWriter.flush();
+        long sizeBytes = currentWriter.getSizeBytes();
+        // Only rewrite the manifest if the batch wasn't empty.
+        if (sizeBytes != currentShard.getSizeBytes()) {
+            currentShard.setSizeBytes(sizeBytes);
+            writeManifest();
+        }
+    }
+
+    @Override
+    public synchronized long getLastWrittenId() {
+        if (currentWriter == null || currentWriter.getLastWrittenId() == 0)
+            return lastFinishedId;
+        return currentWriter.getLastWrittenId();
+    }
+
+    @Override
+    public synchronized long getLostRepositories() {
+        if (currentWriter == null)
+            return finishedLostRepositories;
+        return finishedLostRepositories + currentWriter.getLostRepositories();
+    }
+
+    /**
+     * @return The files of all shards in the order they were written.
+     */
+    public synchronized List<Path> getShardPaths() {
+        List<Path> paths = new ArrayList<>();
+        for (OutputShard shard : manifest.getShards())
+            paths.add(dir.resolve(shard.getFileName()));
+        return paths;
+    }
+
+    /**
+     * Finishes the current shard, so that the next crawl starts a new one.
+     */
+    @Override
+    public synchronized void close() {
+        if (currentWriter == null)
+            return;
+        if (currentShard.getRecords() > 0) {
+            finishShard();
+        } else {
+            // Nothing was written into the shard, it is dropped.
+            currentWriter.close();
+            finishedLostRepositories += currentWriter.getLostRepositories();
+            manifest.getShards().remove(currentShard);
+            try {
+                Files.deleteIfExists(dir.resolve(currentShard.getFileName()));
+            } catch (IOException e) {
+                System.err.println("Couldn't delete the empty shard " + currentShard.getFileName() + ".");
+            }
+        }
+        writeManifest();
+        currentWriter = null;
+        if (flushScheduler != null)
+            flushScheduler.shutdown();
+    }
+
+    private void startFlushScheduler() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sharded-writer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flush, Config.FLUSHINTERVALMILLIS, Config.FLUSHINTERVALMILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Writes the last batch of the current shard, closes it and stores its checksum.
+     */
+    private void finishShard() {
+        currentWriter.close();
+        lastFinishedId = Math.max(lastFinishedId, currentWriter.getLastWrittenId());
+        finishedLostRepositories += currentWriter.getLostRepositories();
+        Path path = dir.resolve(currentShard.getFileName());
+        try {
+            currentShard.setSizeBytes(Files.size(path));
+            currentShard.setSha256(FileHelper.sha256(path));
+        } catch (IOException e) {
+            System.err.println("Couldn't compute the checksum of the shard " + currentShard.getFileName() + ".");
+            System.err.println(e.getMessage());
+        }
+        currentShard.setFinished(true);
+    }
+
+    /**
+     * Starts the shard after the given one.
+     * @param previous The last shard or null if there is none yet.
+     */
+    private void openShard(OutputShard previous) {
+        OutputShard shard = new OutputShard();
+        shard.setNumber(previous == null ? 0 : previous.getNumber() + 1);
+        shard.setFileName(String.format("repositories-%05d.json", shard.getNumber()));
+        shard.setFirstRecord(previous == null ? 0 : previous.getFirstRecord() + previous.getRecords());
+        manifest.getShards().add(shard);
+        currentShard = shard;
+        currentWriter = new JsonWriter(dir.resolve(shard.getFileName()).toString(), flushEveryRecords);
+    }
+
+    /**
+     * Recounts the records and the id range of a shard that was left unfinished by a crash. Repositories of the
+     * batches written after the last manifest update are not yet listed within the manifest.
+     */
+    private void recount(OutputShard shard) throws IOException {
+        shard.setRecords(0);
+        try (BufferedReader reader = Files.newBufferedReader(dir.resolve(shard.getFileName()), StandardCharsets.UTF_8);
+             com.google.gson.stream.JsonReader json = new com.google.gson.stream.JsonReader(reader)) {
+            json.beginArray();
+            while (json.hasNext()) {
+                RMetaData repository = gson.fromJson(json, RMetaData.class);
+                if (shard.getRecords() == 0 || repository.getId() < shard.getMinId())
+                    shard.setMinId(repository.getId());
+                if (shard.getRecords() == 0 || repository.getId() > shard.getMaxId())
+                    shard.setMaxId(repository.getId());
+                shard.setRecords(shard.getRecords() + 1);
+            }
+        } catch (JsonParseException e) {
+            throw new IOException("The shard " + shard.getFileName() + " is broken. " + e.getMessage());
+        }
+        shard.setSizeBytes(Files.size(dir.resolve(shard.getFileName())));
+    }
+
+    private void writeManifest() {
+        Path path = dir.resolve(MANIFEST_FILE_NAME);
+        Path tempPath = dir.resolve(MANIFEST_FILE_NAME + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                gson.toJson(manifest, writer);
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Couldn't write the manifest of the sharded output.");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    static ShardManifest readManifest(Path dir) throws IOException {
+        Path path = dir.resolve(MANIFEST_FILE_NAME);
+        if (!Files.exists(path))
+            return new ShardManifest();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            ShardManifest manifest = new Gson().fromJson(reader, ShardManifest.class);
+            return manifest == null ? new ShardManifest() : manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("The manifest at " + path + " is broken. " + e.getMessage());
+        }
+    }
+}
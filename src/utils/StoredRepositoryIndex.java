@@ -0,0 +1,176 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * In-memory index of the repositories stored within the repositories.json file by an earlier crawl, used by the
+ * incremental crawl to find out which of them changed since.
+ *
+ * Holds the key (see SeenRepositoryIndex.key), the index within the json array and the pushedAt date of every
+ * repository in sorted primitive arrays, 20 bytes per repository. The repositories themselves are only read from the
+ * json file once they changed (see JsonReader).
+ */
+public class StoredRepositoryIndex {
+
+    public static final int NOT_STORED = -1;
+
+    private long[] keys = new long[1024];
+    private int[] arrayIndexes = new int[1024];
+    // Seconds since the epoch, the json file doesn't store milliseconds. 0 if unknown.
+    private long[] pushedAtSeconds = new long[1024];
+    private int size;
+
+    /**
+     * Reads the owner, name and pushedAt date of all repositories of the json file with a streaming reader.
+     * @param jsonPath The repositories.json file.
+     */
+    public StoredRepositoryIndex(Path jsonPath) {
+        if (Files.exists(jsonPath)) {
+            try {
+                read(jsonPath);
+            } catch (IOException e) {
+                System.err.println("Couldn't read the stored repositories of: " + jsonPath + ".\nShutting down.");
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+        sort();
+    }
+
+    /**
+     * @return The number of stored repositories.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key The key of the repository, see SeenRepositoryIndex.key(String, String).
+     * @return The index of the repository within the json array or NOT_STORED.
+     */
+    public int lookup(long key) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        return position < 0 ? NOT_STORED : arrayIndexes[position];
+    }
+
+    /**
+     * @param key The key of a stored repository.
+     * @param pushedAt The pushedAt date of the repository as reported by the API.
+     * @return True if the repository was pushed after it was stored. Always true for unknown dates.
+     */
+    public boolean isPushedSince(long key, Date pushedAt) {
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        if (position < 0 || pushedAt == null || pushedAtSeconds[position] == 0)
+            return true;
+        return pushedAt.getTime() / 1000 != pushedAtSeconds[position];
+    }
+
+    private void read(Path jsonPath) throws IOException {
+        // Dates are stored in the default format of Gson, which only Gson itself parses reliably.
+        Gson gson = new Gson();
+        // Fully qualified, utils.JsonReader is the reader of the repositories.json file.
+        try (BufferedReader bufferedReader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8)) {
+            com.google.gson.stream.JsonReader reader = new com.google.gson.stream.JsonReader(bufferedReader);
+            if (reader.peek() == JsonToken.END_DOCUMENT)
+                return; // a new, still empty file
+            reader.beginArray();
+            for (int arrayIndex = 0; reader.hasNext(); arrayIndex++) {
+                String owner = null;
+                String name = null;
+                String pushedAt = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "owner":
+                            owner = nextStringOrNull(reader);
+                            break;
+                        case "name":
+                            name = nextStringOrNull(reader);
+                            break;
+                        case "pushedAt":
+                            pushedAt = nextStringOrNull(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (owner != null && name != null)
+                    add(SeenRepositoryIndex.key(owner, name), arrayIndex, parseSeconds(gson, pushedAt));
+            }
+        } catch (IllegalStateException | MalformedJsonException | EOFException e) {
+            // A json file that was cut off by a crash is repaired by the JsonWriter, the complete repositories are kept.
+            System.err.println("The json file is not a complete json array. Only the repositories before the error are refreshed.");
+        }
+    }
+
+    private static long parseSeconds(Gson gson, String date) {
+        if (date == null)
+            return 0;
+        try {
+            Date parsed = gson.fromJson(new JsonPrimitive(date), Date.class);
+            return parsed == null ? 0 : parsed.getTime() / 1000;
+        } catch (JsonParseException e) {
+            return 0;
+        }
+    }
+
+    private static String nextStringOrNull(com.google.gson.stream.JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING)
+            return reader.nextString();
+        reader.skipValue();
+        return null;
+    }
+
+    private void add(long key, int arrayIndex, long pushedAt) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            arrayIndexes = Arrays.copyOf(arrayIndexes, size * 2);
+            pushedAtSeconds = Arrays.copyOf(pushedAtSeconds, size * 2);
+        }
+        keys[size] = key;
+        arrayIndexes[size] = arrayIndex;
+        pushedAtSeconds[size] = pushedAt;
+        size++;
+    }
+
+    /**
+     * Sorts the parallel arrays by key. A repository that is stored twice keeps its last record.
+     */
+    private void sort() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(arrayIndexes[a], arrayIndexes[b]));
+        long[] sortedKeys = new long[size];
+        int[] sortedArrayIndexes = new int[size];
+        long[] sortedPushedAt = new long[size];
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            if (unique > 0 && sortedKeys[unique - 1] == keys[from])
+                unique--; // overwritten by the later record
+            sortedKeys[unique] = keys[from];
+            sortedArrayIndexes[unique] = arrayIndexes[from];
+            sortedPushedAt[unique] = pushedAtSeconds[from];
+            unique++;
+        }
+        keys = sortedKeys;
+        arrayIndexes = sortedArrayIndexes;
+        pushedAtSeconds = sortedPushedAt;
+        size = unique;
+    }
+}
@@ -0,0 +1,51 @@
+package utils;
+
+import Models.RMetaData;
+
+/**
+ * Writes every repository to two sinks, i.e. to the repositories.json file and to the columnar output.
+ */
+public class TeeRepositorySink implements RepositorySink {
+
+    private final RepositorySink first;
+    private final RepositorySink second;
+
+    public TeeRepositorySink(RepositorySink first, RepositorySink second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Writes to both sinks under one lock, so that both hold the repositories in the same order.
+     */
+    @Override
+    public synchronized void writeRepository(RMetaData repository) {
+        first.writeRepository(repository);
+        second.writeRepository(repository);
+    }
+
+    @Override
+    public synchronized void flush() {
+        first.flush();
+        second.flush();
+    }
+
+    /**
+     * @return The last id written by the first sink.
+     */
+    @Override
+    public long getLastWrittenId() {
+        return first.getLastWrittenId();
+    }
+
+    @Override
+    public long getLostRepositories() {
+        return first.getLostRepositories() + second.getLostRepositories();
+    }
+
+    @Override
+    public void close() {
+        first.close();
+        second.close();
+    }
+}
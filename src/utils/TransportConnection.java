@@ -0,0 +1,120 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * HttpURLConnection whose request is sent with an HttpTransport. The request is sent on the first access of the
+ * response, or right away with sendAsync.
+ */
+public class TransportConnection extends HttpURLConnection {
+
+    private final HttpTransport transport;
+    private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+    private CompletableFuture<HttpTransport.Response> exchange;
+
+    TransportConnection(URL url, HttpTransport transport) {
+        super(url);
+        this.transport = transport;
+    }
+
+    /**
+     * Sends the request without blocking. Set all request headers and write the request body before.
+     * @return The response, which is also served by all getters of this connection once it completed.
+     */
+    public synchronized CompletableFuture<HttpTransport.Response> sendAsync() {
+        if (exchange == null) {
+            Map<String, List<String>> headers = getRequestProperties();
+            connected = true;
+            exchange = transport.sendAsync(getRequestMethod(), url, headers, requestBody.toByteArray(), getReadTimeout());
+        }
+        return exchange;
+    }
+
+    private HttpTransport.Response getResponse() throws IOException {
+        try {
+            return sendAsync().join();
+        } catch (CompletionException e) {
+            throw HttpTransport.unwrap(e);
+        }
+    }
+
+    @Override
+    public void connect() throws IOException {
+        getResponse();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (!doOutput)
+            throw new ProtocolException("The connection doesn't allow output.");
+        return requestBody;
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return getResponse().getCode();
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+        return getResponse().getMessage();
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        try {
+            return getResponse().getHeader(name);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        try {
+            return getResponse().getHeaders();
+        } catch (IOException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        HttpTransport.Response response = getResponse();
+        if (response.getCode() >= HTTP_BAD_REQUEST)
+            throw new FileNotFoundException(url.toString());
+        return new ByteArrayInputStream(response.getBody());
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        if (exchange == null || !exchange.isDone() || exchange.isCompletedExceptionally())
+            return null;
+        HttpTransport.Response response = exchange.join();
+        if (response.getCode() < HTTP_BAD_REQUEST)
+            return null;
+        return new ByteArrayInputStream(response.getBody());
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+}
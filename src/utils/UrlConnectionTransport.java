@@ -0,0 +1,110 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HttpTransport on top of the blocking HttpURLConnection of the JDK. Asynchronous requests are sent on a thread of
+ * their own, which is held until the response was read.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    // static variable single_instance of type Singleton
+    private static UrlConnectionTransport single_instance = null;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "url-connection-transport");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private UrlConnectionTransport() {
+    }
+
+    // static method to create instance of Singleton class
+    public static synchronized UrlConnectionTransport getInstance()
+    {
+        if (single_instance == null)
+            single_instance = new UrlConnectionTransport();
+
+        return single_instance;
+    }
+
+    @Override
+    public String getName() {
+        return "HttpURLConnection";
+    }
+
+    /**
+     * The egit services use the HttpURLConnection itself, so that nothing is buffered twice.
+     */
+    @Override
+    public HttpURLConnection open(URL url) {
+        try {
+            return (HttpURLConnection) url.openConnection();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> sendAsync(String method, URL url, Map<String, List<String>> headers, byte[] body, int timeoutMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(method, url, headers, body, timeoutMillis);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static Response send(String method, URL url, Map<String, List<String>> headers, byte[] body, int timeoutMillis) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setReadTimeout(timeoutMillis);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue())
+                connection.addRequestProperty(header.getKey(), value);
+        }
+        if (body.length > 0) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        int code = connection.getResponseCode();
+        Map<String, List<String>> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null) // the status line
+                responseHeaders.put(header.getKey(), header.getValue());
+        }
+        InputStream stream = code >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream();
+        return new Response(code, connection.getResponseMessage(), responseHeaders, readFully(stream));
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        if (stream == null)
+            return new byte[0];
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        }
+    }
+}